@@ -0,0 +1,189 @@
+#!/bin/bash
+
+# Manages a resident analysis daemon (it.unive.scsr.analysis.AnalysisDaemon),
+# so that repeated analyses and tests do not pay the startup of Gradle and of
+# the JVM each time.
+#
+#   ./analyzer.sh start                      starts the daemon in background
+#   ./analyzer.sh stop                       stops it
+#   ./analyzer.sh status                     checks whether it answers
+#   ./analyzer.sh request key=value ...      runs an analysis (input=, domain=, checkers=, output=, ...)
+#   ./analyzer.sh test Class#method          runs a JUnit test method
+#   ./analyzer.sh analyze [--option value]... file.imp...
+#                                            runs it.unive.scsr.Analyze in a new JVM, without the daemon
+#   ./analyzer.sh grade --task parity|cprop [--threads n] [--timeout s] [branch...]
+#                                            grades the student branches in a single JVM (BranchGrader)
+#   ./analyzer.sh startup [runs]             compares the startup of analyze with and without AppCDS
+#
+# "./gradlew cdsArchive" dumps an AppCDS archive of the classes loaded by a
+# training analysis to build/cds/; analyze uses it, with its classpath, when
+# it is present, and rebuilds it first when the compiled classes are newer
+# than the jar it was dumped from. Without the archive (or with CDS=off),
+# analyze uses the classpath computed through Gradle.
+#
+# The daemon keeps the 32 programs it parsed most recently; pass
+# ANALYZER_JVM_OPTS=-Dscsr.cachedPrograms=<n> to start to change that.
+#
+# Answers are printed on stdout: "OK <path>", "FAIL <log>" or "ERROR <message>".
+# The classpath is computed once through Gradle and cached in .analyzer/;
+# delete that directory (or run stop) after changing the sources.
+
+STATE_DIR=".analyzer"
+PORT_FILE="$STATE_DIR/port"
+PID_FILE="$STATE_DIR/pid"
+CP_FILE="$STATE_DIR/classpath"
+LOG_FILE="$STATE_DIR/daemon.log"
+CDS_ARCHIVE="build/cds/scsr.jsa"
+CDS_CP_FILE="build/cds/classpath"
+
+# Sends one line to the daemon and prints the answer
+send() {
+    local port
+    port=$(cat "$PORT_FILE" 2>/dev/null) || return 1
+    exec 3<>"/dev/tcp/127.0.0.1/$port" || return 1
+    echo "$1" >&3
+    local answer
+    read -r answer <&3
+    exec 3<&-
+    echo "$answer"
+}
+
+# Computes the classpath through Gradle the first time
+classpath() {
+    mkdir -p "$STATE_DIR"
+    if [ ! -s "$CP_FILE" ]; then
+        echo "Computing the classpath..." >&2
+        ./gradlew -q printClasspath > "$CP_FILE" || { rm -f "$CP_FILE"; return 1; }
+    fi
+}
+
+# Whether the jar the AppCDS archive was dumped from is missing or older than
+# the compiled classes
+cds_stale() {
+    local jar
+    jar=$(cut -d: -f1 "$CDS_CP_FILE")
+    [ ! -f "$jar" ] || [ -n "$(find build/classes -type f -newer "$jar" -print -quit 2>/dev/null)" ]
+}
+
+# Runs it.unive.scsr.Analyze, with the AppCDS archive unless CDS=off
+analyze() {
+    if [ "$CDS" != "off" ] && [ -s "$CDS_ARCHIVE" ] && [ -s "$CDS_CP_FILE" ]; then
+        if cds_stale; then
+            echo "The AppCDS archive is older than build/classes, rebuilding it..." >&2
+            if ! ./gradlew -q cdsArchive >&2; then
+                echo "Cannot rebuild the AppCDS archive, running without it" >&2
+                CDS=off analyze "$@"
+                return
+            fi
+        fi
+        java $ANALYZER_JVM_OPTS -XX:SharedArchiveFile="$CDS_ARCHIVE" -Xshare:auto \
+            -cp "$(cat "$CDS_CP_FILE")" it.unive.scsr.Analyze "$@"
+    else
+        # the classpath of the archive holds a jar that may be out of date
+        classpath || return 1
+        java $ANALYZER_JVM_OPTS -cp "$(tail -n 1 "$CP_FILE")" it.unive.scsr.Analyze "$@"
+    fi
+}
+
+# Reports the wall time of a short analysis with and without the archive
+startup() {
+    local runs=${1:-5}
+    if [ ! -s "$CDS_ARCHIVE" ]; then
+        echo "No AppCDS archive, run: ./gradlew cdsArchive" >&2
+        return 1
+    fi
+
+    local mode
+    for mode in off on; do
+        local total=0 best=
+        for _ in $(seq 1 "$runs"); do
+            local begin=$(date +%s%N)
+            CDS=$mode analyze --checkers overflow --output "$STATE_DIR/startup" inputs/overflow.imp > /dev/null 2>&1 \
+                || { echo "Analysis failed with CDS $mode" >&2; return 1; }
+            local elapsed=$(( ($(date +%s%N) - begin) / 1000000 ))
+            total=$((total + elapsed))
+            if [ -z "$best" ] || [ "$elapsed" -lt "$best" ]; then
+                best=$elapsed
+            fi
+        done
+        echo "AppCDS $mode: average $((total / runs)) ms, best $best ms over $runs runs"
+    done
+    rm -rf "$STATE_DIR/startup"
+}
+
+start() {
+    if send ping > /dev/null 2>&1; then
+        echo "Analysis daemon already running on port $(cat "$PORT_FILE")"
+        return 0
+    fi
+
+    classpath || return 1
+    rm -f "$PORT_FILE"
+    java $ANALYZER_JVM_OPTS -cp "$(tail -n 1 "$CP_FILE")" it.unive.scsr.analysis.AnalysisDaemon \
+        --port 0 --port-file "$PORT_FILE" > "$LOG_FILE" 2>&1 &
+    echo $! > "$PID_FILE"
+
+    for _ in $(seq 1 100); do
+        if [ -s "$PORT_FILE" ] && send ping > /dev/null 2>&1; then
+            echo "Analysis daemon started on port $(cat "$PORT_FILE") (log: $LOG_FILE)"
+            return 0
+        fi
+        sleep 0.1
+    done
+    echo "Analysis daemon did not start, see $LOG_FILE" >&2
+    return 1
+}
+
+stop() {
+    send shutdown > /dev/null 2>&1
+    if [ -f "$PID_FILE" ]; then
+        # the daemon is not a child of this shell, so it cannot be waited for
+        local pid
+        pid=$(cat "$PID_FILE")
+        for _ in $(seq 1 100); do
+            kill -0 "$pid" 2>/dev/null || break
+            sleep 0.1
+        done
+        if kill -0 "$pid" 2>/dev/null; then
+            echo "Analysis daemon did not exit, killing it" >&2
+            kill "$pid" 2>/dev/null
+        fi
+        rm -f "$PID_FILE"
+    fi
+    rm -rf "$STATE_DIR"
+    echo "Analysis daemon stopped"
+}
+
+# Exits with 0 on OK answers, 1 otherwise
+answer() {
+    local reply
+    reply=$(send "$1") || { echo "Analysis daemon is not running, use: $0 start" >&2; return 2; }
+    echo "$reply"
+    [[ "$reply" == OK* ]]
+}
+
+case "$1" in
+    start) start ;;
+    stop) stop ;;
+    status)
+        if [ "$(send ping 2>/dev/null)" = "PONG" ]; then
+            echo "Analysis daemon running on port $(cat "$PORT_FILE")"
+        else
+            echo "Analysis daemon not running"
+            exit 1
+        fi
+        ;;
+    request) shift; answer "$*" ;;
+    test) answer "test=$2" ;;
+    analyze) shift; analyze "$@" ;;
+    startup) mkdir -p "$STATE_DIR"; startup "$2" ;;
+    grade)
+        shift
+        classpath || exit 1
+        java $ANALYZER_JVM_OPTS -cp "$(tail -n 1 "$CP_FILE")" it.unive.scsr.analysis.BranchGrader "$@"
+        ;;
+    *)
+        echo "Usage: $0 {start|stop|status|request key=value ...|test Class#method|analyze args...|grade args...|startup [runs]}" >&2
+        exit 2
+        ;;
+esac
@@ -3,6 +3,9 @@
 # Script to run all ComprehensiveTestSuite tests and organize results
 # Creates test_results folder with individual output files and graphs
 
+# Set ANALYZER_DAEMON=1 to run the tests through a resident analysis daemon
+# (see analyzer.sh) instead of starting Gradle for each of them
+
 # Create main results directory
 RESULTS_DIR="test_results"
 mkdir -p "$RESULTS_DIR"
@@ -24,9 +27,16 @@ run_test() {
     echo "" | tee -a "$output_file"
     
     # Run the test and capture both stdout and stderr
-    ./gradlew test --tests "$test_class" 2>&1 | tee -a "$output_file"
-    
-    local exit_code=${PIPESTATUS[0]}
+    if [ "$ANALYZER_DAEMON" = "1" ]; then
+        # the output of the test goes to the daemon log, copied into the output file
+        local log_start=$(wc -l < .analyzer/daemon.log)
+        ./analyzer.sh test "it.unive.scsr.ComprehensiveTestSuite#$test_name" 2>&1 | tee -a "$output_file"
+        local exit_code=${PIPESTATUS[0]}
+        tail -n +$((log_start + 1)) .analyzer/daemon.log >> "$output_file"
+    else
+        ./gradlew test --tests "$test_class" 2>&1 | tee -a "$output_file"
+        local exit_code=${PIPESTATUS[0]}
+    fi
     
     echo "" | tee -a "$output_file"
     echo "========================================" | tee -a "$output_file"
@@ -84,9 +94,7 @@ copy_analysis_graphs() {
 
 # Array of all tests to run
 tests=(
-    "testOverflowComplexUINT8"
-    "testOverflowComplexINT16" 
-    "testOverflowComplexFLOAT32"
+    "testOverflowComplexAllTargets"
     "testOverflowBankingUINT8"
     "testOverflowImageProcessingINT32"
     "testOverflowCryptominingUINT32"
@@ -107,6 +115,10 @@ tests=(
     "testHealthcareSecurity"
 )
 
+if [ "$ANALYZER_DAEMON" = "1" ]; then
+    ./analyzer.sh start || exit 1
+fi
+
 # Summary file
 SUMMARY_FILE="$RESULTS_DIR/test_summary_${TIMESTAMP}.txt"
 
@@ -140,6 +152,10 @@ for test in "${tests[@]}"; do
     sleep 2
 done
 
+if [ "$ANALYZER_DAEMON" = "1" ]; then
+    ./analyzer.sh stop
+fi
+
 # Final summary
 echo "========================================" | tee -a "$SUMMARY_FILE"
 echo "EXECUTION SUMMARY" | tee -a "$SUMMARY_FILE"
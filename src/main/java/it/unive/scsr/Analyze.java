@@ -0,0 +1,120 @@
+package it.unive.scsr;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.scsr.analysis.AnalysisRequest;
+import it.unive.scsr.analysis.Analyzer;
+
+/**
+ * Command-line entry point running analyses without going through Gradle and
+ * JUnit. Each option of {@link AnalysisRequest#OPTIONS} is passed as
+ * {@code --<name> <value>}, and input files can also be given as positional
+ * arguments. For instance:
+ *
+ * <pre>
+ * java -cp ... it.unive.scsr.Analyze --checkers overflow --size uint8,int16 --graphs html inputs/overflow-complex.imp
+ * java -cp ... it.unive.scsr.Analyze --checkers taint-three-levels --sources source --sinks sink --formats json,sarif a.imp b.imp
+ * </pre>
+ *
+ * When more than one input is given, each is analyzed in a subdirectory of
+ * the output directory named after it. The process exits with {@code 0} if
+ * all analyses succeed, {@code 1} if some fail and {@code 2} on invalid
+ * arguments.
+ */
+public class Analyze {
+
+	/**
+	 * Runs the analyses.
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-h") || arg.equals("--help")) {
+				usage();
+				return;
+			}
+			if (!arg.startsWith("--")) {
+				inputs.add(arg);
+				continue;
+			}
+
+			String key = arg.substring(2), value;
+			int eq = key.indexOf('=');
+			if (eq >= 0) {
+				value = key.substring(eq + 1);
+				key = key.substring(0, eq);
+			} else if (i + 1 < args.length)
+				value = args[++i];
+			else {
+				System.err.println("Missing value for " + arg);
+				System.exit(2);
+				return;
+			}
+
+			if (key.equals("input"))
+				inputs.add(value);
+			else
+				options.put(key, value);
+		}
+
+		if (inputs.isEmpty()) {
+			System.err.println("No input file given");
+			usage();
+			System.exit(2);
+		}
+
+		List<AnalysisRequest> requests = new ArrayList<>(inputs.size());
+		try {
+			for (String input : inputs) {
+				Map<String, String> opts = new LinkedHashMap<>(options);
+				opts.put("input", input);
+				if (inputs.size() > 1 && options.containsKey("output"))
+					opts.put("output", new File(options.get("output"), baseName(input)).getPath());
+				requests.add(AnalysisRequest.fromOptions(opts));
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+
+		Analyzer analyzer = new Analyzer();
+		int failed = 0;
+		for (AnalysisRequest request : requests)
+			try {
+				long start = System.nanoTime();
+				Path report = analyzer.run(request);
+				System.out.println(request.getInput() + ": " + report + " ("
+						+ (System.nanoTime() - start) / 1_000_000 + " ms)");
+			} catch (Exception e) {
+				System.err.println("Analysis of " + request.getInput() + " failed");
+				e.printStackTrace(System.err);
+				failed++;
+			}
+
+		if (failed > 0) {
+			System.err.println(failed + " of " + requests.size() + " analyses failed");
+			System.exit(1);
+		}
+	}
+
+	private static String baseName(String input) {
+		String name = new File(input).getName();
+		return name.endsWith(".imp") ? name.substring(0, name.length() - 4) : name;
+	}
+
+	private static void usage() {
+		System.err.println("Usage: Analyze [--<option> <value>]... <input.imp>...");
+		System.err.println("Options:");
+		for (Map.Entry<String, String> option : AnalysisRequest.OPTIONS.entrySet())
+			System.err.println("  --" + option.getKey() + ": " + option.getValue());
+	}
+}
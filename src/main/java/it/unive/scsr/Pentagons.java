@@ -51,6 +51,24 @@ public class Pentagons
 	}
 	
 	
+	/**
+	 * Yields the upper bounds tracked by this state.
+	 *
+	 * @return the upper bounds environment
+	 */
+	public ValueEnvironment<UpperBounds> getUpperBounds() {
+		return upperbounds;
+	}
+
+	/**
+	 * Yields the intervals tracked by this state.
+	 *
+	 * @return the intervals environment
+	 */
+	public ValueEnvironment<Intervals> getIntervals() {
+		return intervals;
+	}
+
 	@Override
 	public Pentagons top() {
 		
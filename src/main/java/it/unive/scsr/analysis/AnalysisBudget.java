@@ -0,0 +1,172 @@
+package it.unive.scsr.analysis;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.type.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+
+/**
+ * A per-CFG budget for the fixpoint computation. Each CFG is granted a maximum
+ * amount of analysis time (measured as the time spent between consecutive
+ * semantic operations on its program points) and a maximum number of
+ * evaluations of each of its program points. An evaluation is any semantic
+ * operation of the value domain at that point (assignments, expression
+ * evaluations, assumptions and satisfiability tests), in any context: the
+ * count grows with the fixpoint iterations over the loops containing the
+ * point, but it is not the number of iterations itself, and it sums over
+ * contexts: a point of a method called in many contexts is evaluated many
+ * times even if none of its loops diverges, so the limit has to be sized on
+ * the number of contexts too. Once a CFG exceeds its budget, the
+ * {@link BudgetedValueDomain} forces its widenings to top so that its
+ * fixpoint converges immediately, and the CFG is recorded as degraded.
+ * Whether this happens depends on timing, so the results of degraded analyses
+ * are never stored by {@link AnalysisCache}.
+ */
+public class AnalysisBudget {
+
+	private final long maxNanosPerCfg;
+
+	private final int maxEvaluationsPerPoint;
+
+	private final Map<CFG, AtomicLong> elapsed = new ConcurrentHashMap<>();
+
+	private final Map<ProgramPoint, AtomicInteger> evaluations = new ConcurrentHashMap<>();
+
+	private final Map<CFG, String> degraded = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Clock> clock = ThreadLocal.withInitial(Clock::new);
+
+	/**
+	 * Builds the budget.
+	 *
+	 * @param maxMillisPerCfg        the maximum analysis time of each CFG, in
+	 *                                   milliseconds, or a non-positive value
+	 *                                   for no limit
+	 * @param maxEvaluationsPerPoint the maximum number of semantic operations
+	 *                                   evaluated at each program point, over
+	 *                                   all contexts, or a non-positive value
+	 *                                   for no limit
+	 */
+	public AnalysisBudget(long maxMillisPerCfg, int maxEvaluationsPerPoint) {
+		this.maxNanosPerCfg = maxMillisPerCfg * 1_000_000L;
+		this.maxEvaluationsPerPoint = maxEvaluationsPerPoint;
+	}
+
+	/**
+	 * Wraps the value domain of the abstract state of the given configuration
+	 * into a {@link BudgetedValueDomain} enforcing this budget. Configurations
+	 * whose abstract state is not a {@link SimpleAbstractState} are left
+	 * untouched.
+	 *
+	 * @param conf the configuration to modify
+	 */
+	public void apply(LiSAConfiguration conf) {
+		if (conf.abstractState instanceof SimpleAbstractState)
+			conf.abstractState = budgeted((SimpleAbstractState<?, ?, ?>) conf.abstractState);
+	}
+
+	private <H extends HeapDomain<H>,
+			V extends ValueDomain<V>,
+			T extends TypeDomain<T>> AbstractState<?> budgeted(SimpleAbstractState<H, V, T> state) {
+		return DefaultConfiguration.simpleState(
+				state.getHeapState(),
+				new BudgetedValueDomain<>(state.getValueState(), this),
+				state.getTypeState());
+	}
+
+	@Override
+	public String toString() {
+		return "AnalysisBudget[maxMillisPerCfg=" + (maxNanosPerCfg / 1_000_000L) + ", maxEvaluationsPerPoint="
+				+ maxEvaluationsPerPoint + "]";
+	}
+
+	/**
+	 * Records the evaluation of a semantic operation at the given program
+	 * point, charging the time elapsed since the previous operation on this
+	 * thread to the CFG of the previous program point.
+	 *
+	 * @param pp the program point
+	 */
+	void evaluated(ProgramPoint pp) {
+		if (pp == null)
+			return;
+
+		Clock c = clock.get();
+		long now = System.nanoTime();
+		if (c.cfg != null)
+			elapsed.computeIfAbsent(c.cfg, k -> new AtomicLong()).addAndGet(now - c.last);
+		c.cfg = pp.getCFG();
+		c.last = now;
+
+		if (maxEvaluationsPerPoint > 0) {
+			int count = evaluations.computeIfAbsent(pp, k -> new AtomicInteger()).incrementAndGet();
+			if (count > maxEvaluationsPerPoint)
+				degrade(pp.getCFG(), "program point '" + pp + "' at " + pp.getLocation() + " reached by more than "
+						+ maxEvaluationsPerPoint + " semantic operations");
+		}
+
+		if (maxNanosPerCfg > 0 && c.cfg != null) {
+			AtomicLong spent = elapsed.get(c.cfg);
+			if (spent != null && spent.get() > maxNanosPerCfg)
+				degrade(c.cfg, "analysis time exceeded " + (maxNanosPerCfg / 1_000_000L) + "ms");
+		}
+	}
+
+	private void degrade(CFG cfg, String reason) {
+		if (cfg != null && degraded.putIfAbsent(cfg, reason) == null)
+			System.err.println("Analysis budget exceeded for " + cfg.getDescriptor() + ": "
+					+ reason + ", forcing its results to top");
+	}
+
+	/**
+	 * Yields whether the CFG containing the given program point has exceeded
+	 * its budget.
+	 *
+	 * @param pp the program point
+	 *
+	 * @return {@code true} if the budget has been exceeded
+	 */
+	boolean isExceeded(ProgramPoint pp) {
+		return pp != null && pp.getCFG() != null && degraded.containsKey(pp.getCFG());
+	}
+
+	/**
+	 * Yields the reason why the given CFG exceeded its budget.
+	 *
+	 * @param cfg the CFG
+	 *
+	 * @return the reason, or {@code null} if the CFG is within its budget
+	 */
+	public String getReason(CFG cfg) {
+		return degraded.get(cfg);
+	}
+
+	/**
+	 * Yields the CFGs that exceeded their budget, mapped to the reason why
+	 * they did, sorted by signature.
+	 *
+	 * @return the degraded CFGs
+	 */
+	public Map<String, String> getDegraded() {
+		Map<String, String> result = new TreeMap<>();
+		degraded.forEach((cfg, reason) -> result.put(cfg.getDescriptor().toString(), reason));
+		return Collections.unmodifiableMap(result);
+	}
+
+	private static class Clock {
+		private CFG cfg;
+		private long last;
+	}
+}
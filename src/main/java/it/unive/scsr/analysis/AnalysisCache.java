@@ -0,0 +1,645 @@
+package it.unive.scsr.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAReport;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.lattices.FunctionalLattice;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.syntactic.SyntacticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.annotations.Annotation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A persistent, content-addressed cache of analysis outputs. Entries are keyed
+ * by a hash of the parsed program (including the annotations attached to its
+ * code members), of the abstract state prototype, of the semantic checks and
+ * of the {@link LiSAConfiguration} fields that influence the results. Each
+ * entry is a single compact file holding every output file produced by the
+ * analysis (the files listed in {@code report.json}, and the ones of the
+ * checks implementing {@link OutputCheck}), and it is read back through a
+ * memory mapping; entries that cannot be read are treated as missing.<br>
+ * <br>
+ * LiSA does not expose a way to feed precomputed fixpoint results to its
+ * semantic checks, so a hit restores the whole output of the original run
+ * (warnings, {@code report.json}, graphs and serialized results) and skips
+ * LiSA altogether. Analyses go through the cache when run by
+ * {@link AnalysisRunner} with the {@value #CACHE_PROPERTY} system property
+ * set.
+ */
+public class AnalysisCache {
+
+	/**
+	 * The system property that, if set, enables the cache in
+	 * {@link AnalysisRunner}, pointing to the directory where entries are
+	 * stored.
+	 */
+	public static final String CACHE_PROPERTY = "scsr.cache";
+
+	private static final int MAGIC = 0x53435352;
+
+	private static final String EXTENSION = ".cache";
+
+	private static final String REPORT = "report.json";
+
+	private final Path directory;
+
+	/**
+	 * Builds the cache.
+	 *
+	 * @param directory the directory where cache entries are stored
+	 */
+	public AnalysisCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Builds the cache pointed by the {@value #CACHE_PROPERTY} system property.
+	 *
+	 * @return the cache, or {@code null} if the property is not set
+	 */
+	public static AnalysisCache fromSystemProperties() {
+		String dir = System.getProperty(CACHE_PROPERTY);
+		if (dir == null || dir.isBlank())
+			return null;
+		return new AnalysisCache(Paths.get(dir));
+	}
+
+	/**
+	 * Runs LiSA on the given program, unless a previous run with the same
+	 * program, domain and configuration is stored in this cache: in that
+	 * case, its outputs are restored in the working directory instead. The
+	 * outputs of analyses that exceeded their {@link AnalysisBudget} are not
+	 * stored.
+	 *
+	 * @param conf    the configuration of the analysis
+	 * @param program the program to analyze
+	 *
+	 * @return {@code true} if the outputs have been restored from the cache
+	 *
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public boolean run(LiSAConfiguration conf, Program program) throws AnalysisException {
+		return analyze(conf, program).isHit();
+	}
+
+	/**
+	 * Runs LiSA on the given program as {@link #run(LiSAConfiguration, Program)}
+	 * does, yielding the report of the analysis: the one of the run, or the
+	 * one stored with the restored outputs. Entries always hold the report,
+	 * but it is restored in the working directory only if
+	 * {@link LiSAConfiguration#jsonOutput} is set.
+	 *
+	 * @param conf    the configuration of the analysis
+	 * @param program the program to analyze
+	 *
+	 * @return the outcome of the analysis
+	 *
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public Result analyze(LiSAConfiguration conf, Program program) throws AnalysisException {
+		Path workdir = Paths.get(conf.workdir);
+		String key = key(program, conf);
+		boolean json = conf.jsonOutput;
+
+		try {
+			if (restore(key, workdir)) {
+				JsonReport report = report(workdir, json);
+				if (report != null) {
+					System.out.println("Analysis cache hit (" + key + "): outputs restored in " + workdir);
+					return new Result(true, report);
+				}
+				System.err.println("Cache entry " + key + " has no report, running the analysis");
+			}
+		} catch (IOException e) {
+			System.err.println("Cannot read cache entry " + key + ", running the analysis");
+			e.printStackTrace(System.err);
+		}
+
+		// the report lists the files written by LiSA, so that outputs of
+		// previous runs in the same working directory are not stored
+		conf.jsonOutput = true;
+		LiSAReport report;
+		try {
+			report = new LiSA(conf).run(program);
+		} finally {
+			conf.jsonOutput = json;
+		}
+
+		try {
+			if (degraded(conf))
+				System.out.println("Analysis budget exceeded: results not stored in the cache");
+			else
+				store(key, workdir, outputs(workdir, conf));
+		} catch (IOException e) {
+			System.err.println("Cannot store cache entry " + key);
+			e.printStackTrace(System.err);
+		} finally {
+			if (!json)
+				try {
+					Files.deleteIfExists(workdir.resolve(REPORT));
+				} catch (IOException e) {
+					System.err.println("Cannot delete " + workdir.resolve(REPORT));
+				}
+		}
+		return new Result(false, new JsonReport(report));
+	}
+
+	/**
+	 * Reads the report restored in the given working directory, deleting it
+	 * if it was not requested.
+	 *
+	 * @return the report, or {@code null} if the entry did not hold one
+	 */
+	private static JsonReport report(Path workdir, boolean json) throws IOException {
+		Path file = workdir.resolve(REPORT);
+		if (!Files.isRegularFile(file))
+			return null;
+		try (Reader reader = Files.newBufferedReader(file)) {
+			return JsonReport.read(reader);
+		} finally {
+			if (!json)
+				Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Computes the key of the analysis of the given program with the given
+	 * configuration.
+	 *
+	 * @param program the program to analyze
+	 * @param conf    the configuration of the analysis
+	 *
+	 * @return the hexadecimal key of the analysis
+	 */
+	public String key(Program program, LiSAConfiguration conf) {
+		MessageDigest digest = newDigest();
+		update(digest, programFingerprint(program));
+
+		StringBuilder domain = new StringBuilder();
+		describeDomain(conf.abstractState, domain);
+		update(digest, domain.toString());
+		updateWithCode(digest, conf.abstractState);
+
+		update(digest, "graphs=" + conf.analysisGraphs);
+		update(digest, "json=" + conf.jsonOutput);
+		update(digest, "serialize=" + conf.serializeResults);
+		update(digest, "widening=" + conf.wideningThreshold);
+		update(digest, "recursionWidening=" + conf.recursionWideningThreshold);
+		update(digest, "glb=" + conf.glbThreshold);
+		update(digest, "descending=" + conf.descendingPhaseType);
+		update(digest, "wideningPoints=" + conf.useWideningPoints);
+		update(digest, "optimize=" + conf.optimize);
+		update(digest, "interprocedural=" + className(conf.interproceduralAnalysis));
+		update(digest, "callgraph=" + className(conf.callGraph));
+		update(digest, "openCalls=" + className(conf.openCallPolicy));
+
+		List<String> checks = new ArrayList<>();
+		for (SemanticCheck<?> check : conf.semanticChecks)
+			checks.add(describeCheck(check));
+		for (SyntacticCheck check : conf.syntacticChecks)
+			checks.add("syntactic " + describeCheck(check));
+		Collections.sort(checks);
+		for (String check : checks)
+			update(digest, check);
+		for (SemanticCheck<?> check : conf.semanticChecks)
+			updateWithCheckCode(digest, check);
+		for (SyntacticCheck check : conf.syntacticChecks)
+			updateWithCode(digest, check);
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Restores the outputs stored under the given key in the given working
+	 * directory. Entries that are truncated or corrupt are deleted, and treated
+	 * as missing.
+	 *
+	 * @param key     the key of the entry
+	 * @param workdir the working directory where outputs are restored
+	 *
+	 * @return {@code true} if the entry exists and has been restored
+	 *
+	 * @throws IOException if the entry cannot be read or its files cannot be
+	 *                         written
+	 */
+	public boolean restore(String key, Path workdir) throws IOException {
+		Path entry = directory.resolve(key + EXTENSION);
+		if (!Files.isRegularFile(entry))
+			return false;
+
+		Map<Path, ByteBuffer> files;
+		try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+			files = read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), workdir);
+		}
+		if (files == null) {
+			System.err.println("Discarding corrupt cache entry " + entry);
+			try {
+				Files.deleteIfExists(entry);
+			} catch (IOException e) {
+				// the entry is overwritten by the next store
+			}
+			return false;
+		}
+
+		for (Map.Entry<Path, ByteBuffer> file : files.entrySet()) {
+			Files.createDirectories(file.getKey().getParent());
+			try (FileChannel out = FileChannel.open(file.getKey(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer content = file.getValue();
+				while (content.hasRemaining())
+					out.write(content);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads the files of a cache entry, checking that every length fits in
+	 * the entry and that every file is inside the working directory.
+	 *
+	 * @return the contents of the files, by path, or {@code null} if the entry
+	 *             is malformed
+	 */
+	private static Map<Path, ByteBuffer> read(ByteBuffer buffer, Path workdir) {
+		if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC)
+			return null;
+		int count = buffer.getInt();
+		if (count < 0)
+			return null;
+
+		Path root = workdir.toAbsolutePath().normalize();
+		Map<Path, ByteBuffer> files = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			ByteBuffer name = chunk(buffer);
+			ByteBuffer content = name == null ? null : chunk(buffer);
+			if (content == null)
+				return null;
+			try {
+				Path target = root.resolve(StandardCharsets.UTF_8.decode(name).toString()).normalize();
+				if (!target.startsWith(root) || target.equals(root))
+					return null;
+				files.put(target, content);
+			} catch (InvalidPathException e) {
+				return null;
+			}
+		}
+
+		return buffer.hasRemaining() ? null : files;
+	}
+
+	private static ByteBuffer chunk(ByteBuffer buffer) {
+		if (buffer.remaining() < Integer.BYTES)
+			return null;
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining())
+			return null;
+		ByteBuffer chunk = buffer.slice();
+		chunk.limit(length);
+		buffer.position(buffer.position() + length);
+		return chunk;
+	}
+
+	/**
+	 * Stores the given output files of the given working directory under the
+	 * given key.
+	 *
+	 * @param key     the key of the entry
+	 * @param workdir the working directory containing the outputs
+	 * @param outputs the paths of the output files, relative to the working
+	 *                    directory
+	 *
+	 * @throws IOException if the outputs cannot be read or the entry cannot be
+	 *                         written
+	 */
+	public void store(String key, Path workdir, Collection<String> outputs) throws IOException {
+		Files.createDirectories(directory);
+		Path tmp = Files.createTempFile(directory, key, ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(outputs.size());
+				for (String output : outputs) {
+					byte[] name = output.replace('\\', '/').getBytes(StandardCharsets.UTF_8);
+					byte[] content = Files.readAllBytes(workdir.resolve(output));
+					out.writeInt(name.length);
+					out.write(name);
+					out.writeInt(content.length);
+					out.write(content);
+				}
+			}
+			Files.move(tmp, directory.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Yields the outputs of the last analysis run in the given working
+	 * directory: the files listed in its {@code report.json}, and the ones
+	 * written by the checks implementing {@link OutputCheck}.
+	 */
+	private static Collection<String> outputs(Path workdir, LiSAConfiguration conf) throws IOException {
+		Set<String> outputs = new TreeSet<>();
+		try (Reader reader = Files.newBufferedReader(workdir.resolve(REPORT))) {
+			outputs.addAll(JsonReport.read(reader).getFiles());
+		}
+		outputs.add(REPORT);
+		for (SemanticCheck<?> check : conf.semanticChecks)
+			if (check instanceof OutputCheck)
+				outputs.addAll(((OutputCheck) check).getOutputFiles());
+		return outputs;
+	}
+
+	private static String programFingerprint(Program program) {
+		List<String> lines = new ArrayList<>();
+		for (CFG cfg : program.getAllCFGs()) {
+			String sig = cfg.getDescriptor().toString();
+			lines.add(sig + " @" + annotations(cfg.getDescriptor().getAnnotations()));
+			for (Parameter formal : cfg.getDescriptor().getFormals())
+				lines.add(sig + " formal " + formal.getName() + " @" + annotations(formal.getAnnotations()));
+			for (Statement st : cfg.getNodes())
+				lines.add(sig + " node " + st.getLocation() + " " + st);
+			for (Edge e : cfg.getEdges())
+				lines.add(sig + " edge " + e.getClass().getSimpleName() + " " + e.getSource().getLocation() + " "
+						+ e.getDestination().getLocation());
+		}
+
+		Collections.sort(lines);
+		return String.join("\n", lines);
+	}
+
+	private static String annotations(Iterable<Annotation> annotations) {
+		List<String> names = new ArrayList<>();
+		for (Annotation a : annotations)
+			names.add(a.getAnnotationName());
+		Collections.sort(names);
+		return names.toString();
+	}
+
+	/**
+	 * Appends a description of the structure of the given domain (the classes
+	 * of the domain and of its components) to the given builder.
+	 *
+	 * @param domain the domain to describe
+	 * @param result the builder where the description is appended
+	 */
+	static void describeDomain(Object domain, StringBuilder result) {
+		if (domain == null) {
+			result.append("null");
+			return;
+		}
+
+		result.append(domain.getClass().getName());
+		if (domain instanceof SimpleAbstractState) {
+			SimpleAbstractState<?, ?, ?> state = (SimpleAbstractState<?, ?, ?>) domain;
+			result.append('(');
+			describeDomain(state.getHeapState(), result);
+			result.append(',');
+			describeDomain(state.getValueState(), result);
+			result.append(',');
+			describeDomain(state.getTypeState(), result);
+			result.append(')');
+		} else if (domain instanceof FunctionalLattice) {
+			result.append('<');
+			describeDomain(((FunctionalLattice<?, ?, ?>) domain).lattice, result);
+			result.append('>');
+		} else if (domain instanceof ForwardingValueDomain) {
+			// the limits of a budget decide whether results degrade
+			if (domain instanceof BudgetedValueDomain)
+				result.append(((BudgetedValueDomain<?>) domain).getBudget());
+			result.append('[');
+			describeDomain(((ForwardingValueDomain<?, ?>) domain).inner, result);
+			result.append(']');
+		}
+	}
+
+	/**
+	 * Yields whether some CFG exceeded the {@link AnalysisBudget} enforced by
+	 * the abstract state of the given configuration, if any.
+	 */
+	private static boolean degraded(LiSAConfiguration conf) {
+		if (!(conf.abstractState instanceof SimpleAbstractState))
+			return false;
+		Object domain = ((SimpleAbstractState<?, ?, ?>) conf.abstractState).getValueState();
+		for (; domain instanceof ForwardingValueDomain; domain = ((ForwardingValueDomain<?, ?>) domain).inner)
+			if (domain instanceof BudgetedValueDomain
+					&& !((BudgetedValueDomain<?>) domain).getBudget().getDegraded().isEmpty())
+				return true;
+		return false;
+	}
+
+	private static String describeCheck(Object check) {
+		StringBuilder result = new StringBuilder(check.getClass().getName());
+		for (Field field : check.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(NotInKey.class))
+				continue;
+			Class<?> type = field.getType();
+			boolean array = type.isArray();
+			if (array)
+				type = type.getComponentType();
+			try {
+				field.setAccessible(true);
+				Object value = field.get(check);
+				List<SemanticCheck<?>> nested = checksIn(value);
+				if (!nested.isEmpty()) {
+					List<String> descriptions = new ArrayList<>();
+					for (SemanticCheck<?> n : nested)
+						descriptions.add(describeCheck(n));
+					result.append(' ').append(field.getName()).append('=').append(descriptions);
+				} else if (type.isPrimitive() || type.isEnum() || type == String.class)
+					result.append(' ').append(field.getName()).append('=')
+							.append(array && value != null ? arrayToString(value) : String.valueOf(value));
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// fields we cannot read do not contribute to the key
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Yields the checks held by a field of a composite check: either a single
+	 * check or a collection of them.
+	 */
+	private static List<SemanticCheck<?>> checksIn(Object value) {
+		List<SemanticCheck<?>> result = new ArrayList<>();
+		if (value instanceof SemanticCheck)
+			result.add((SemanticCheck<?>) value);
+		else if (value instanceof Collection)
+			for (Object element : (Collection<?>) value)
+				if (element instanceof SemanticCheck)
+					result.add((SemanticCheck<?>) element);
+		return result;
+	}
+
+	private static void updateWithCheckCode(MessageDigest digest, SemanticCheck<?> check) {
+		updateWithCode(digest, check);
+		for (Field field : check.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers()))
+				continue;
+			try {
+				field.setAccessible(true);
+				for (SemanticCheck<?> nested : checksIn(field.get(check)))
+					updateWithCheckCode(digest, nested);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// fields we cannot read do not contribute to the key
+			}
+		}
+	}
+
+	private static String arrayToString(Object array) {
+		List<String> elements = new ArrayList<>();
+		for (int i = 0; i < Array.getLength(array); i++)
+			elements.add(String.valueOf(Array.get(array, i)));
+		return elements.toString();
+	}
+
+	private static void updateWithCode(MessageDigest digest, Object component) {
+		if (component == null)
+			return;
+
+		Class<?> cls = component.getClass();
+		// the binary name, since simple names lack the outer classes of nested ones
+		String name = cls.getName().substring(cls.getName().lastIndexOf('.') + 1);
+		try (InputStream bytecode = cls.getResourceAsStream(name + ".class")) {
+			if (bytecode != null)
+				digest.update(bytecode.readAllBytes());
+		} catch (IOException e) {
+			// missing bytecode only weakens invalidation
+		}
+
+		if (component instanceof SimpleAbstractState) {
+			SimpleAbstractState<?, ?, ?> state = (SimpleAbstractState<?, ?, ?>) component;
+			updateWithCode(digest, state.getHeapState());
+			updateWithCode(digest, state.getValueState());
+			updateWithCode(digest, state.getTypeState());
+		} else if (component instanceof FunctionalLattice)
+			updateWithCode(digest, ((FunctionalLattice<?, ?, ?>) component).lattice);
+		else if (component instanceof ForwardingValueDomain)
+			updateWithCode(digest, ((ForwardingValueDomain<?, ?>) component).inner);
+	}
+
+	private static String className(Object o) {
+		return o == null ? "null" : o.getClass().getName();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			result.append(String.format("%02x", b));
+		return result.toString();
+	}
+
+	/**
+	 * A semantic check writing files in the working directory by itself,
+	 * instead of through LiSA, so that they are not listed in
+	 * {@code report.json}. These files are stored in the cache together with
+	 * the ones of the report.
+	 */
+	public interface OutputCheck {
+
+		/**
+		 * Yields the files written by this check in its last execution.
+		 *
+		 * @return the paths of the files, relative to the working directory
+		 */
+		Collection<String> getOutputFiles();
+	}
+
+	/**
+	 * The outcome of an analysis run through the cache.
+	 */
+	public static class Result {
+		private final boolean hit;
+		private final JsonReport report;
+
+		private Result(boolean hit, JsonReport report) {
+			this.hit = hit;
+			this.report = report;
+		}
+
+		/**
+		 * Yields whether the outputs have been restored from the cache.
+		 *
+		 * @return {@code true} if the analysis has not been run
+		 */
+		public boolean isHit() {
+			return hit;
+		}
+
+		/**
+		 * Yields the report of the analysis.
+		 *
+		 * @return the report
+		 */
+		public JsonReport getReport() {
+			return report;
+		}
+	}
+
+	/**
+	 * Marks a field of a semantic check that does not affect what the check
+	 * reports (e.g., the number of threads it runs on), so that checks
+	 * differing only in such fields share cache entries. Fields of checks are
+	 * otherwise part of the key whenever they are primitives, enums or
+	 * strings.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	public @interface NotInKey {
+	}
+}
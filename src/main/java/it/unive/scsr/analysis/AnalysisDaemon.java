@@ -0,0 +1,269 @@
+package it.unive.scsr.analysis;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A resident analyzer, that keeps the JVM, the JIT-compiled LiSA code and the
+ * {@link ProgramCache} of an {@link Analyzer} warm across requests, to avoid
+ * paying the startup of Gradle and of the JVM for each short analysis.<br>
+ * <br>
+ * The daemon reads one request per line, either from the standard input
+ * ({@code --stdin}) or from connections to a loopback port ({@code --port},
+ * {@code 0} picks a free one, written to {@code --port-file} if given). A
+ * line is one of:
+ * <ul>
+ * <li>{@code ping}, answered with {@code PONG};</li>
+ * <li>{@code shutdown}, answered with {@code BYE} before exiting;</li>
+ * <li>{@code test=Class#method}, that runs a JUnit test method of the suites
+ * on the classpath, answered with {@code OK} or {@code FAIL};</li>
+ * <li>space-separated {@code key=value} options of an
+ * {@link AnalysisRequest}, answered with {@code OK <report path>}.</li>
+ * </ul>
+ * Failures are answered with {@code FAIL <log path>} when the request has
+ * an output directory, and with {@code ERROR <message>} otherwise. Requests
+ * are served one at a time, and the output they print is also copied to
+ * {@code daemon.log} in their output directory.
+ */
+public class AnalysisDaemon {
+
+	/**
+	 * The name of the log written in the output directory of each request.
+	 */
+	public static final String LOG_FILE = "daemon.log";
+
+	private final Analyzer analyzer = new Analyzer();
+
+	private boolean running = true;
+
+	/**
+	 * Starts the daemon.
+	 *
+	 * @param args {@code --stdin}, or {@code --port <n>} and optionally
+	 *                 {@code --port-file <path>}
+	 *
+	 * @throws IOException if the socket cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean stdin = false;
+		int port = 0;
+		String portFile = null;
+		for (int i = 0; i < args.length; i++)
+			switch (args[i]) {
+			case "--stdin":
+				stdin = true;
+				break;
+			case "--port":
+				port = Integer.parseInt(args[++i]);
+				break;
+			case "--port-file":
+				portFile = args[++i];
+				break;
+			default:
+				System.err.println("Unknown argument " + args[i]);
+				System.err.println("Usage: AnalysisDaemon [--stdin | --port <n> [--port-file <path>]]");
+				System.exit(2);
+			}
+
+		AnalysisDaemon daemon = new AnalysisDaemon();
+		if (stdin)
+			daemon.serve(System.in, System.out);
+		else
+			daemon.listen(port, portFile);
+	}
+
+	private void listen(int port, String portFile) throws IOException {
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.out.println("Analysis daemon listening on 127.0.0.1:" + server.getLocalPort());
+			if (portFile != null)
+				Files.write(Paths.get(portFile), String.valueOf(server.getLocalPort()).getBytes(StandardCharsets.UTF_8));
+			while (running)
+				try (Socket socket = server.accept()) {
+					serve(socket.getInputStream(), socket.getOutputStream());
+				} catch (IOException e) {
+					System.err.println("Error while serving a connection");
+					e.printStackTrace(System.err);
+				}
+		} finally {
+			if (portFile != null)
+				Files.deleteIfExists(Paths.get(portFile));
+		}
+	}
+
+	private void serve(InputStream in, OutputStream out) throws IOException {
+		// the answers must not be interleaved with the output of the analyses
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while (running && (line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			writer.write(handle(line));
+			writer.write('\n');
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Handles a single request line.
+	 *
+	 * @param line the line
+	 *
+	 * @return the answer, without the trailing newline
+	 */
+	String handle(String line) {
+		if (line.equals("ping"))
+			return "PONG";
+		if (line.equals("shutdown")) {
+			running = false;
+			return "BYE";
+		}
+
+		Map<String, String> options;
+		try {
+			options = parse(line);
+		} catch (IllegalArgumentException e) {
+			return "ERROR " + e.getMessage();
+		}
+
+		if (options.containsKey("test")) {
+			// with --stdin, the standard output carries the answers
+			PrintStream out = System.out;
+			System.setOut(System.err);
+			try {
+				return test(options.get("test"));
+			} finally {
+				System.setOut(out);
+			}
+		}
+
+		AnalysisRequest request;
+		try {
+			request = AnalysisRequest.fromOptions(options);
+		} catch (IllegalArgumentException e) {
+			return "ERROR " + e.getMessage();
+		}
+
+		Path log = Paths.get(request.getOutput(), LOG_FILE);
+		PrintStream out = System.out, err = System.err;
+		try {
+			Files.createDirectories(log.getParent());
+		} catch (IOException e) {
+			return "ERROR Cannot create " + request.getOutput() + ": " + e.getMessage();
+		}
+
+		long start = System.nanoTime();
+		try (PrintStream tee = new PrintStream(new Tee(new FileOutputStream(log.toFile()), err), true, "UTF-8")) {
+			System.setOut(tee);
+			System.setErr(tee);
+			try {
+				System.out.println("Request: " + request);
+				Path report = analyzer.run(request);
+				System.out.println("Analysis completed in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+				return "OK " + report.toAbsolutePath();
+			} catch (Exception e) {
+				System.err.println("Analysis of " + request.getInput() + " failed");
+				e.printStackTrace(System.err);
+				return "FAIL " + log.toAbsolutePath();
+			} finally {
+				System.setOut(out);
+				System.setErr(err);
+			}
+		} catch (IOException e) {
+			return "ERROR Cannot write " + log + ": " + e.getMessage();
+		}
+	}
+
+	/**
+	 * Runs a JUnit 4 test method through reflection, since JUnit is only on
+	 * the test classpath.
+	 */
+	private static String test(String name) {
+		int sep = name.indexOf('#');
+		if (sep < 0)
+			return "ERROR Expected test=<class>#<method>";
+		try {
+			Class<?> suite = Class.forName(name.substring(0, sep));
+			Class<?> requestClass = Class.forName("org.junit.runner.Request");
+			Object request = requestClass.getMethod("method", Class.class, String.class)
+					.invoke(null, suite, name.substring(sep + 1));
+			Class<?> core = Class.forName("org.junit.runner.JUnitCore");
+			Object result = core.getMethod("run", requestClass).invoke(core.getConstructor().newInstance(), request);
+			Method successful = result.getClass().getMethod("wasSuccessful");
+			if ((Boolean) successful.invoke(result))
+				return "OK " + name;
+			for (Object failure : (Iterable<?>) result.getClass().getMethod("getFailures").invoke(result))
+				System.err.println(failure.getClass().getMethod("getTrace").invoke(failure));
+			return "FAIL " + name;
+		} catch (ClassNotFoundException e) {
+			return "ERROR Class not found: " + e.getMessage();
+		} catch (ReflectiveOperationException e) {
+			System.err.println("Cannot run " + name);
+			e.printStackTrace(System.err);
+			return "ERROR Cannot run " + name;
+		}
+	}
+
+	private static Map<String, String> parse(String line) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String token : line.split("\\s+")) {
+			int eq = token.indexOf('=');
+			if (eq <= 0)
+				throw new IllegalArgumentException("Expected key=value, found '" + token + "'");
+			options.put(token.substring(0, eq), token.substring(eq + 1));
+		}
+		return options;
+	}
+
+	private static class Tee extends OutputStream {
+		private final OutputStream first, second;
+
+		private Tee(OutputStream first, OutputStream second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			first.write(b);
+			second.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			first.write(b, off, len);
+			second.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			first.flush();
+			second.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// the second stream is the original System.err
+			first.close();
+		}
+	}
+}
@@ -0,0 +1,446 @@
+package it.unive.scsr.analysis;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleDataflowDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.scsr.AvailableExpressions;
+import it.unive.scsr.CPropSolution;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.ParitySolution;
+import it.unive.scsr.Pentagons;
+import it.unive.scsr.ReachingDefinitions;
+import it.unive.scsr.Signs;
+import it.unive.scsr.Taint;
+import it.unive.scsr.TaintThreeLevels;
+import it.unive.scsr.UpperBounds;
+import it.unive.scsr.checkers.DivisionByZeroChecker;
+import it.unive.scsr.checkers.IndexedCheck;
+import it.unive.scsr.checkers.OverflowChecker;
+import it.unive.scsr.checkers.SarifReport;
+import it.unive.scsr.checkers.TaintChecker;
+import it.unive.scsr.checkers.TaintThreeLevelsChecker;
+
+/**
+ * A request for the analysis of an IMP program: the input file, the value
+ * domain, the checks to run, the target numerical types, the taint
+ * annotations, the output formats and directory. Requests are built from textual
+ * options, so that they can be received by the {@link AnalysisDaemon} or
+ * from the command line, and are run by an {@link Analyzer}.
+ */
+public class AnalysisRequest {
+
+	/**
+	 * The value domains that can be requested.
+	 */
+	public enum Domain {
+		INTERVALS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new Intervals()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		PENTAGONS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new Pentagons(), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		SIGNS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new Signs()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		PARITY {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new ParitySolution()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		UPPER_BOUNDS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new UpperBounds(true)), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		TAINT {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new Taint()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		TAINT_THREE_LEVELS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment<>(new TaintThreeLevels()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		CPROP {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new DefiniteDataflowDomain<>(new CPropSolution()), DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		REACHING_DEFINITIONS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new PossibleDataflowDomain<>(new ReachingDefinitions()),
+						DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		AVAILABLE_EXPRESSIONS {
+			@Override
+			public AbstractState<?> state() {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new DefiniteDataflowDomain<>(new AvailableExpressions()),
+						DefaultConfiguration.defaultTypeDomain());
+			}
+		};
+
+		/**
+		 * Builds the abstract state of an analysis using this domain.
+		 *
+		 * @return the abstract state
+		 */
+		public abstract AbstractState<?> state();
+	}
+
+	/**
+	 * The checks that can be requested, each with the domain it requires.
+	 */
+	public enum Checker {
+		OVERFLOW(Domain.INTERVALS) {
+			@Override
+			public IndexedCheck<?> create(Set<NumericalSize> sizes) {
+				return sizes.size() == 1 ? new OverflowChecker(sizes.iterator().next()) : new OverflowChecker(sizes);
+			}
+		},
+		DIVISION_BY_ZERO(Domain.INTERVALS) {
+			@Override
+			public IndexedCheck<?> create(Set<NumericalSize> sizes) {
+				// the precision warnings of floating point types are raised
+				// for the first target type only
+				return new DivisionByZeroChecker(sizes.iterator().next());
+			}
+		},
+		TAINT(Domain.TAINT) {
+			@Override
+			public IndexedCheck<?> create(Set<NumericalSize> sizes) {
+				return new TaintChecker();
+			}
+		},
+		TAINT_THREE_LEVELS(Domain.TAINT_THREE_LEVELS) {
+			@Override
+			public IndexedCheck<?> create(Set<NumericalSize> sizes) {
+				return new TaintThreeLevelsChecker();
+			}
+		};
+
+		private final Domain domain;
+
+		private Checker(Domain domain) {
+			this.domain = domain;
+		}
+
+		/**
+		 * Yields the domain this check requires.
+		 *
+		 * @return the domain
+		 */
+		public Domain getDomain() {
+			return domain;
+		}
+
+		/**
+		 * Builds a new instance of this check.
+		 *
+		 * @param sizes the target numerical types, not empty
+		 *
+		 * @return the check
+		 */
+		public abstract IndexedCheck<?> create(Set<NumericalSize> sizes);
+	}
+
+	/**
+	 * The formats in which the results of an analysis can be written.
+	 */
+	public enum Format {
+		/**
+		 * LiSA's {@code report.json}, with the warnings and the list of
+		 * generated files.
+		 */
+		JSON("report.json"),
+
+		/**
+		 * A {@link SarifReport} log of the warnings.
+		 */
+		SARIF(SarifReport.FILE_NAME),
+
+		/**
+		 * The {@link BinaryResults} of all the analyzed CFGs.
+		 */
+		BINARY(BinaryResults.FILE_NAME);
+
+		private final String fileName;
+
+		private Format(String fileName) {
+			this.fileName = fileName;
+		}
+
+		/**
+		 * Yields the name of the file written in the output directory.
+		 *
+		 * @return the name
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+	}
+
+	/**
+	 * The options accepted by {@link #fromOptions(Map)}, with their
+	 * descriptions.
+	 */
+	public static final Map<String, String> OPTIONS;
+
+	static {
+		Map<String, String> options = new LinkedHashMap<>();
+		options.put("input", "the IMP file to analyze (required)");
+		options.put("output", "the output directory (default: outputs/<input name>)");
+		options.put("domain", "the value domain, one of " + names(Domain.values()) + " (default: the one required by the checkers, or intervals)");
+		options.put("checkers", "comma-separated checkers among " + names(Checker.values()) + " (default: none)");
+		options.put("size", "comma-separated target numerical types among " + names(NumericalSize.values()) + " (default: int32)");
+		options.put("sources", "comma-separated names of source methods");
+		options.put("sanitizers", "comma-separated names of sanitizer methods");
+		options.put("sinks", "comma-separated names of methods whose parameters are sinks");
+		options.put("formats", "comma-separated output formats among " + names(Format.values()) + " (default: json)");
+		options.put("graphs", "the type of analysis graphs, one of " + names(GraphType.values()) + " (default: none)");
+		OPTIONS = Collections.unmodifiableMap(options);
+	}
+
+	private final String input;
+
+	private final String output;
+
+	private final Domain domain;
+
+	private final List<Checker> checkers;
+
+	private final Set<NumericalSize> sizes;
+
+	private final TaintAnnotations annotations;
+
+	private final Set<Format> formats;
+
+	private final GraphType graphs;
+
+	private AnalysisRequest(String input, String output, Domain domain, List<Checker> checkers,
+			Set<NumericalSize> sizes, TaintAnnotations annotations, Set<Format> formats, GraphType graphs) {
+		this.input = input;
+		this.output = output;
+		this.domain = domain;
+		this.checkers = checkers;
+		this.sizes = sizes;
+		this.annotations = annotations;
+		this.formats = formats;
+		this.graphs = graphs;
+	}
+
+	/**
+	 * Builds a request from the given options, whose keys are the ones of
+	 * {@link #OPTIONS}. Names of domains, checkers, numerical types and graph
+	 * types are case insensitive, and dashes can be used in place of
+	 * underscores.
+	 *
+	 * @param options the options
+	 *
+	 * @return the request
+	 *
+	 * @throws IllegalArgumentException if an option is unknown or invalid, or
+	 *                                      if the checkers require a domain
+	 *                                      other than the requested one
+	 */
+	public static AnalysisRequest fromOptions(Map<String, String> options) {
+		for (String key : options.keySet())
+			if (!OPTIONS.containsKey(key))
+				throw new IllegalArgumentException("Unknown option '" + key + "'");
+
+		String input = options.get("input");
+		if (input == null || input.isEmpty())
+			throw new IllegalArgumentException("Missing input file");
+
+		List<Checker> checkers = new ArrayList<>();
+		for (String name : list(options.get("checkers")))
+			checkers.add(parse(Checker.class, name));
+
+		Domain domain;
+		if (options.containsKey("domain"))
+			domain = parse(Domain.class, options.get("domain"));
+		else
+			domain = checkers.isEmpty() ? Domain.INTERVALS : checkers.get(0).getDomain();
+		for (Checker checker : checkers)
+			if (checker.getDomain() != domain)
+				throw new IllegalArgumentException("Checker " + name(checker) + " requires domain "
+						+ name(checker.getDomain()) + ", not " + name(domain));
+
+		Set<NumericalSize> sizes = EnumSet.noneOf(NumericalSize.class);
+		for (String name : list(options.get("size")))
+			sizes.add(parse(NumericalSize.class, name));
+		if (sizes.isEmpty())
+			sizes.add(NumericalSize.INT32);
+
+		TaintAnnotations annotations = new TaintAnnotations(list(options.get("sources")).toArray(new String[0]),
+				list(options.get("sanitizers")).toArray(new String[0]),
+				list(options.get("sinks")).toArray(new String[0]));
+
+		// in the requested order, the first one being the main report
+		Set<Format> formats = new LinkedHashSet<>();
+		for (String name : list(options.get("formats")))
+			formats.add(parse(Format.class, name));
+		if (formats.isEmpty())
+			formats.add(Format.JSON);
+
+		GraphType graphs = options.containsKey("graphs") ? parse(GraphType.class, options.get("graphs"))
+				: GraphType.NONE;
+
+		String output = options.get("output");
+		if (output == null || output.isEmpty()) {
+			String name = new File(input).getName();
+			output = "outputs/" + (name.endsWith(".imp") ? name.substring(0, name.length() - 4) : name);
+		}
+
+		return new AnalysisRequest(input, output, domain, Collections.unmodifiableList(checkers),
+				Collections.unmodifiableSet(sizes), annotations, Collections.unmodifiableSet(formats), graphs);
+	}
+
+	private static List<String> list(String value) {
+		List<String> result = new ArrayList<>();
+		if (value != null)
+			for (String item : value.split(","))
+				if (!item.trim().isEmpty())
+					result.add(item.trim());
+		return result;
+	}
+
+	private static <E extends Enum<E>> E parse(Class<E> type, String name) {
+		try {
+			return Enum.valueOf(type, name.trim().toUpperCase().replace('-', '_'));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+					"Unknown " + type.getSimpleName() + " '" + name + "', expected one of " + names(type.getEnumConstants()));
+		}
+	}
+
+	private static String name(Enum<?> constant) {
+		return constant.name().toLowerCase().replace('_', '-');
+	}
+
+	private static String names(Enum<?>[] constants) {
+		List<String> names = new ArrayList<>(constants.length);
+		for (Enum<?> constant : constants)
+			names.add(name(constant));
+		return String.join(", ", names);
+	}
+
+	/**
+	 * Yields the path of the IMP file to analyze.
+	 *
+	 * @return the path
+	 */
+	public String getInput() {
+		return input;
+	}
+
+	/**
+	 * Yields the output directory of the analysis.
+	 *
+	 * @return the directory
+	 */
+	public String getOutput() {
+		return output;
+	}
+
+	/**
+	 * Yields the value domain of the analysis.
+	 *
+	 * @return the domain
+	 */
+	public Domain getDomain() {
+		return domain;
+	}
+
+	/**
+	 * Yields the checks to run.
+	 *
+	 * @return the checks, possibly empty
+	 */
+	public List<Checker> getCheckers() {
+		return checkers;
+	}
+
+	/**
+	 * Yields the target numerical types of the numerical checks.
+	 *
+	 * @return the types, never empty
+	 */
+	public Set<NumericalSize> getSizes() {
+		return sizes;
+	}
+
+	/**
+	 * Yields the taint annotations to attach to the program.
+	 *
+	 * @return the annotations
+	 */
+	public TaintAnnotations getAnnotations() {
+		return annotations;
+	}
+
+	/**
+	 * Yields the formats in which results are written, in the order they have
+	 * been requested.
+	 *
+	 * @return the formats, never empty
+	 */
+	public Set<Format> getFormats() {
+		return formats;
+	}
+
+	/**
+	 * Yields the type of analysis graphs to dump.
+	 *
+	 * @return the type
+	 */
+	public GraphType getGraphs() {
+		return graphs;
+	}
+
+	@Override
+	public String toString() {
+		return "input=" + input + " output=" + output + " domain=" + name(domain) + " checkers=" + checkers
+				+ " size=" + sizes + " " + annotations + " formats=" + formats + " graphs=" + graphs;
+	}
+}
@@ -0,0 +1,121 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.checkers.SarifReport;
+
+/**
+ * Runs LiSA with the opt-in caching and instrumentation selected by system
+ * properties, so that harnesses and entry points do not need to wire them
+ * one by one. The instrumentation ({@link DomainStatistics},
+ * {@link ConvergenceTracker}, {@link FootprintStatistics} and
+ * {@link GraphRenderer}) observes a real run of the analysis, so it bypasses
+ * the {@link AnalysisCache}.
+ */
+public class AnalysisRunner {
+
+	private AnalysisRunner() {
+		// static utility
+	}
+
+	/**
+	 * Runs LiSA on the given program, going through the cache selected by the
+	 * {@value AnalysisCache#CACHE_PROPERTY} system property if it is set. If
+	 * the {@value DomainStatistics#STATS_PROPERTY},
+	 * {@value ConvergenceTracker#CONVERGENCE_PROPERTY} or
+	 * {@value FootprintStatistics#FOOTPRINT_PROPERTY} system properties are
+	 * set, the cache is bypassed and the analysis is instrumented with
+	 * {@link DomainStatistics}, {@link ConvergenceTracker} and
+	 * {@link FootprintStatistics} instead, and it is bypassed as well if the
+	 * {@value GraphRenderer#GRAPHS_PROPERTY} system property moves the
+	 * rendering of HTML graphs to a {@link GraphRenderer}. If the
+	 * {@value SarifReport#SARIF_PROPERTY} system property is set, warnings are
+	 * also streamed to a {@link SarifReport}.
+	 *
+	 * @param conf    the configuration of the analysis
+	 * @param program the program to analyze
+	 *
+	 * @return the report of the analysis, also when it has been restored from
+	 *             the cache, whether or not {@link LiSAConfiguration#jsonOutput}
+	 *             is set
+	 *
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public static JsonReport analyze(LiSAConfiguration conf, Program program) throws AnalysisException {
+		return analyze(conf, program, Boolean.getBoolean(SarifReport.SARIF_PROPERTY));
+	}
+
+	/**
+	 * Runs LiSA on the given program as
+	 * {@link #analyze(LiSAConfiguration, Program)} does, streaming warnings
+	 * to a {@link SarifReport} if requested. The report is added after all
+	 * the other checks, including the ones of the instrumentation, and its
+	 * log is completed even if the analysis fails.
+	 *
+	 * @param conf    the configuration of the analysis
+	 * @param program the program to analyze
+	 * @param sarif   whether warnings have to be streamed to a
+	 *                    {@link SarifReport}
+	 *
+	 * @return the report of the analysis
+	 *
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public static JsonReport analyze(LiSAConfiguration conf, Program program, boolean sarif) throws AnalysisException {
+		DomainStatistics stats = Boolean.getBoolean(DomainStatistics.STATS_PROPERTY) ? new DomainStatistics() : null;
+		ConvergenceTracker convergence = Boolean.getBoolean(ConvergenceTracker.CONVERGENCE_PROPERTY)
+				? new ConvergenceTracker()
+				: null;
+		FootprintStatistics footprint = Boolean.getBoolean(FootprintStatistics.FOOTPRINT_PROPERTY)
+				? new FootprintStatistics()
+				: null;
+		GraphRenderer renderer = GraphRenderer.fromSystemProperties();
+		if (renderer != null && !renderer.apply(conf))
+			// no HTML graphs requested
+			renderer = null;
+		boolean instrumented = stats != null || convergence != null || footprint != null || renderer != null;
+		if (footprint != null)
+			footprint.apply(conf);
+		if (convergence != null)
+			convergence.apply(conf);
+		if (stats != null)
+			stats.apply(conf);
+
+		SarifReport<?> report = sarif ? SarifReport.apply(conf) : null;
+		try {
+			if (instrumented) {
+				JsonReport result = new JsonReport(new LiSA(conf).run(program));
+				try {
+					if (renderer != null)
+						renderer.finish();
+				} catch (IOException e) {
+					System.err.println("Unable to render analysis graphs: " + e.getMessage());
+				}
+				try {
+					if (stats != null)
+						stats.dump(conf.workdir);
+					if (convergence != null)
+						convergence.dump(conf.workdir);
+					if (footprint != null)
+						footprint.dump(conf.workdir);
+				} catch (IOException e) {
+					System.err.println("Unable to dump analysis statistics: " + e.getMessage());
+				}
+				return result;
+			}
+
+			AnalysisCache cache = AnalysisCache.fromSystemProperties();
+			if (cache == null)
+				return new JsonReport(new LiSA(conf).run(program));
+			return cache.analyze(conf, program).getReport();
+		} finally {
+			if (report != null)
+				report.close();
+		}
+	}
+}
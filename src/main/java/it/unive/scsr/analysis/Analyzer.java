@@ -0,0 +1,128 @@
+package it.unive.scsr.analysis;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.analysis.AnalysisRequest.Checker;
+import it.unive.scsr.analysis.AnalysisRequest.Format;
+import it.unive.scsr.checkers.IndexedCheck;
+import it.unive.scsr.checkers.IndexedChecks;
+import it.unive.scsr.checkers.SarifReport;
+
+/**
+ * Runs {@link AnalysisRequest}s. Parsed programs are kept in a
+ * {@link ProgramCache} shared by all the requests run by the same analyzer,
+ * and analyses go through {@link AnalysisRunner#analyze(LiSAConfiguration, Program)},
+ * so that the opt-in caches and instrumentations selected by system
+ * properties apply. Since an analyzer may serve requests for a long time, the
+ * number of programs it keeps is bounded by {@value #PROGRAMS_PROPERTY}.
+ */
+public class Analyzer {
+
+	/**
+	 * The name of the system property with the maximum number of parsed
+	 * programs kept by an analyzer, {@value #DEFAULT_PROGRAMS} by default.
+	 */
+	public static final String PROGRAMS_PROPERTY = "scsr.cachedPrograms";
+
+	/**
+	 * The default maximum number of parsed programs kept by an analyzer.
+	 */
+	public static final int DEFAULT_PROGRAMS = 32;
+
+	private final ProgramCache programs;
+
+	/**
+	 * Builds an analyzer keeping at most the number of programs given by
+	 * {@value #PROGRAMS_PROPERTY}.
+	 */
+	public Analyzer() {
+		this(Integer.getInteger(PROGRAMS_PROPERTY, DEFAULT_PROGRAMS));
+	}
+
+	/**
+	 * Builds an analyzer keeping at most the given number of programs.
+	 *
+	 * @param capacity the maximum number of programs, or a non-positive
+	 *                     value for no bound
+	 */
+	public Analyzer(int capacity) {
+		this.programs = new ProgramCache(capacity);
+	}
+
+	/**
+	 * Builds the configuration of the given request. The analysis is
+	 * interprocedural and context sensitive, as in the test suites, and the
+	 * semantic checks writing the requested formats follow the requested
+	 * ones, except for the SARIF log, that {@link #run(AnalysisRequest)} adds
+	 * after all the others.
+	 *
+	 * @param request the request
+	 *
+	 * @return the configuration
+	 */
+	public static LiSAConfiguration configure(AnalysisRequest request) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = request.getOutput();
+		conf.jsonOutput = request.getFormats().contains(Format.JSON);
+		conf.analysisGraphs = request.getGraphs();
+		conf.abstractState = request.getDomain().state();
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+
+		List<Checker> checkers = request.getCheckers();
+		if (checkers.size() == 1)
+			conf.semanticChecks.add(checkers.get(0).create(request.getSizes()));
+		else if (!checkers.isEmpty()) {
+			// several checks visit each CFG once
+			IndexedCheck<?>[] checks = new IndexedCheck<?>[checkers.size()];
+			for (int i = 0; i < checks.length; i++)
+				checks[i] = checkers.get(i).create(request.getSizes());
+			conf.semanticChecks.add(IndexedChecks.of(checks));
+		}
+
+		if (request.getFormats().contains(Format.BINARY))
+			BinaryResults.apply(conf);
+		// the SARIF log has to be the last check: it is added when running
+		return conf;
+	}
+
+	/**
+	 * Runs the given request.
+	 *
+	 * @param request the request
+	 *
+	 * @return the path of the report of the analysis, in the first of the
+	 *             requested formats
+	 *
+	 * @throws ParsingException  if the input cannot be parsed
+	 * @throws AnalysisException if the analysis fails
+	 */
+	public Path run(AnalysisRequest request) throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = configure(request);
+		Program program = programs.get(request.getInput(), request.getAnnotations());
+		try {
+			AnalysisRunner.analyze(conf, program,
+					request.getFormats().contains(Format.SARIF) || Boolean.getBoolean(SarifReport.SARIF_PROPERTY));
+		} finally {
+			programs.release(program);
+		}
+		return Paths.get(conf.workdir, request.getFormats().iterator().next().getFileName());
+	}
+
+	/**
+	 * Yields the cache of the programs parsed by this analyzer.
+	 *
+	 * @return the cache
+	 */
+	public ProgramCache getPrograms() {
+		return programs;
+	}
+}
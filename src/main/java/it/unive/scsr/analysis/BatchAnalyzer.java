@@ -0,0 +1,508 @@
+package it.unive.scsr.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+
+/**
+ * Analyzes all the IMP programs of a directory concurrently, on a bounded
+ * pool of threads. Each file is parsed and analyzed with its own
+ * configuration, built by a setup function invoked once per file (so that
+ * checks and domains are never shared among analyses), and writes its
+ * outputs in its own working directory. Files are analyzed through
+ * {@link AnalysisRunner}, so the opt-in cache and instrumentation apply to
+ * them too, and their warnings are taken from the report returned by the
+ * analysis. The time limit of a file starts when
+ * a thread picks it up: files exceeding it are reported as timed out, and
+ * their thread is interrupted and replaced, so that the other files proceed
+ * even if the analysis does not react to the interruption (see
+ * {@link TimeLimitedExecutor}). A summary of all files is dumped to
+ * {@value #FILE_NAME} in the output directory.<br>
+ * <br>
+ * Since the heap is shared among concurrent analyses, the heap peak of a file
+ * is the highest heap usage observed while it was being analyzed, sampled
+ * every {@value #SAMPLING_MILLIS} milliseconds; the bytes allocated by the
+ * thread analyzing the file are reported as well, when the JVM supports it.<br>
+ * <br>
+ * When deduplication is enabled, all files are parsed first, and files whose
+ * programs have the same canonical form (see {@link ProgramCanonicalizer})
+ * are analyzed once: the first of them, in file name order, is analyzed, and
+ * its findings are reported for the others too, marked as duplicates of it.
+ * The messages of the findings are translated through
+ * {@link ProgramCanonicalizer#translation(Program, Program)}, so that they
+ * name the locations and the variables of each duplicate.
+ */
+public class BatchAnalyzer {
+
+	/**
+	 * The name of the file where the summary is dumped.
+	 */
+	public static final String FILE_NAME = "summary.json";
+
+	/**
+	 * The system property setting the number of threads of
+	 * {@link #fromSystemProperties()}.
+	 */
+	public static final String THREADS_PROPERTY = "scsr.batchThreads";
+
+	/**
+	 * The system property setting the per-file time limit, in seconds, of
+	 * {@link #fromSystemProperties()}.
+	 */
+	public static final String TIMEOUT_PROPERTY = "scsr.batchTimeout";
+
+	/**
+	 * The system property enabling the deduplication of
+	 * {@link #fromSystemProperties()}.
+	 */
+	public static final String DEDUPE_PROPERTY = "scsr.batchDedupe";
+
+	private static final long SAMPLING_MILLIS = 50;
+
+	private final int threads;
+
+	private final long timeoutMillis;
+
+	private final boolean dedupe;
+
+	/**
+	 * The outcome of the analysis of a file.
+	 */
+	public enum Status {
+		COMPLETED, TIMEOUT, FAILED
+	}
+
+	/**
+	 * Builds the analyzer.
+	 *
+	 * @param threads       the number of files analyzed at the same time
+	 * @param timeoutMillis the time limit of each file, in milliseconds, or a
+	 *                          non-positive value for no limit
+	 */
+	public BatchAnalyzer(int threads, long timeoutMillis) {
+		this(threads, timeoutMillis, false);
+	}
+
+	/**
+	 * Builds the analyzer.
+	 *
+	 * @param threads       the number of files analyzed at the same time
+	 * @param timeoutMillis the time limit of each file, in milliseconds, or a
+	 *                          non-positive value for no limit
+	 * @param dedupe        whether files with the same canonical program are
+	 *                          analyzed once
+	 */
+	public BatchAnalyzer(int threads, long timeoutMillis, boolean dedupe) {
+		this.threads = Math.max(1, threads);
+		this.timeoutMillis = timeoutMillis;
+		this.dedupe = dedupe;
+	}
+
+	/**
+	 * Builds an analyzer using the number of threads given by the
+	 * {@value #THREADS_PROPERTY} system property (defaulting to the number of
+	 * available processors) and the time limit given by the
+	 * {@value #TIMEOUT_PROPERTY} system property (defaulting to no limit),
+	 * deduplicating files if the {@value #DEDUPE_PROPERTY} system property is
+	 * set.
+	 *
+	 * @return the analyzer
+	 */
+	public static BatchAnalyzer fromSystemProperties() {
+		int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+		long timeout = Long.getLong(TIMEOUT_PROPERTY, 0L);
+		return new BatchAnalyzer(threads, timeout * 1000, Boolean.getBoolean(DEDUPE_PROPERTY));
+	}
+
+	/**
+	 * Analyzes all the {@code .imp} files of the given directory. The working
+	 * directory of each file is a sub-directory of the output one, named
+	 * after the file. The setup function receives a fresh
+	 * {@link DefaultConfiguration} whose working directory is already set,
+	 * and JSON output is always enabled since findings are read from the
+	 * report.
+	 *
+	 * @param directory the directory containing the programs
+	 * @param output    the output directory
+	 * @param setup     the function configuring the analysis of each file
+	 *
+	 * @return the results of each file, sorted by file name
+	 *
+	 * @throws IOException if the summary cannot be written
+	 */
+	public List<FileResult> run(File directory, Path output, Consumer<LiSAConfiguration> setup)
+			throws IOException {
+		File[] files = directory.listFiles((d, name) -> name.endsWith(".imp"));
+		if (files == null || files.length == 0)
+			return new ArrayList<>();
+		Arrays.sort(files);
+
+		TimeLimitedExecutor pool = new TimeLimitedExecutor(Math.min(threads, files.length), timeoutMillis,
+				"batch-analyzer");
+		ScheduledExecutorService sampling = Executors
+				.newSingleThreadScheduledExecutor(TimeLimitedExecutor.daemon("batch-sampler"));
+		Set<AtomicLong> running = ConcurrentHashMap.newKeySet();
+		ScheduledFuture<?> sampler = sampling.scheduleAtFixedRate(() -> {
+			long used = usedHeap();
+			for (AtomicLong peak : running)
+				peak.accumulateAndGet(used, Math::max);
+		}, 0, SAMPLING_MILLIS, TimeUnit.MILLISECONDS);
+
+		long start = System.currentTimeMillis();
+		List<FileTask> tasks = new ArrayList<>(files.length);
+		try {
+			Map<File, Program> programs = new HashMap<>();
+			Map<File, File> duplicates = new HashMap<>();
+			Map<File, UnaryOperator<String>> translations = new HashMap<>();
+			if (dedupe)
+				deduplicate(files, Math.min(threads, files.length), programs, duplicates, translations);
+
+			for (File file : files) {
+				if (duplicates.containsKey(file))
+					continue;
+				FileTask task = new FileTask(file, programs.get(file),
+						output.resolve(file.getName().replace(".imp", "")), setup, running);
+				tasks.add(task);
+				// blocks until a thread is free, and starts the time limit
+				task.submit(pool);
+			}
+
+			Map<File, FileResult> analyzed = new HashMap<>();
+			for (FileTask task : tasks)
+				analyzed.put(task.file, task.await());
+			List<FileResult> results = new ArrayList<>(files.length);
+			for (File file : files)
+				if (duplicates.containsKey(file))
+					results.add(analyzed.get(duplicates.get(file)).duplicate(file, translations.get(file)));
+				else
+					results.add(analyzed.get(file));
+			dump(output, results, System.currentTimeMillis() - start);
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while analyzing " + directory, e);
+		} finally {
+			sampler.cancel(false);
+			pool.close();
+			sampling.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses the given files on the given number of threads, keeping the
+	 * programs of the files to analyze and mapping each duplicate to the first
+	 * file with the same canonical program, and to the translation of the
+	 * warnings of the latter. Files that cannot be parsed are analyzed, so
+	 * that their failure is reported.
+	 */
+	private static void deduplicate(File[] files, int threads, Map<File, Program> programs,
+			Map<File, File> duplicates, Map<File, UnaryOperator<String>> translations) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, TimeLimitedExecutor.daemon("batch-parser"));
+		List<Future<Program>> parsed = new ArrayList<>(files.length);
+		for (File file : files)
+			parsed.add(pool.submit(() -> IMPFrontend.processFile(file.getAbsolutePath())));
+
+		Map<String, File> representatives = new HashMap<>();
+		try {
+			for (int i = 0; i < files.length; i++)
+				try {
+					Program program = parsed.get(i).get();
+					File representative = representatives.putIfAbsent(ProgramCanonicalizer.hash(program), files[i]);
+					if (representative == null)
+						programs.put(files[i], program);
+					else {
+						duplicates.put(files[i], representative);
+						// before the representative is analyzed
+						translations.put(files[i],
+								ProgramCanonicalizer.translation(programs.get(representative), program));
+					}
+				} catch (ExecutionException e) {
+					// parsed again, and reported, by the analysis
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while parsing " + files[i], e);
+				}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (!duplicates.isEmpty())
+			System.out.println("Deduplication: " + (files.length - duplicates.size()) + " distinct programs out of "
+					+ files.length + " files");
+	}
+
+	private static long usedHeap() {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		return heap.getUsed();
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled())
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private void dump(Path output, List<FileResult> results, long wallMillis) throws IOException {
+		Files.createDirectories(output);
+		int completed = 0, timeouts = 0, failures = 0, warnings = 0, duplicates = 0;
+		List<String> entries = new ArrayList<>(results.size());
+		for (FileResult result : results) {
+			switch (result.getStatus()) {
+			case COMPLETED:
+				completed++;
+				break;
+			case TIMEOUT:
+				timeouts++;
+				break;
+			default:
+				failures++;
+			}
+			warnings += result.getWarnings().size();
+			if (result.getDuplicateOf() != null)
+				duplicates++;
+			entries.add("    " + result.toJson());
+		}
+
+		try (Writer writer = Files.newBufferedWriter(output.resolve(FILE_NAME))) {
+			writer.write("{\n  \"threads\" : " + threads + ", \"timeoutMillis\" : " + timeoutMillis
+					+ ", \"wallMillis\" : " + wallMillis + ",\n");
+			writer.write("  \"files\" : " + results.size() + ", \"completed\" : " + completed + ", \"timeouts\" : "
+					+ timeouts + ", \"failures\" : " + failures + ", \"warnings\" : " + warnings
+					+ ", \"duplicates\" : " + duplicates + ",\n");
+			writer.write("  \"results\" : [\n" + String.join(",\n", entries) + "\n  ]\n}\n");
+		}
+	}
+
+	/**
+	 * The analysis of a single file, cancelled if it exceeds the time limit.
+	 */
+	private class FileTask {
+		private final File file;
+		private final Program parsed;
+		private final Path workdir;
+		private final Consumer<LiSAConfiguration> setup;
+		private final Set<AtomicLong> running;
+		private final AtomicLong peak = new AtomicLong();
+		private TimeLimitedExecutor.Task<FileResult> future;
+
+		private FileTask(File file, Program parsed, Path workdir, Consumer<LiSAConfiguration> setup,
+				Set<AtomicLong> running) {
+			this.file = file;
+			this.parsed = parsed;
+			this.workdir = workdir;
+			this.setup = setup;
+			this.running = running;
+		}
+
+		private void submit(TimeLimitedExecutor pool) throws InterruptedException {
+			future = pool.submit(this::analyze);
+		}
+
+		private FileResult analyze() throws Exception {
+			peak.set(usedHeap());
+			running.add(peak);
+			long allocated = allocatedBytes();
+			try {
+				Program program = parsed != null ? parsed : IMPFrontend.processFile(file.getAbsolutePath());
+
+				LiSAConfiguration conf = new DefaultConfiguration();
+				conf.workdir = workdir.toString();
+				setup.accept(conf);
+
+				JsonReport report = AnalysisRunner.analyze(conf, program);
+				List<String> warnings = new ArrayList<>();
+				report.getWarnings().forEach(w -> warnings.add(w.getMessage()));
+
+				long end = allocatedBytes();
+				return new FileResult(file, Status.COMPLETED, warnings, elapsed(), peak.get(),
+						allocated < 0 || end < 0 ? -1 : end - allocated, null);
+			} finally {
+				running.remove(peak);
+			}
+		}
+
+		private long elapsed() {
+			return future.elapsed();
+		}
+
+		private FileResult await() {
+			try {
+				return future.await();
+			} catch (TimeoutException e) {
+				// the thread may never get to remove it
+				running.remove(peak);
+				return new FileResult(file, Status.TIMEOUT, new ArrayList<>(), elapsed(), peak.get(), -1,
+						"Time limit of " + timeoutMillis + "ms exceeded");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause() == null ? e : e.getCause();
+				System.err.println("Cannot analyze " + file);
+				cause.printStackTrace(System.err);
+				return new FileResult(file, Status.FAILED, new ArrayList<>(), elapsed(), peak.get(), -1,
+						cause.toString());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * The result of the analysis of a single file.
+	 */
+	public static class FileResult {
+		private final File file;
+		private final Status status;
+		private final List<String> warnings;
+		private final long millis;
+		private final long peakHeapBytes;
+		private final long allocatedBytes;
+		private final String error;
+		private final File duplicateOf;
+
+		private FileResult(File file, Status status, List<String> warnings, long millis, long peakHeapBytes,
+				long allocatedBytes, String error) {
+			this(file, status, warnings, millis, peakHeapBytes, allocatedBytes, error, null);
+		}
+
+		private FileResult(File file, Status status, List<String> warnings, long millis, long peakHeapBytes,
+				long allocatedBytes, String error, File duplicateOf) {
+			this.file = file;
+			this.status = status;
+			this.warnings = warnings;
+			this.millis = millis;
+			this.peakHeapBytes = peakHeapBytes;
+			this.allocatedBytes = allocatedBytes;
+			this.error = error;
+			this.duplicateOf = duplicateOf;
+		}
+
+		private FileResult duplicate(File file, UnaryOperator<String> translation) {
+			List<String> translated = new ArrayList<>(warnings.size());
+			for (String warning : warnings)
+				translated.add(translation.apply(warning));
+			return new FileResult(file, status, translated, 0, 0, 0, error, this.file);
+		}
+
+		/**
+		 * Yields the analyzed file.
+		 *
+		 * @return the file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * Yields the outcome of the analysis.
+		 *
+		 * @return the outcome
+		 */
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * Yields the messages of the warnings raised by the analysis.
+		 *
+		 * @return the messages, empty if the analysis did not complete
+		 */
+		public List<String> getWarnings() {
+			return warnings;
+		}
+
+		/**
+		 * Yields the time spent parsing and analyzing the file.
+		 *
+		 * @return the time, in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * Yields the highest heap usage observed while analyzing the file.
+		 *
+		 * @return the heap usage, in bytes
+		 */
+		public long getPeakHeapBytes() {
+			return peakHeapBytes;
+		}
+
+		/**
+		 * Yields the bytes allocated by the thread analyzing the file.
+		 *
+		 * @return the allocated bytes, or {@code -1} if unknown
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		/**
+		 * Yields the reason why the analysis did not complete.
+		 *
+		 * @return the reason, or {@code null} if the analysis completed
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * Yields the file whose analysis was reused for this one, since they
+		 * contain the same canonical program.
+		 *
+		 * @return the file, or {@code null} if this file was analyzed
+		 */
+		public File getDuplicateOf() {
+			return duplicateOf;
+		}
+
+		@Override
+		public String toString() {
+			if (duplicateOf != null)
+				return file.getName() + ": " + status + ", " + warnings.size() + " warnings, duplicate of "
+						+ duplicateOf.getName();
+			return file.getName() + ": " + status + ", " + warnings.size() + " warnings, " + millis + "ms, peak heap "
+					+ (peakHeapBytes >> 20) + "MB" + (error == null ? "" : " (" + error + ")");
+		}
+
+		private String toJson() {
+			return "{ \"file\" : " + Json.quote(file.getPath()) + ", \"status\" : \"" + status
+					+ "\", \"warnings\" : " + warnings.size() + ", \"millis\" : " + millis
+					+ ", \"peakHeapBytes\" : " + peakHeapBytes + ", \"allocatedBytes\" : " + allocatedBytes
+					+ (error == null ? "" : ", \"error\" : " + Json.quote(error))
+					+ (duplicateOf == null ? "" : ", \"duplicateOf\" : " + Json.quote(duplicateOf.getPath())) + " }";
+		}
+	}
+}
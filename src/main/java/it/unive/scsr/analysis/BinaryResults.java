@@ -0,0 +1,296 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A binary alternative to the per-CFG JSON files written by LiSA when
+ * {@link LiSAConfiguration#serializeResults} is set. The results of all CFGs,
+ * in all contexts, are written to a single {@value #FILE_NAME} file in the
+ * working directory of the analysis, holding the same
+ * {@link SerializableGraph}s LiSA would dump to JSON, each with the name of
+ * the file LiSA would dump it to.<br>
+ * <br>
+ * Strings (node texts, identifiers, locations, property names and values)
+ * are stored once in a string table built while writing, and referred to by
+ * index afterwards: this is the case of most abstract values, such as taint
+ * levels or signs. Abstract values that are plain integers are stored as
+ * zig-zag varints, intervals with integer or infinite bounds as a flag byte
+ * followed by their finite bounds, and all counts and ids as varints. Graphs
+ * can be read back with a {@link BinaryResultsReader}, and converted to the
+ * JSON files LiSA would have written with {@link #toJson(Path, Path)} for
+ * golden comparisons.
+ */
+public class BinaryResults {
+
+	/**
+	 * The name of the file where results are written.
+	 */
+	public static final String FILE_NAME = "results.lisab";
+
+	static final int MAGIC = 0x4C534142;
+
+	static final int VERSION = 2;
+
+	static final int END = 0;
+
+	static final int GRAPH = 1;
+
+	static final int STRING = 0;
+
+	static final int INTEGER = 1;
+
+	static final int ARRAY = 2;
+
+	static final int OBJECT = 3;
+
+	static final int INTERVAL = 4;
+
+	static final int LOW_INFINITE = 1;
+
+	static final int HIGH_INFINITE = 2;
+
+	static final int SPACED = 4;
+
+	/**
+	 * Makes the given configuration write its results in binary form: LiSA's
+	 * JSON serialization of results is disabled, and a semantic check writing
+	 * {@value #FILE_NAME} is added.
+	 *
+	 * @param conf the configuration to modify
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void apply(LiSAConfiguration conf) {
+		conf.serializeResults = false;
+		conf.semanticChecks.add(new ResultsCheck());
+	}
+
+	/**
+	 * Reads all the graphs in the given file.
+	 *
+	 * @param file the file
+	 *
+	 * @return the graphs, in the order they have been written
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<SerializableGraph> read(Path file) throws IOException {
+		List<SerializableGraph> graphs = new ArrayList<>();
+		try (BinaryResultsReader reader = new BinaryResultsReader(file)) {
+			SerializableGraph graph;
+			while ((graph = reader.next()) != null)
+				graphs.add(graph);
+		}
+		return graphs;
+	}
+
+	/**
+	 * Reads all the graphs in the given file, together with the names of the
+	 * JSON files LiSA would have written them to.
+	 *
+	 * @param file the file
+	 *
+	 * @return the graphs, by file name, in the order they have been written
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Map<String, SerializableGraph> readFiles(Path file) throws IOException {
+		Map<String, SerializableGraph> graphs = new LinkedHashMap<>();
+		try (BinaryResultsReader reader = new BinaryResultsReader(file)) {
+			SerializableGraph graph;
+			while ((graph = reader.next()) != null)
+				graphs.put(reader.getFileName(), graph);
+		}
+		return graphs;
+	}
+
+	/**
+	 * Converts the given file to one JSON file per graph, named as LiSA names
+	 * the serialized results.
+	 *
+	 * @param file      the binary results file
+	 * @param directory the directory where JSON files are written
+	 *
+	 * @return the written files
+	 *
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static List<Path> toJson(Path file, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		List<Path> files = new ArrayList<>();
+		try (BinaryResultsReader reader = new BinaryResultsReader(file)) {
+			SerializableGraph graph;
+			while ((graph = reader.next()) != null) {
+				Path json = directory.resolve(reader.getFileName());
+				try (Writer writer = Files.newBufferedWriter(json)) {
+					graph.dump(writer);
+				}
+				files.add(json);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Yields the name, without extension, of the files where LiSA dumps the
+	 * given result: the signature of the CFG, followed by the hash of the
+	 * context if it is not the starting one.
+	 */
+	static String fileName(AnalyzedCFG<?> result) {
+		String name = result.getDescriptor().getFullSignatureWithParNames();
+		if (!result.getId().isStartingId())
+			name += "_" + result.getId().hashCode();
+		return fileName(name);
+	}
+
+	static String fileName(String graphName) {
+		return graphName.replace("::", ".").replaceAll("[^\\w.(),-]", "_");
+	}
+
+	static Long asInteger(String s) {
+		if (s == null || s.isEmpty() || s.length() > 20)
+			return null;
+		try {
+			long value = Long.parseLong(s);
+			// only canonical representations are encoded as integers, so that
+			// the string read back is the same
+			return Long.toString(value).equals(s) ? value : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses an interval rendered as {@code [low, high]} or {@code [low,high]},
+	 * whose bounds are canonical integers, {@code -Inf} or {@code +Inf}.
+	 *
+	 * @return the flags and the two bounds, or {@code null} if the string is
+	 *             not such an interval
+	 */
+	static long[] asInterval(String s) {
+		if (s == null || s.length() < 5 || s.charAt(0) != '[' || s.charAt(s.length() - 1) != ']')
+			return null;
+		int comma = s.indexOf(',');
+		if (comma < 0)
+			return null;
+		boolean spaced = comma + 1 < s.length() && s.charAt(comma + 1) == ' ';
+		String low = s.substring(1, comma);
+		String high = s.substring(spaced ? comma + 2 : comma + 1, s.length() - 1);
+
+		long flags = spaced ? SPACED : 0;
+		long[] result = new long[3];
+		if (low.equals("-Inf"))
+			flags |= LOW_INFINITE;
+		else {
+			Long value = asInteger(low);
+			if (value == null)
+				return null;
+			result[1] = value;
+		}
+		if (high.equals("+Inf"))
+			flags |= HIGH_INFINITE;
+		else {
+			Long value = asInteger(high);
+			if (value == null)
+				return null;
+			result[2] = value;
+		}
+		result[0] = flags;
+		// only representations that are rendered back the same are encoded
+		return interval((int) flags, result[1], result[2]).equals(s) ? result : null;
+	}
+
+	static String interval(int flags, long low, long high) {
+		return "[" + ((flags & LOW_INFINITE) != 0 ? "-Inf" : String.valueOf(low))
+				+ ((flags & SPACED) != 0 ? ", " : ",")
+				+ ((flags & HIGH_INFINITE) != 0 ? "+Inf" : String.valueOf(high)) + "]";
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes the results of each CFG, in each context, as it is visited.
+	 */
+	private static class ResultsCheck<A extends AbstractState<A>>
+			implements SemanticCheck<A>, AnalysisCache.OutputCheck {
+
+		private BinaryResultsWriter writer;
+
+		private final List<String> outputs = new ArrayList<>();
+
+		@Override
+		public Collection<String> getOutputFiles() {
+			return outputs;
+		}
+
+		@Override
+		public void beforeExecution(CheckToolWithAnalysisResults<A> tool) {
+			outputs.clear();
+			try {
+				writer = new BinaryResultsWriter(Paths.get(tool.getConfiguration().workdir, FILE_NAME));
+				outputs.add(FILE_NAME);
+			} catch (IOException e) {
+				System.err.println("Cannot create " + FILE_NAME);
+				e.printStackTrace(System.err);
+			}
+		}
+
+		@Override
+		public void afterExecution(CheckToolWithAnalysisResults<A> tool) {
+			if (writer == null)
+				return;
+			try {
+				writer.close();
+			} catch (IOException e) {
+				System.err.println("Cannot complete " + FILE_NAME);
+				e.printStackTrace(System.err);
+			}
+			writer = null;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+			if (writer == null)
+				return false;
+			try {
+				for (AnalyzedCFG<A> result : tool.getResultOf(graph))
+					writer.write(result.toSerializableGraph(
+							(g, st) -> result.getAnalysisStateAfter(st).representation().toSerializableValue()),
+							fileName(result) + ".json");
+			} catch (IOException e) {
+				System.err.println("Cannot write the results of " + graph);
+				e.printStackTrace(System.err);
+			}
+			// no need to visit the statements
+			return false;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package it.unive.scsr.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import it.unive.lisa.outputs.serializableGraph.SerializableArray;
+import it.unive.lisa.outputs.serializableGraph.SerializableEdge;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.lisa.outputs.serializableGraph.SerializableNode;
+import it.unive.lisa.outputs.serializableGraph.SerializableNodeDescription;
+import it.unive.lisa.outputs.serializableGraph.SerializableObject;
+import it.unive.lisa.outputs.serializableGraph.SerializableString;
+import it.unive.lisa.outputs.serializableGraph.SerializableValue;
+
+/**
+ * Reads the {@link SerializableGraph}s written by a
+ * {@link BinaryResultsWriter}, one at a time.
+ */
+public class BinaryResultsReader implements Closeable {
+
+	private final DataInputStream in;
+
+	private final List<String> strings = new ArrayList<>();
+
+	private boolean ended;
+
+	private String file;
+
+	/**
+	 * Builds the reader, opening the given file and checking its header.
+	 *
+	 * @param file the file to read
+	 *
+	 * @throws IOException if the file cannot be opened or it is not a binary
+	 *                         results file
+	 */
+	public BinaryResultsReader(Path file) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		if (in.readInt() != BinaryResults.MAGIC) {
+			in.close();
+			throw new IOException(file + " is not a binary results file");
+		}
+		int version = in.readUnsignedByte();
+		if (version != BinaryResults.VERSION) {
+			in.close();
+			throw new IOException("Unsupported version " + version + " of binary results file " + file);
+		}
+	}
+
+	/**
+	 * Reads the next graph.
+	 *
+	 * @return the graph, or {@code null} if all graphs have been read
+	 *
+	 * @throws IOException if the file cannot be read or it is malformed
+	 */
+	public SerializableGraph next() throws IOException {
+		if (ended)
+			return null;
+		int tag = in.readUnsignedByte();
+		if (tag == BinaryResults.END) {
+			ended = true;
+			return null;
+		}
+		if (tag != BinaryResults.GRAPH)
+			throw new IOException("Unexpected tag " + tag);
+
+		file = readNullableString();
+		String name = readNullableString();
+		String description = readNullableString();
+
+		SortedSet<SerializableNode> nodes = new TreeSet<>();
+		for (int i = readVarint(); i > 0; i--) {
+			int id = readVarint();
+			int size = readVarint();
+			List<Integer> subNodes = null;
+			if (size > 0) {
+				subNodes = new ArrayList<>(size - 1);
+				for (int j = 1; j < size; j++)
+					subNodes.add(readVarint());
+			}
+			nodes.add(new SerializableNode(id, subNodes, readNullableString()));
+		}
+
+		SortedSet<SerializableEdge> edges = new TreeSet<>();
+		for (int i = readVarint(); i > 0; i--)
+			edges.add(new SerializableEdge(readVarint(), readVarint(), readNullableString()));
+
+		SortedSet<SerializableNodeDescription> descriptions = new TreeSet<>();
+		for (int i = readVarint(); i > 0; i--) {
+			int nodeId = readVarint();
+			descriptions.add(new SerializableNodeDescription(nodeId, readValue()));
+		}
+
+		return new SerializableGraph(name, description, nodes, edges, descriptions);
+	}
+
+	/**
+	 * Yields the name of the JSON file LiSA would have dumped the graph last
+	 * returned by {@link #next()} to.
+	 *
+	 * @return the name of the file, or {@code null} if no graph has been read
+	 */
+	public String getFileName() {
+		return file;
+	}
+
+	private SerializableValue readValue() throws IOException {
+		int tag = in.readUnsignedByte();
+		SortedMap<String, String> properties = new TreeMap<>();
+		for (int i = readVarint(); i > 0; i--)
+			properties.put(readNullableString(), readNullableString());
+
+		switch (tag) {
+		case BinaryResults.STRING:
+			return new SerializableString(properties, readNullableString());
+		case BinaryResults.INTEGER:
+			return new SerializableString(properties, String.valueOf(BinaryResults.unzigzag(readVarlong())));
+		case BinaryResults.INTERVAL:
+			int flags = in.readUnsignedByte();
+			long low = (flags & BinaryResults.LOW_INFINITE) == 0 ? BinaryResults.unzigzag(readVarlong()) : 0;
+			long high = (flags & BinaryResults.HIGH_INFINITE) == 0 ? BinaryResults.unzigzag(readVarlong()) : 0;
+			return new SerializableString(properties, BinaryResults.interval(flags, low, high));
+		case BinaryResults.ARRAY:
+			int size = readVarint();
+			List<SerializableValue> elements = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				elements.add(readValue());
+			return new SerializableArray(properties, elements);
+		case BinaryResults.OBJECT:
+			SortedMap<String, SerializableValue> fields = new TreeMap<>();
+			for (int i = readVarint(); i > 0; i--) {
+				String key = readNullableString();
+				fields.put(key, readValue());
+			}
+			return new SerializableObject(properties, fields);
+		default:
+			throw new IOException("Unexpected value tag " + tag);
+		}
+	}
+
+	private String readNullableString() throws IOException {
+		int ref = readVarint();
+		if (ref == 0)
+			return null;
+		int index = ref - 1;
+		if (index < strings.size())
+			return strings.get(index);
+		if (index != strings.size())
+			throw new IOException("Invalid string reference " + index);
+		byte[] bytes = new byte[readVarint()];
+		in.readFully(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(s);
+		return s;
+	}
+
+	private int readVarint() throws IOException {
+		return (int) readVarlong();
+	}
+
+	private long readVarlong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
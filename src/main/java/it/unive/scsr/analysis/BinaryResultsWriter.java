@@ -0,0 +1,181 @@
+package it.unive.scsr.analysis;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.outputs.serializableGraph.SerializableArray;
+import it.unive.lisa.outputs.serializableGraph.SerializableEdge;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.lisa.outputs.serializableGraph.SerializableNode;
+import it.unive.lisa.outputs.serializableGraph.SerializableNodeDescription;
+import it.unive.lisa.outputs.serializableGraph.SerializableObject;
+import it.unive.lisa.outputs.serializableGraph.SerializableString;
+import it.unive.lisa.outputs.serializableGraph.SerializableValue;
+
+/**
+ * Writes {@link SerializableGraph}s in the format described by
+ * {@link BinaryResults}. Graphs are written as they are given, and the string
+ * table is built along the way: each string is written in full the first time
+ * it is met, and by its index afterwards.
+ */
+public class BinaryResultsWriter implements Closeable {
+
+	private final DataOutputStream out;
+
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	/**
+	 * Builds the writer, creating the given file and writing its header.
+	 *
+	 * @param file the file to write
+	 *
+	 * @throws IOException if the file cannot be created
+	 */
+	public BinaryResultsWriter(Path file) throws IOException {
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+		out.writeInt(BinaryResults.MAGIC);
+		out.writeByte(BinaryResults.VERSION);
+	}
+
+	/**
+	 * Writes a graph.
+	 *
+	 * @param graph the graph
+	 * @param file  the name of the JSON file LiSA would dump the graph to
+	 *
+	 * @throws IOException if the graph cannot be written
+	 */
+	public void write(SerializableGraph graph, String file) throws IOException {
+		out.writeByte(BinaryResults.GRAPH);
+		writeNullableString(file);
+		writeNullableString(graph.getName());
+		writeNullableString(graph.getDescription());
+
+		writeVarint(graph.getNodes().size());
+		for (SerializableNode node : graph.getNodes()) {
+			writeVarint(node.getId());
+			List<Integer> subNodes = node.getSubNodes();
+			// 0 marks a missing list, n + 1 a list of n elements
+			writeVarint(subNodes == null ? 0 : subNodes.size() + 1);
+			if (subNodes != null)
+				for (int sub : subNodes)
+					writeVarint(sub);
+			writeNullableString(node.getText());
+		}
+
+		writeVarint(graph.getEdges().size());
+		for (SerializableEdge edge : graph.getEdges()) {
+			writeVarint(edge.getSourceId());
+			writeVarint(edge.getDestId());
+			writeNullableString(edge.getKind());
+		}
+
+		writeVarint(graph.getDescriptions().size());
+		for (SerializableNodeDescription description : graph.getDescriptions()) {
+			writeVarint(description.getNodeId());
+			writeValue(description.getDescription());
+		}
+	}
+
+	private void writeValue(SerializableValue value) throws IOException {
+		if (value instanceof SerializableString) {
+			String s = ((SerializableString) value).getValue();
+			Long integer = BinaryResults.asInteger(s);
+			long[] interval = integer == null ? BinaryResults.asInterval(s) : null;
+			if (integer != null) {
+				out.writeByte(BinaryResults.INTEGER);
+				writeProperties(value.getProperties());
+				writeVarlong(BinaryResults.zigzag(integer));
+			} else if (interval != null) {
+				int flags = (int) interval[0];
+				out.writeByte(BinaryResults.INTERVAL);
+				writeProperties(value.getProperties());
+				out.writeByte(flags);
+				if ((flags & BinaryResults.LOW_INFINITE) == 0)
+					writeVarlong(BinaryResults.zigzag(interval[1]));
+				if ((flags & BinaryResults.HIGH_INFINITE) == 0)
+					writeVarlong(BinaryResults.zigzag(interval[2]));
+			} else {
+				out.writeByte(BinaryResults.STRING);
+				writeProperties(value.getProperties());
+				writeNullableString(s);
+			}
+		} else if (value instanceof SerializableArray) {
+			out.writeByte(BinaryResults.ARRAY);
+			writeProperties(value.getProperties());
+			List<SerializableValue> elements = ((SerializableArray) value).getElements();
+			writeVarint(elements.size());
+			for (SerializableValue element : elements)
+				writeValue(element);
+		} else if (value instanceof SerializableObject) {
+			out.writeByte(BinaryResults.OBJECT);
+			writeProperties(value.getProperties());
+			Map<String, SerializableValue> fields = ((SerializableObject) value).getFields();
+			writeVarint(fields.size());
+			for (Map.Entry<String, SerializableValue> field : fields.entrySet()) {
+				writeNullableString(field.getKey());
+				writeValue(field.getValue());
+			}
+		} else
+			throw new IOException("Unsupported serializable value: " + value.getClass().getName());
+	}
+
+	private void writeProperties(Map<String, String> properties) throws IOException {
+		writeVarint(properties.size());
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			writeNullableString(property.getKey());
+			writeNullableString(property.getValue());
+		}
+	}
+
+	private void writeNullableString(String s) throws IOException {
+		// 0 marks null, i + 1 the string with index i: if i is the size of
+		// the table, the string is new and follows
+		if (s == null) {
+			writeVarint(0);
+			return;
+		}
+		Integer index = strings.get(s);
+		if (index != null) {
+			writeVarint(index + 1);
+			return;
+		}
+		index = strings.size();
+		strings.put(s, index);
+		writeVarint(index + 1);
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		out.write(bytes);
+	}
+
+	private void writeVarint(int value) throws IOException {
+		writeVarlong(value & 0xFFFFFFFFL);
+	}
+
+	private void writeVarlong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.writeByte(BinaryResults.END);
+		} finally {
+			out.close();
+		}
+	}
+}
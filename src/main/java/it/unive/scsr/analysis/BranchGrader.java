@@ -0,0 +1,511 @@
+package it.unive.scsr.analysis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.DefiniteDataflowDomain;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.outputs.compare.JsonReportComparer;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.util.file.FileManager;
+
+/**
+ * Grades the domains implemented in the student branches without starting
+ * Gradle or a JVM per branch. For each {@code origin/<branch>}, the sources
+ * under {@value #SOURCES} that the branch changed since it forked from
+ * {@code master} (that is, with respect to their merge base) are compiled in
+ * process with {@link javax.tools}, and loaded by a
+ * {@link ClassLoader} of the branch that looks for the classes of
+ * {@code it.unive.scsr} among them before delegating to the classpath of the
+ * grader. The domain of the branch is then used to analyze the input of the
+ * task, and the results are compared with the ones in {@code expected/}.
+ * Git is run in the given repository, while inputs and expected results are
+ * read from the working directory.<br>
+ * <br>
+ * Branches are graded concurrently, each within a time limit counted from
+ * when it starts, and failures of a branch (compilation errors, exceptions,
+ * linkage errors, timeouts) only affect its own row of the report. Each
+ * branch parses its own copy of the input, since LiSA annotates the program
+ * it analyzes and concurrent analyses cannot share it. As in {@code tester.py}, each branch gets a log in the output
+ * directory and a copy of its analysis outputs, and the results are written
+ * to {@code report.csv} in branch order.
+ */
+public class BranchGrader {
+
+	/**
+	 * The directory of the graded sources, relative to the repository.
+	 */
+	public static final String SOURCES = "src/main/java/it/unive/scsr/";
+
+	/**
+	 * The package whose classes are loaded from the branch first.
+	 */
+	private static final String PACKAGE = "it.unive.scsr.";
+
+	/**
+	 * The tasks that can be graded.
+	 */
+	public enum Task {
+		PARITY("it.unive.scsr.Parity", "parity-eval") {
+			@Override
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			AbstractState<?> state(Object domain) {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new ValueEnvironment((BaseNonRelationalValueDomain) domain),
+						DefaultConfiguration.defaultTypeDomain());
+			}
+		},
+		CPROP("it.unive.scsr.CProp", "cp-eval") {
+			@Override
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			AbstractState<?> state(Object domain) {
+				return DefaultConfiguration.simpleState(DefaultConfiguration.defaultHeapDomain(),
+						new DefiniteDataflowDomain((DataflowElement) domain),
+						DefaultConfiguration.defaultTypeDomain());
+			}
+		};
+
+		private final String domainClass;
+
+		private final String name;
+
+		private Task(String domainClass, String name) {
+			this.domainClass = domainClass;
+			this.name = name;
+		}
+
+		/**
+		 * Builds the abstract state of the analysis of this task.
+		 *
+		 * @param domain an instance of the domain of a branch
+		 *
+		 * @return the state
+		 */
+		abstract AbstractState<?> state(Object domain);
+	}
+
+	/**
+	 * The outcome of grading a branch, with the same columns of the report
+	 * of {@code tester.py}.
+	 */
+	public static class Result {
+		private final String branch;
+		private int compile;
+		private int test;
+
+		private Result(String branch) {
+			this.branch = branch;
+		}
+
+		/**
+		 * Yields whether the sources of the branch compiled.
+		 *
+		 * @return {@code 1} if they did, {@code 0} otherwise
+		 */
+		public int getCompile() {
+			return compile;
+		}
+
+		/**
+		 * Yields whether the results of the branch match the expected ones.
+		 *
+		 * @return {@code 1} if they do, {@code 0} otherwise
+		 */
+		public int getTest() {
+			return test;
+		}
+	}
+
+	private final Task task;
+
+	private final String domainClass;
+
+	private final Path repository;
+
+	private final Path output;
+
+	/**
+	 * Builds a grader of the branches of the repository in the working
+	 * directory.
+	 *
+	 * @param task        the task to grade
+	 * @param domainClass the name of the domain class to load from each
+	 *                        branch, or {@code null} for the one of the task
+	 * @param output      the directory for the logs and outputs of the
+	 *                        branches
+	 */
+	public BranchGrader(Task task, String domainClass, Path output) {
+		this(task, domainClass, Paths.get("."), output);
+	}
+
+	/**
+	 * Builds a grader.
+	 *
+	 * @param task        the task to grade
+	 * @param domainClass the name of the domain class to load from each
+	 *                        branch, or {@code null} for the one of the task
+	 * @param repository  the git repository holding the branches
+	 * @param output      the directory for the logs and outputs of the
+	 *                        branches
+	 */
+	public BranchGrader(Task task, String domainClass, Path repository, Path output) {
+		this.task = task;
+		this.domainClass = domainClass != null ? domainClass : task.domainClass;
+		this.repository = repository;
+		this.output = output;
+	}
+
+	/**
+	 * Grades the given branches.
+	 *
+	 * @param branches the names of the branches, without {@code origin/}
+	 * @param threads  the number of branches graded at the same time
+	 * @param timeout  the time limit for each branch, in seconds
+	 *
+	 * @return the results, in the order of the branches
+	 */
+	public List<Result> grade(List<String> branches, int threads, long timeout) {
+		// branches that do not stop when timed out keep running on daemon
+		// threads, that do not prevent the JVM from exiting
+		try (TimeLimitedExecutor pool = new TimeLimitedExecutor(threads, TimeUnit.SECONDS.toMillis(timeout),
+				"grader")) {
+			List<TimeLimitedExecutor.Task<Result>> tasks = new ArrayList<>(branches.size());
+			for (String branch : branches)
+				// the time limit starts when the branch does
+				tasks.add(pool.submit(() -> grade(branch)));
+
+			List<Result> results = new ArrayList<>(branches.size());
+			for (int i = 0; i < branches.size(); i++)
+				results.add(await(branches.get(i), tasks.get(i), timeout));
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while grading", e);
+		}
+	}
+
+	private static Result await(String branch, TimeLimitedExecutor.Task<Result> task, long timeout)
+			throws InterruptedException {
+		try {
+			return task.await();
+		} catch (TimeoutException e) {
+			System.out.println("###### time limit of " + timeout + "s exceeded on " + branch);
+			return new Result(branch);
+		} catch (ExecutionException e) {
+			System.out.println("###### grading failed on " + branch);
+			e.getCause().printStackTrace(System.err);
+			return new Result(branch);
+		}
+	}
+
+	private Result grade(String branch) throws IOException {
+		Result result = new Result(branch);
+		Path work = Files.createTempDirectory("grader-" + branch.replace('/', '_'));
+		try (PrintWriter log = new PrintWriter(Files.newBufferedWriter(output.resolve(branch + ".log")), true)) {
+			log.println("CHECKOUT");
+			System.out.println("+ extracting sources of " + branch);
+			List<Path> sources = extract("origin/" + branch, work.resolve("src"), log);
+
+			log.println("BUILD");
+			System.out.println("++ compiling " + branch);
+			Path classes = work.resolve("classes");
+			if (!compile(sources, classes, log)) {
+				System.out.println("###### build failed on " + branch);
+				return result;
+			}
+			result.compile = 1;
+
+			log.println("TEST");
+			System.out.println("++ testing " + branch);
+			Path outputs = output.resolve(branch);
+			try (URLClassLoader loader = new BranchClassLoader(classes.toUri().toURL(), getClass().getClassLoader())) {
+				if (!analyze(loader, outputs, log)) {
+					System.out.println("###### test failed on " + branch);
+					return result;
+				}
+			} catch (Exception | LinkageError | StackOverflowError e) {
+				// anything the code of the branch throws is its own failure
+				log.println("Analysis failed");
+				e.printStackTrace(log);
+				System.out.println("###### test failed on " + branch);
+				return result;
+			}
+			result.test = 1;
+			return result;
+		} finally {
+			FileManager.forceDeleteFolder(work.toString());
+		}
+	}
+
+	private List<Path> extract(String ref, Path dir, Writer log) throws IOException {
+		// only what the branch changed since it forked: master may have moved
+		// on, and its newer classes are on the classpath already
+		String base = new String(git(repository, "merge-base", "master", ref), StandardCharsets.UTF_8).trim();
+		String changed = new String(git(repository, "diff", "--name-only", base, ref, "--", SOURCES),
+				StandardCharsets.UTF_8);
+		Map<String, String> blobs = tree(repository, ref);
+		List<Path> files = new ArrayList<>();
+		for (String name : changed.split("\n")) {
+			// deleted files are not in the tree of the branch
+			if (!name.endsWith(".java") || !blobs.containsKey(name))
+				continue;
+			Path file = dir.resolve(name.substring("src/main/java/".length()));
+			Files.createDirectories(file.getParent());
+			Files.write(file, git(repository, "cat-file", "blob", blobs.get(name)));
+			files.add(file);
+			log.write(name + "\n");
+		}
+		return files;
+	}
+
+	private static Map<String, String> tree(Path repository, String ref) throws IOException {
+		Map<String, String> blobs = new HashMap<>();
+		String listing = new String(git(repository, "ls-tree", "-r", ref, "--", SOURCES), StandardCharsets.UTF_8);
+		for (String line : listing.split("\n")) {
+			// <mode> blob <sha>\t<path>
+			int tab = line.indexOf('\t');
+			if (tab < 0)
+				continue;
+			String[] fields = line.substring(0, tab).split(" ");
+			if (fields.length == 3 && fields[1].equals("blob"))
+				blobs.put(line.substring(tab + 1), fields[2]);
+		}
+		return blobs;
+	}
+
+	private static byte[] git(Path repository, String... args) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add("git");
+		command.addAll(Arrays.asList(args));
+		Process process = new ProcessBuilder(command).directory(repository.toFile())
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = process.getInputStream()) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0)
+				out.write(buffer, 0, read);
+		}
+		try {
+			if (process.waitFor() != 0)
+				throw new IOException("git " + String.join(" ", args) + " failed");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running git", e);
+		}
+		return out.toByteArray();
+	}
+
+	static boolean compile(List<Path> sources, Path classes, Writer log) throws IOException {
+		Files.createDirectories(classes);
+		if (sources.isEmpty())
+			// nothing changed with respect to master
+			return true;
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new IllegalStateException("No Java compiler available, a JDK is required");
+		try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			List<File> inputs = new ArrayList<>(sources.size());
+			for (Path source : sources)
+				inputs.add(source.toFile());
+			Iterable<? extends JavaFileObject> units = files.getJavaFileObjectsFromFiles(inputs);
+			List<String> options = Arrays.asList("-d", classes.toString(), "-classpath",
+					System.getProperty("java.class.path"), "-nowarn", "-encoding", "UTF-8");
+			return compiler.getTask(log, files, null, options, null, units).call();
+		}
+	}
+
+	private boolean analyze(ClassLoader loader, Path outputs, PrintWriter log) throws Exception {
+		Object domain = Class.forName(domainClass, true, loader).getConstructor().newInstance();
+		log.println("Domain " + domainClass + " loaded from " + domain.getClass().getProtectionDomain().getCodeSource());
+
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = outputs.toString();
+		conf.serializeResults = true;
+		conf.jsonOutput = true;
+		conf.analysisGraphs = GraphType.HTML;
+		conf.abstractState = task.state(domain);
+		FileManager.forceDeleteFolder(conf.workdir);
+
+		// LiSA annotates the program it analyzes, so each branch gets its own
+		Program program = IMPFrontend.processFile("inputs/" + task.name + ".imp");
+		Thread current = Thread.currentThread();
+		ClassLoader previous = current.getContextClassLoader();
+		current.setContextClassLoader(loader);
+		try {
+			new LiSA(conf).run(program);
+		} finally {
+			current.setContextClassLoader(previous);
+		}
+
+		Path expected = Paths.get("expected", task.name);
+		try (Reader exp = new FileReader(expected.resolve("report.json").toFile());
+				Reader act = new FileReader(outputs.resolve("report.json").toFile())) {
+			boolean same = JsonReportComparer.compare(JsonReport.read(exp), JsonReport.read(act), expected.toFile(),
+					outputs.toFile());
+			log.println(same ? "Results match" : "Results are different");
+			return same;
+		}
+	}
+
+	/**
+	 * Writes the results in the format of {@code tester.py}.
+	 *
+	 * @param results the results
+	 * @param file    the report file
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeReport(List<Result> results, Path file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+			writer.println(",branch,id,compile,test");
+			for (int i = 0; i < results.size(); i++) {
+				Result result = results.get(i);
+				writer.println(i + "," + result.branch + "," + result.branch.split("-")[0] + "," + result.compile
+						+ "," + result.test);
+			}
+		}
+	}
+
+	/**
+	 * Grades the student branches.
+	 *
+	 * @param args {@code --task <parity|cprop>}, and optionally
+	 *                 {@code --class <domain class>}, {@code --threads <n>},
+	 *                 {@code --timeout <seconds>}, {@code --output <dir>},
+	 *                 {@code --report <file>}, {@code --repository <dir>}
+	 *                 and the names of the branches
+	 *                 to grade (by default, all the remote ones but
+	 *                 {@code master})
+	 *
+	 * @throws IOException if git cannot be run or the report cannot be
+	 *                         written
+	 */
+	public static void main(String[] args) throws IOException {
+		Task task = null;
+		String domainClass = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long timeout = 120;
+		Path output = Paths.get("eval-logs");
+		Path report = Paths.get("report.csv");
+		Path repository = Paths.get(".");
+		List<String> branches = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+			switch (args[i]) {
+			case "--task":
+				task = Task.valueOf(args[++i].toUpperCase().replace('-', '_'));
+				break;
+			case "--class":
+				domainClass = args[++i];
+				break;
+			case "--threads":
+				threads = Integer.parseInt(args[++i]);
+				break;
+			case "--timeout":
+				timeout = Long.parseLong(args[++i]);
+				break;
+			case "--output":
+				output = Paths.get(args[++i]);
+				break;
+			case "--report":
+				report = Paths.get(args[++i]);
+				break;
+			case "--repository":
+				repository = Paths.get(args[++i]);
+				break;
+			default:
+				branches.add(args[i]);
+			}
+
+		if (task == null) {
+			System.err.println("Usage: BranchGrader --task <parity|cprop> [--class <domain class>] [--threads <n>]"
+					+ " [--timeout <seconds>] [--output <dir>] [--report <file>] [--repository <dir>] [branch...]");
+			System.exit(2);
+		}
+
+		if (branches.isEmpty())
+			for (String ref : new String(git(repository, "for-each-ref", "--format=%(refname:lstrip=3)", "refs/remotes/origin/"),
+					StandardCharsets.UTF_8).split("\n"))
+				if (!ref.isEmpty() && !ref.equals("master") && !ref.equals("HEAD"))
+					branches.add(ref);
+
+		FileManager.forceDeleteFolder(output.toString());
+		Files.createDirectories(output);
+		List<Result> results = new BranchGrader(task, domainClass, repository, output).grade(branches, threads,
+				timeout);
+		writeReport(results, report);
+		System.out.println("created " + report);
+		// threads of timed out branches may still be running
+		System.exit(0);
+	}
+
+	/**
+	 * A class loader of the classes compiled from a branch, that are
+	 * preferred to the ones of the grader for the project package.
+	 */
+	static class BranchClassLoader extends URLClassLoader {
+
+		static {
+			registerAsParallelCapable();
+		}
+
+		BranchClassLoader(URL classes, ClassLoader parent) {
+			super(new URL[] { classes }, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(PACKAGE))
+				return super.loadClass(name, resolve);
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> c = findLoadedClass(name);
+				if (c == null)
+					try {
+						c = findClass(name);
+					} catch (ClassNotFoundException e) {
+						// not changed by the branch
+						c = super.loadClass(name, false);
+					}
+				if (resolve)
+					resolveClass(c);
+				return c;
+			}
+		}
+	}
+}
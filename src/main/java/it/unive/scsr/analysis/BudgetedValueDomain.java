@@ -0,0 +1,75 @@
+package it.unive.scsr.analysis;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+
+/**
+ * A {@link ForwardingValueDomain} that enforces an {@link AnalysisBudget}:
+ * once the CFG being analyzed exceeds its budget, widenings return top and
+ * meets and narrowings stop refining, so that the loops of that CFG converge
+ * at their next widening with sound (but degraded) results. Joins are left
+ * exact: they also merge branches, contexts and call results, that do not
+ * need to be cut short for the fixpoint to converge. Lattice operations carry
+ * no program point, so they are attributed to the CFG of the last semantic
+ * operation executed on the current thread, that is, of the CFG whose
+ * fixpoint is being computed.
+ *
+ * @param <V> the type of the wrapped value domain
+ */
+public class BudgetedValueDomain<V extends ValueDomain<V>> extends ForwardingValueDomain<V, BudgetedValueDomain<V>> {
+
+	private final AnalysisBudget budget;
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param inner  the wrapped value domain
+	 * @param budget the budget to enforce
+	 */
+	public BudgetedValueDomain(V inner, AnalysisBudget budget) {
+		super(inner);
+		this.budget = budget;
+	}
+
+	/**
+	 * Yields the budget enforced by this domain.
+	 *
+	 * @return the budget
+	 */
+	AnalysisBudget getBudget() {
+		return budget;
+	}
+
+	@Override
+	protected BudgetedValueDomain<V> wrap(V inner) {
+		return new BudgetedValueDomain<>(inner, budget);
+	}
+
+	@Override
+	protected void enter(ProgramPoint pp) {
+		super.enter(pp);
+		budget.evaluated(pp);
+	}
+
+	@Override
+	public BudgetedValueDomain<V> widening(BudgetedValueDomain<V> other) throws SemanticException {
+		if (budget.isExceeded(currentPoint()))
+			return top();
+		return super.widening(other);
+	}
+
+	@Override
+	public BudgetedValueDomain<V> glb(BudgetedValueDomain<V> other) throws SemanticException {
+		if (budget.isExceeded(currentPoint()))
+			return this;
+		return super.glb(other);
+	}
+
+	@Override
+	public BudgetedValueDomain<V> narrowing(BudgetedValueDomain<V> other) throws SemanticException {
+		if (budget.isExceeded(currentPoint()))
+			return this;
+		return super.narrowing(other);
+	}
+}
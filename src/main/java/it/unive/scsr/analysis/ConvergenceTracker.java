@@ -0,0 +1,222 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.type.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.controlFlow.ControlFlowStructure;
+import it.unive.lisa.program.cfg.controlFlow.Loop;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * Records, for each loop head of the analyzed program, how the fixpoint
+ * converged: the number of ascending and descending evaluations of the loop
+ * head, the number of widenings and narrowings (or greatest lower bounds, when
+ * the descending phase uses them) applied to its post-state, and the number
+ * of identifiers tracked by its final post-state. Evaluations of a loop head
+ * following the first narrowing applied to it are counted as descending. The
+ * report is dumped to {@value #FILE_NAME} in the working directory of the
+ * analysis, next to {@code report.json}.
+ */
+public class ConvergenceTracker {
+
+	/**
+	 * The name of the file where the report is dumped.
+	 */
+	public static final String FILE_NAME = "convergence.json";
+
+	/**
+	 * The system property enabling the tracking in
+	 * {@link AnalysisRunner#analyze(LiSAConfiguration, it.unive.lisa.program.Program)}.
+	 */
+	public static final String CONVERGENCE_PROPERTY = "scsr.convergence";
+
+	private final Map<Statement, PointStats> points = new ConcurrentHashMap<>();
+
+	private final Set<Statement> loopHeads = ConcurrentHashMap.newKeySet();
+
+	private final ThreadLocal<Statement> last = new ThreadLocal<>();
+
+	/**
+	 * Wraps the value domain of the abstract state of the given configuration
+	 * into a {@link ConvergenceValueDomain} reporting to this tracker, and adds
+	 * the semantic check that collects the final states of loop heads.
+	 * Configurations whose abstract state is not a {@link SimpleAbstractState}
+	 * are left untouched.
+	 *
+	 * @param conf the configuration to modify
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void apply(LiSAConfiguration conf) {
+		if (conf.abstractState instanceof SimpleAbstractState) {
+			conf.abstractState = tracked((SimpleAbstractState<?, ?, ?>) conf.abstractState);
+			conf.semanticChecks.add(new LoopHeadsCheck());
+		}
+	}
+
+	private <H extends HeapDomain<H>,
+			V extends ValueDomain<V>,
+			T extends TypeDomain<T>> AbstractState<?> tracked(SimpleAbstractState<H, V, T> state) {
+		return DefaultConfiguration.simpleState(
+				state.getHeapState(),
+				new ConvergenceValueDomain<>(state.getValueState(), this),
+				state.getTypeState());
+	}
+
+	private static Statement root(ProgramPoint pp) {
+		if (pp instanceof Expression)
+			return ((Expression) pp).getRootStatement();
+		if (pp instanceof Statement)
+			return (Statement) pp;
+		return null;
+	}
+
+	private PointStats statsOf(ProgramPoint pp) {
+		Statement st = root(pp);
+		return st == null ? null : points.computeIfAbsent(st, k -> new PointStats());
+	}
+
+	/**
+	 * Records a semantic operation at the given program point. Consecutive
+	 * operations on the same statement (or on its sub-expressions) count as a
+	 * single evaluation.
+	 *
+	 * @param pp the program point
+	 */
+	void evaluated(ProgramPoint pp) {
+		Statement st = root(pp);
+		if (st == null || st == last.get())
+			return;
+		last.set(st);
+		PointStats stats = points.computeIfAbsent(st, k -> new PointStats());
+		if (stats.descending)
+			stats.descendingEvaluations.incrementAndGet();
+		else
+			stats.ascendingEvaluations.incrementAndGet();
+	}
+
+	/**
+	 * Records a widening of the post-state of the given program point.
+	 *
+	 * @param pp the program point
+	 */
+	void widened(ProgramPoint pp) {
+		PointStats stats = statsOf(pp);
+		if (stats != null)
+			stats.widenings.incrementAndGet();
+	}
+
+	/**
+	 * Records a narrowing of the post-state of the given program point.
+	 *
+	 * @param pp the program point
+	 */
+	void narrowed(ProgramPoint pp) {
+		PointStats stats = statsOf(pp);
+		if (stats != null) {
+			stats.descending = true;
+			stats.narrowings.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Dumps the report to {@value #FILE_NAME} inside the given working
+	 * directory. Loop heads are grouped by CFG, and both are sorted.
+	 *
+	 * @param workdir the working directory of the analysis
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void dump(String workdir) throws IOException {
+		Map<String, Map<String, String>> byCfg = new TreeMap<>();
+		for (Statement head : loopHeads) {
+			PointStats stats = points.getOrDefault(head, new PointStats());
+			String entry = "      { \"head\" : " + Json.quote(head.toString())
+					+ ", \"location\" : " + Json.quote(String.valueOf(head.getLocation()))
+					+ ", \"ascendingIterations\" : " + stats.ascendingEvaluations.get()
+					+ ", \"descendingIterations\" : " + stats.descendingEvaluations.get()
+					+ ", \"widenings\" : " + stats.widenings.get()
+					+ ", \"narrowings\" : " + stats.narrowings.get()
+					+ ", \"finalStateSize\" : " + stats.finalSize.get() + " }";
+			byCfg.computeIfAbsent(head.getCFG().getDescriptor().toString(), k -> new TreeMap<>())
+					.put(String.valueOf(head.getLocation()) + head, entry);
+		}
+
+		List<String> cfgs = new ArrayList<>();
+		for (Map.Entry<String, Map<String, String>> cfg : byCfg.entrySet())
+			cfgs.add("    { \"cfg\" : " + Json.quote(cfg.getKey()) + ", \"loops\" : [\n"
+					+ String.join(",\n", cfg.getValue().values()) + "\n    ] }");
+
+		Path dir = Paths.get(workdir);
+		Files.createDirectories(dir);
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(FILE_NAME))) {
+			writer.write("{\n  \"cfgs\" : [\n");
+			writer.write(String.join(",\n", cfgs));
+			writer.write("\n  ]\n}\n");
+		}
+	}
+
+	private static class PointStats {
+		private final AtomicInteger ascendingEvaluations = new AtomicInteger();
+		private final AtomicInteger descendingEvaluations = new AtomicInteger();
+		private final AtomicInteger widenings = new AtomicInteger();
+		private final AtomicInteger narrowings = new AtomicInteger();
+		private final AtomicInteger finalSize = new AtomicInteger(-1);
+		private volatile boolean descending;
+	}
+
+	/**
+	 * Collects the loop heads of each CFG, together with the size of their
+	 * final post-states (the largest one among all contexts).
+	 */
+	private class LoopHeadsCheck<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+			for (ControlFlowStructure structure : graph.getControlFlowStructures()) {
+				if (!(structure instanceof Loop))
+					continue;
+
+				Statement head = structure.getCondition();
+				loopHeads.add(head);
+				PointStats stats = points.computeIfAbsent(head, k -> new PointStats());
+				for (AnalyzedCFG<A> result : tool.getResultOf(graph)) {
+					A state = result.getAnalysisStateAfter(head).getState();
+					if (!(state instanceof SimpleAbstractState))
+						continue;
+					StateFootprint footprint = StateFootprint.of(((SimpleAbstractState<?, ?, ?>) state).getValueState());
+					if (footprint.isKnown())
+						stats.finalSize.accumulateAndGet(footprint.getIdentifiers(), Math::max);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+			return true;
+		}
+	}
+}
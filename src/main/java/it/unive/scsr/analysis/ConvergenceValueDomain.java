@@ -0,0 +1,58 @@
+package it.unive.scsr.analysis;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+
+/**
+ * A {@link ForwardingValueDomain} that reports to a
+ * {@link ConvergenceTracker} the evaluations of each program point, and the
+ * widenings, narrowings and greatest lower bounds computed after them.
+ *
+ * @param <V> the type of the wrapped value domain
+ */
+public class ConvergenceValueDomain<V extends ValueDomain<V>>
+		extends ForwardingValueDomain<V, ConvergenceValueDomain<V>> {
+
+	private final ConvergenceTracker tracker;
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param inner   the wrapped value domain
+	 * @param tracker the tracker to report to
+	 */
+	public ConvergenceValueDomain(V inner, ConvergenceTracker tracker) {
+		super(inner);
+		this.tracker = tracker;
+	}
+
+	@Override
+	protected ConvergenceValueDomain<V> wrap(V inner) {
+		return new ConvergenceValueDomain<>(inner, tracker);
+	}
+
+	@Override
+	protected void enter(ProgramPoint pp) {
+		super.enter(pp);
+		tracker.evaluated(pp);
+	}
+
+	@Override
+	public ConvergenceValueDomain<V> widening(ConvergenceValueDomain<V> other) throws SemanticException {
+		tracker.widened(currentPoint());
+		return super.widening(other);
+	}
+
+	@Override
+	public ConvergenceValueDomain<V> narrowing(ConvergenceValueDomain<V> other) throws SemanticException {
+		tracker.narrowed(currentPoint());
+		return super.narrowing(other);
+	}
+
+	@Override
+	public ConvergenceValueDomain<V> glb(ConvergenceValueDomain<V> other) throws SemanticException {
+		tracker.narrowed(currentPoint());
+		return super.glb(other);
+	}
+}
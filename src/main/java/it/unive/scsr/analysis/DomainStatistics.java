@@ -0,0 +1,193 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.lattices.FunctionalLattice;
+import it.unive.lisa.analysis.type.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+
+/**
+ * Opt-in operation counters and timers for value domains and semantic checks.
+ * Counters are striped {@link LongAdder}s allocated once per domain and per
+ * operation, so recording an operation does not allocate. The collected
+ * figures are dumped to {@value #FILE_NAME} in the working directory of the
+ * analysis, next to {@code report.json}.
+ */
+public class DomainStatistics {
+
+	/**
+	 * The name of the file where statistics are dumped.
+	 */
+	public static final String FILE_NAME = "domain-stats.json";
+
+	/**
+	 * The system property enabling the instrumentation in
+	 * {@link AnalysisRunner#analyze(LiSAConfiguration, it.unive.lisa.program.Program)}.
+	 */
+	public static final String STATS_PROPERTY = "scsr.stats";
+
+	/**
+	 * The instrumented operations.
+	 */
+	public enum Operation {
+		LUB, GLB, WIDENING, NARROWING, LESS_OR_EQUAL, ASSIGN, ASSUME, EVAL, SATISFIES, CHECK
+	}
+
+	private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Instruments the given configuration: the value domain of its abstract
+	 * state is wrapped into an {@link InstrumentedValueDomain}, and each of its
+	 * semantic checks into an {@link InstrumentedCheck}.
+	 *
+	 * @param conf the configuration to instrument
+	 */
+	public void apply(LiSAConfiguration conf) {
+		if (conf.abstractState instanceof SimpleAbstractState)
+			conf.abstractState = instrumented((SimpleAbstractState<?, ?, ?>) conf.abstractState);
+
+		List<SemanticCheck<?>> checks = new ArrayList<>(conf.semanticChecks);
+		conf.semanticChecks.clear();
+		for (SemanticCheck<?> check : checks)
+			conf.semanticChecks.add(instrumented(check));
+	}
+
+	private <H extends HeapDomain<H>,
+			V extends ValueDomain<V>,
+			T extends TypeDomain<T>> AbstractState<?> instrumented(SimpleAbstractState<H, V, T> state) {
+		V value = state.getValueState();
+		return DefaultConfiguration.simpleState(
+				state.getHeapState(),
+				new InstrumentedValueDomain<>(value, countersFor(label(value))),
+				state.getTypeState());
+	}
+
+	private <A extends AbstractState<A>> SemanticCheck<A> instrumented(SemanticCheck<A> check) {
+		return new InstrumentedCheck<>(check, countersFor(check.getClass().getSimpleName()));
+	}
+
+	/**
+	 * Yields the counters associated with the given label, creating them if
+	 * needed.
+	 *
+	 * @param label the label of a domain or of a check
+	 *
+	 * @return the counters
+	 */
+	public Counters countersFor(String label) {
+		return counters.computeIfAbsent(label, k -> new Counters());
+	}
+
+	static String label(Object domain) {
+		Object unwrapped = domain;
+		while (unwrapped instanceof ForwardingValueDomain)
+			unwrapped = ((ForwardingValueDomain<?, ?>) unwrapped).inner;
+		if (unwrapped instanceof FunctionalLattice)
+			return unwrapped.getClass().getSimpleName() + "<"
+					+ ((FunctionalLattice<?, ?, ?>) unwrapped).lattice.getClass().getSimpleName() + ">";
+		return unwrapped.getClass().getSimpleName();
+	}
+
+	/**
+	 * Dumps the collected statistics to {@value #FILE_NAME} inside the given
+	 * working directory.
+	 *
+	 * @param workdir the working directory of the analysis
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void dump(String workdir) throws IOException {
+		Path dir = Paths.get(workdir);
+		Files.createDirectories(dir);
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(FILE_NAME))) {
+			writer.write("{\n");
+			Map<String, Counters> sorted = new TreeMap<>(counters);
+			int i = 0;
+			for (Map.Entry<String, Counters> entry : sorted.entrySet()) {
+				writer.write("  " + Json.quote(entry.getKey()) + " : {\n");
+				Collection<String> ops = entry.getValue().describe();
+				writer.write(String.join(",\n", ops));
+				writer.write("\n  }" + (++i < sorted.size() ? "," : "") + "\n");
+			}
+			writer.write("}\n");
+		}
+	}
+
+	/**
+	 * The per-operation counters of a single domain or check.
+	 */
+	public static class Counters {
+
+		private final LongAdder[] calls = new LongAdder[Operation.values().length];
+
+		private final LongAdder[] nanos = new LongAdder[Operation.values().length];
+
+		private Counters() {
+			for (int i = 0; i < calls.length; i++) {
+				calls[i] = new LongAdder();
+				nanos[i] = new LongAdder();
+			}
+		}
+
+		/**
+		 * Records one execution of the given operation.
+		 *
+		 * @param op      the operation
+		 * @param elapsed the duration of the execution, in nanoseconds
+		 */
+		public void record(Operation op, long elapsed) {
+			calls[op.ordinal()].increment();
+			nanos[op.ordinal()].add(elapsed);
+		}
+
+		/**
+		 * Yields the number of executions of the given operation.
+		 *
+		 * @param op the operation
+		 *
+		 * @return the number of executions
+		 */
+		public long getCalls(Operation op) {
+			return calls[op.ordinal()].sum();
+		}
+
+		/**
+		 * Yields the total time spent executing the given operation.
+		 *
+		 * @param op the operation
+		 *
+		 * @return the time, in nanoseconds
+		 */
+		public long getNanos(Operation op) {
+			return nanos[op.ordinal()].sum();
+		}
+
+		private Collection<String> describe() {
+			List<String> result = new ArrayList<>();
+			for (Operation op : Operation.values()) {
+				long count = getCalls(op);
+				if (count > 0)
+					result.add("    \"" + op.name().toLowerCase() + "\" : { \"calls\" : " + count + ", \"nanos\" : "
+							+ getNanos(op) + " }");
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A post-analysis pass computing the {@link StateFootprint} of the post-state
+ * of every statement, in every context. Footprints are aggregated per method
+ * and per value domain into histograms of tracked identifiers and retained
+ * bytes per program point, and dumped to {@value #FILE_NAME} in the working
+ * directory of the analysis, next to {@code report.json}. Methods are sorted
+ * by decreasing retained bytes.
+ */
+public class FootprintStatistics {
+
+	/**
+	 * The name of the file where statistics are dumped.
+	 */
+	public static final String FILE_NAME = "footprint.json";
+
+	/**
+	 * The system property enabling the pass in
+	 * {@link AnalysisRunner#analyze(LiSAConfiguration, it.unive.lisa.program.Program)}.
+	 */
+	public static final String FOOTPRINT_PROPERTY = "scsr.footprint";
+
+	private final Map<String, Summary> methods = new TreeMap<>();
+
+	private final Map<String, Summary> domains = new TreeMap<>();
+
+	/**
+	 * Adds the semantic check computing footprints to the given configuration.
+	 *
+	 * @param conf the configuration to modify
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void apply(LiSAConfiguration conf) {
+		conf.semanticChecks.add(new FootprintCheck());
+	}
+
+	private synchronized void record(CFG graph, int contexts, Summary method, Map<String, Summary> byDomain) {
+		method.contexts = contexts;
+		methods.put(graph.getDescriptor().toString(), method);
+		byDomain.forEach((domain, summary) -> {
+			summary.contexts = contexts;
+			domains.computeIfAbsent(domain, k -> new Summary()).merge(summary);
+		});
+	}
+
+	/**
+	 * Dumps the statistics to {@value #FILE_NAME} inside the given working
+	 * directory.
+	 *
+	 * @param workdir the working directory of the analysis
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void dump(String workdir) throws IOException {
+		List<Map.Entry<String, Summary>> sorted = new ArrayList<>(methods.entrySet());
+		sorted.sort(Comparator.comparing((Map.Entry<String, Summary> e) -> -e.getValue().bytes)
+				.thenComparing(Map.Entry::getKey));
+
+		List<String> methodEntries = new ArrayList<>();
+		for (Map.Entry<String, Summary> e : sorted)
+			methodEntries.add("    { \"cfg\" : " + Json.quote(e.getKey()) + ", " + e.getValue().toJson() + " }");
+
+		List<String> domainEntries = new ArrayList<>();
+		for (Map.Entry<String, Summary> e : domains.entrySet())
+			domainEntries.add("    " + Json.quote(e.getKey()) + " : { " + e.getValue().toJson() + " }");
+
+		Path dir = Paths.get(workdir);
+		Files.createDirectories(dir);
+		try (Writer writer = Files.newBufferedWriter(dir.resolve(FILE_NAME))) {
+			writer.write("{\n  \"domains\" : {\n");
+			writer.write(String.join(",\n", domainEntries));
+			writer.write("\n  },\n  \"methods\" : [\n");
+			writer.write(String.join(",\n", methodEntries));
+			writer.write("\n  ]\n}\n");
+		}
+	}
+
+	/**
+	 * Yields the label of the power-of-two bucket starting at the given value.
+	 */
+	private static String bucket(long low) {
+		return low <= 1 ? String.valueOf(low) : low + "-" + (2 * low - 1);
+	}
+
+	private static class Summary {
+		private int contexts;
+		private long points;
+		private long identifiers;
+		private long maxIdentifiers;
+		private long upperBoundEdges;
+		private long tops;
+		private long bottoms;
+		private long bytes;
+		private long maxBytes;
+		private final Map<Long, Long> identifiersHistogram = new TreeMap<>();
+		private final Map<Long, Long> bytesHistogram = new TreeMap<>();
+
+		private void add(StateFootprint footprint) {
+			points++;
+			identifiers += footprint.getIdentifiers();
+			maxIdentifiers = Math.max(maxIdentifiers, footprint.getIdentifiers());
+			upperBoundEdges += footprint.getUpperBoundEdges();
+			tops += footprint.getTops();
+			bottoms += footprint.getBottoms();
+			bytes += footprint.getBytes();
+			maxBytes = Math.max(maxBytes, footprint.getBytes());
+			identifiersHistogram.merge(Long.highestOneBit(footprint.getIdentifiers()), 1L, Long::sum);
+			bytesHistogram.merge(Long.highestOneBit(footprint.getBytes()), 1L, Long::sum);
+		}
+
+		private void merge(Summary other) {
+			contexts += other.contexts;
+			points += other.points;
+			identifiers += other.identifiers;
+			maxIdentifiers = Math.max(maxIdentifiers, other.maxIdentifiers);
+			upperBoundEdges += other.upperBoundEdges;
+			tops += other.tops;
+			bottoms += other.bottoms;
+			bytes += other.bytes;
+			maxBytes = Math.max(maxBytes, other.maxBytes);
+			other.identifiersHistogram.forEach((k, v) -> identifiersHistogram.merge(k, v, Long::sum));
+			other.bytesHistogram.forEach((k, v) -> bytesHistogram.merge(k, v, Long::sum));
+		}
+
+		private String toJson() {
+			return "\"contexts\" : " + contexts
+					+ ", \"points\" : " + points
+					+ ", \"identifiers\" : " + identifiers
+					+ ", \"maxIdentifiers\" : " + maxIdentifiers
+					+ ", \"upperBoundEdges\" : " + upperBoundEdges
+					+ ", \"top\" : " + tops
+					+ ", \"bottom\" : " + bottoms
+					+ ", \"bytes\" : " + bytes
+					+ ", \"maxBytes\" : " + maxBytes
+					+ ", \"identifiersHistogram\" : " + histogram(identifiersHistogram)
+					+ ", \"bytesHistogram\" : " + histogram(bytesHistogram);
+		}
+
+		private static String histogram(Map<Long, Long> histogram) {
+			List<String> entries = new ArrayList<>();
+			histogram.forEach((k, v) -> entries.add("\"" + bucket(k) + "\" : " + v));
+			return "{ " + String.join(", ", entries) + " }";
+		}
+	}
+
+	/**
+	 * Computes the footprints of all the post-states of a CFG.
+	 */
+	private class FootprintCheck<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+			Summary method = new Summary();
+			Map<String, Summary> byDomain = new TreeMap<>();
+			int contexts = 0;
+			String domain = null;
+			for (AnalyzedCFG<A> result : tool.getResultOf(graph)) {
+				contexts++;
+				for (Statement node : graph.getNodes()) {
+					A state = result.getAnalysisStateAfter(node).getState();
+					if (!(state instanceof SimpleAbstractState))
+						continue;
+					SimpleAbstractState<?, ?, ?> simple = (SimpleAbstractState<?, ?, ?>) state;
+					StateFootprint footprint = StateFootprint.of(simple.getValueState());
+					if (!footprint.isKnown())
+						continue;
+					if (domain == null)
+						domain = DomainStatistics.label(simple.getValueState());
+					method.add(footprint);
+					byDomain.computeIfAbsent(domain, k -> new Summary()).add(footprint);
+				}
+			}
+			record(graph, contexts, method, byDomain);
+			return true;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package it.unive.scsr.analysis;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.util.representation.StructuredRepresentation;
+
+/**
+ * A {@link ValueDomain} that forwards every operation to a wrapped value
+ * domain, giving subclasses a chance to observe or alter the results. The
+ * program point of the last semantic operation executed on the current thread
+ * is tracked, so that lattice operations (that carry no program point) can be
+ * attributed to the node whose fixpoint iteration is being computed.<br>
+ * <br>
+ * Semantic checks that need the wrapped domain should retrieve it through
+ * {@link #valueStateOf(SimpleAbstractState)}.
+ *
+ * @param <V> the type of the wrapped value domain
+ * @param <D> the concrete type of the forwarding domain
+ */
+public abstract class ForwardingValueDomain<V extends ValueDomain<V>, D extends ForwardingValueDomain<V, D>>
+		implements ValueDomain<D> {
+
+	private static final ThreadLocal<ProgramPoint> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * The wrapped value domain.
+	 */
+	protected final V inner;
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param inner the wrapped value domain
+	 */
+	protected ForwardingValueDomain(V inner) {
+		this.inner = inner;
+	}
+
+	/**
+	 * Builds a new instance of this domain wrapping the given value domain.
+	 *
+	 * @param inner the value domain to wrap
+	 *
+	 * @return the new instance
+	 */
+	protected abstract D wrap(V inner);
+
+	/**
+	 * Yields the wrapped value domain.
+	 *
+	 * @return the wrapped domain
+	 */
+	public V getInner() {
+		return inner;
+	}
+
+	/**
+	 * Invoked before every semantic operation, with the program point where
+	 * it happens. Subclasses overriding this method must invoke it.
+	 *
+	 * @param pp the program point
+	 */
+	protected void enter(ProgramPoint pp) {
+		CURRENT.set(pp);
+	}
+
+	/**
+	 * Yields the program point of the last semantic operation executed on the
+	 * current thread.
+	 *
+	 * @return the program point, or {@code null} if none has been executed
+	 */
+	protected static ProgramPoint currentPoint() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Yields the value domain wrapped by the given one, removing any number of
+	 * {@link ForwardingValueDomain} layers.
+	 *
+	 * @param <V>    the type of the wrapped domain
+	 * @param domain the domain to unwrap
+	 *
+	 * @return the innermost value domain
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V extends ValueDomain<V>> V unwrap(ValueDomain<?> domain) {
+		ValueDomain<?> result = domain;
+		while (result instanceof ForwardingValueDomain)
+			result = ((ForwardingValueDomain<?, ?>) result).inner;
+		return (V) result;
+	}
+
+	/**
+	 * Yields the value state of the given abstract state, removing any
+	 * {@link ForwardingValueDomain} layer wrapping it.
+	 *
+	 * @param <V>   the type of the value state
+	 * @param state the abstract state
+	 *
+	 * @return the innermost value state
+	 */
+	public static <V extends ValueDomain<V>> V valueStateOf(SimpleAbstractState<?, ?, ?> state) {
+		return unwrap(state.getValueState());
+	}
+
+	@Override
+	public D assign(Identifier id, ValueExpression expression, ProgramPoint pp, SemanticOracle oracle)
+			throws SemanticException {
+		enter(pp);
+		return wrap(inner.assign(id, expression, pp, oracle));
+	}
+
+	@Override
+	public D smallStepSemantics(ValueExpression expression, ProgramPoint pp, SemanticOracle oracle)
+			throws SemanticException {
+		enter(pp);
+		return wrap(inner.smallStepSemantics(expression, pp, oracle));
+	}
+
+	@Override
+	public D assume(ValueExpression expression, ProgramPoint src, ProgramPoint dest, SemanticOracle oracle)
+			throws SemanticException {
+		enter(src);
+		return wrap(inner.assume(expression, src, dest, oracle));
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp, SemanticOracle oracle)
+			throws SemanticException {
+		enter(pp);
+		return inner.satisfies(expression, pp, oracle);
+	}
+
+	@Override
+	public D forgetIdentifier(Identifier id) throws SemanticException {
+		return wrap(inner.forgetIdentifier(id));
+	}
+
+	@Override
+	public D forgetIdentifiersIf(Predicate<Identifier> test) throws SemanticException {
+		return wrap(inner.forgetIdentifiersIf(test));
+	}
+
+	@Override
+	public D pushScope(ScopeToken token) throws SemanticException {
+		return wrap(inner.pushScope(token));
+	}
+
+	@Override
+	public D popScope(ScopeToken token) throws SemanticException {
+		return wrap(inner.popScope(token));
+	}
+
+	@Override
+	public boolean knowsIdentifier(Identifier id) {
+		return inner.knowsIdentifier(id);
+	}
+
+	@Override
+	public boolean lessOrEqual(D other) throws SemanticException {
+		return inner.lessOrEqual(other.inner);
+	}
+
+	@Override
+	public D lub(D other) throws SemanticException {
+		return wrap(inner.lub(other.inner));
+	}
+
+	@Override
+	public D glb(D other) throws SemanticException {
+		return wrap(inner.glb(other.inner));
+	}
+
+	@Override
+	public D widening(D other) throws SemanticException {
+		return wrap(inner.widening(other.inner));
+	}
+
+	@Override
+	public D narrowing(D other) throws SemanticException {
+		return wrap(inner.narrowing(other.inner));
+	}
+
+	@Override
+	public D top() {
+		return wrap(inner.top());
+	}
+
+	@Override
+	public D bottom() {
+		return wrap(inner.bottom());
+	}
+
+	@Override
+	public boolean isTop() {
+		return inner.isTop();
+	}
+
+	@Override
+	public boolean isBottom() {
+		return inner.isBottom();
+	}
+
+	@Override
+	public StructuredRepresentation representation() {
+		return inner.representation();
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getClass(), inner);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ForwardingValueDomain<?, ?> other = (ForwardingValueDomain<?, ?>) obj;
+		return Objects.equals(inner, other.inner);
+	}
+
+	@Override
+	public String toString() {
+		return inner.toString();
+	}
+}
@@ -0,0 +1,288 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.warnings.CFGWarning;
+import it.unive.lisa.checks.warnings.StatementWarning;
+import it.unive.lisa.checks.warnings.Warning;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.outputs.HtmlGraph;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.file.FileManager;
+
+/**
+ * Renders the HTML analysis graphs on a pool of background threads, instead
+ * of letting LiSA write them synchronously at the end of the fixpoint. The
+ * graphs of a CFG are submitted as soon as the CFG is visited by the semantic
+ * checks, so that their conversion and writing overlap with the checks and
+ * with the JSON outputs of the rest of the analysis; {@link #finish()} waits
+ * for all of them. In {@link Mode#SELECTIVE} mode, only the CFGs of the
+ * requested methods and the ones with warnings are rendered: the latter are
+ * known only once all checks have run, so they are submitted by
+ * {@link #finish()}.<br>
+ * <br>
+ * Graphs are written in the working directory of the analysis, with the
+ * support files of the HTML viewer and the same names LiSA would give them,
+ * but are not listed in {@code report.json}, since they are produced outside
+ * of LiSA. For this reason, the harnesses comparing reports with the ones in
+ * {@code expected/} run LiSA directly and never use the renderer.<br>
+ * <br>
+ * Graphs are converted and rendered to text concurrently, but written to
+ * disk one at a time, since the {@link FileManager} of the analysis is not
+ * thread-safe: the pool speeds up the conversion, not the I/O.
+ */
+public class GraphRenderer {
+
+	/**
+	 * The system property selecting the {@link Mode} of
+	 * {@link #fromSystemProperties()}.
+	 */
+	public static final String GRAPHS_PROPERTY = "scsr.graphs";
+
+	/**
+	 * The system property listing the comma-separated names of the methods
+	 * always rendered in selective mode.
+	 */
+	public static final String METHODS_PROPERTY = "scsr.graphMethods";
+
+	/**
+	 * Which graphs are rendered.
+	 */
+	public enum Mode {
+		/**
+		 * The graphs of all CFGs, as LiSA would.
+		 */
+		ASYNC,
+
+		/**
+		 * The graphs of the CFGs with warnings and of the requested methods.
+		 */
+		SELECTIVE
+	}
+
+	private final Mode mode;
+
+	private final Set<String> methods;
+
+	private final int threads;
+
+	private final List<Future<Long>> pending = Collections.synchronizedList(new ArrayList<>());
+
+	private final List<Deferred> deferred = Collections.synchronizedList(new ArrayList<>());
+
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private ExecutorService pool;
+
+	private FileManager files;
+
+	private boolean subnodes;
+
+	private CheckToolWithAnalysisResults<?> tool;
+
+	private long start;
+
+	/**
+	 * Builds the renderer.
+	 *
+	 * @param mode    which graphs are rendered
+	 * @param methods the names of the methods always rendered
+	 * @param threads the number of threads writing graphs
+	 */
+	public GraphRenderer(Mode mode, Set<String> methods, int threads) {
+		this.mode = mode;
+		this.methods = methods;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Builds the renderer selected by the {@value #GRAPHS_PROPERTY} system
+	 * property ({@code async} or {@code selective}), with the methods listed
+	 * by the {@value #METHODS_PROPERTY} system property, writing graphs on
+	 * half of the available processors.
+	 *
+	 * @return the renderer, or {@code null} if the property is not set
+	 */
+	public static GraphRenderer fromSystemProperties() {
+		String mode = System.getProperty(GRAPHS_PROPERTY);
+		if (mode == null || mode.isBlank())
+			return null;
+		Set<String> methods = new HashSet<>();
+		for (String name : System.getProperty(METHODS_PROPERTY, "").split(","))
+			if (!name.isBlank())
+				methods.add(name.trim());
+		return new GraphRenderer(Mode.valueOf(mode.trim().toUpperCase()), methods,
+				Runtime.getRuntime().availableProcessors() / 2);
+	}
+
+	/**
+	 * Takes over the rendering of the HTML graphs of the given configuration,
+	 * if it has any: LiSA's own rendering is disabled, and a semantic check
+	 * submitting the graphs is added.
+	 *
+	 * @param conf the configuration to modify
+	 *
+	 * @return {@code true} if the configuration had HTML graphs to render
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public boolean apply(LiSAConfiguration conf) {
+		if (conf.analysisGraphs != GraphType.HTML && conf.analysisGraphs != GraphType.HTML_WITH_SUBNODES)
+			return false;
+		subnodes = conf.analysisGraphs == GraphType.HTML_WITH_SUBNODES;
+		conf.analysisGraphs = GraphType.NONE;
+		files = new FileManager(conf.workdir);
+		pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "graph-renderer");
+			t.setDaemon(true);
+			return t;
+		});
+		start = System.currentTimeMillis();
+		conf.semanticChecks.add(new Submitter());
+		return true;
+	}
+
+	/**
+	 * Submits the graphs still to render, and waits for all of them to be
+	 * written.
+	 *
+	 * @throws IOException if a graph or the support files cannot be written
+	 */
+	public void finish() throws IOException {
+		if (pool == null)
+			return;
+
+		if (mode == Mode.SELECTIVE && tool != null) {
+			Set<CFG> warned = new HashSet<>();
+			for (Warning warning : tool.getWarnings())
+				if (warning instanceof StatementWarning)
+					warned.add(((StatementWarning) warning).getStatement().getCFG());
+				else if (warning instanceof CFGWarning)
+					warned.add(((CFGWarning) warning).getCFG());
+			synchronized (deferred) {
+				for (Deferred graph : deferred)
+					if (warned.contains(graph.cfg))
+						submit(graph.result, graph.name);
+					else
+						skipped.incrementAndGet();
+				deferred.clear();
+			}
+		}
+
+		long chars = 0;
+		int rendered = 0;
+		try {
+			List<Future<Long>> all;
+			synchronized (pending) {
+				all = new ArrayList<>(pending);
+			}
+			for (Future<Long> graph : all) {
+				chars += graph.get();
+				rendered++;
+			}
+			synchronized (files) {
+				files.generateSupportFiles();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IllegalStateException("Cannot render graphs", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering graphs", e);
+		} finally {
+			pool.shutdownNow();
+			pool = null;
+		}
+
+		System.out.println("Rendered " + rendered + " graphs (" + (chars >> 10) + "K characters) in "
+				+ (System.currentTimeMillis() - start) + "ms" + (skipped.get() > 0 ? ", skipped " + skipped : ""));
+	}
+
+	private void submit(AnalyzedCFG<?> result, String name) {
+		pending.add(pool.submit(() -> {
+			SerializableGraph graph = serialize(result);
+			HtmlGraph html = graph.toHtml(subnodes, "results");
+			// rendered outside of the lock, that only covers the file manager
+			StringWriter text = new StringWriter();
+			html.dump(text);
+			String page = text.toString();
+			synchronized (files) {
+				files.mkHtmlFile(name, writer -> writer.write(page));
+			}
+			return (long) page.length();
+		}));
+	}
+
+	private static <A extends AbstractState<A>> SerializableGraph serialize(AnalyzedCFG<A> result) {
+		return result.toSerializableGraph(
+				(g, st) -> result.getAnalysisStateAfter(st).representation().toSerializableValue());
+	}
+
+	/**
+	 * A graph whose rendering depends on the warnings of its CFG.
+	 */
+	private static class Deferred {
+		private final CFG cfg;
+		private final AnalyzedCFG<?> result;
+		private final String name;
+
+		private Deferred(CFG cfg, AnalyzedCFG<?> result, String name) {
+			this.cfg = cfg;
+			this.result = result;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * Submits the graphs of each CFG, in each context, as it is visited.
+	 */
+	private class Submitter<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+		@Override
+		public void beforeExecution(CheckToolWithAnalysisResults<A> tool) {
+			GraphRenderer.this.tool = tool;
+		}
+
+		@Override
+		public void afterExecution(CheckToolWithAnalysisResults<A> tool) {
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+			for (AnalyzedCFG<A> result : tool.getResultOf(graph)) {
+				// the name of the context, not the order of the results, tells
+				// apart the graphs of the same CFG
+				String name = BinaryResults.fileName(result);
+				if (mode == Mode.ASYNC || methods.contains(graph.getDescriptor().getName()))
+					submit(result, name);
+				else
+					deferred.add(new Deferred(graph, result, name));
+			}
+			// no need to visit the statements
+			return false;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+			return false;
+		}
+	}
+}
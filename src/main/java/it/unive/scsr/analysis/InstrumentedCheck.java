@@ -0,0 +1,115 @@
+package it.unive.scsr.analysis;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.analysis.DomainStatistics.Counters;
+import it.unive.scsr.analysis.DomainStatistics.Operation;
+
+/**
+ * A {@link SemanticCheck} that forwards to another check, recording the time
+ * spent in each of its visits.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public class InstrumentedCheck<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	private final SemanticCheck<A> inner;
+
+	private final Counters counters;
+
+	/**
+	 * Builds the check.
+	 *
+	 * @param inner    the wrapped check
+	 * @param counters the counters where visits are recorded
+	 */
+	public InstrumentedCheck(SemanticCheck<A> inner, Counters counters) {
+		this.inner = inner;
+		this.counters = counters;
+	}
+
+	/**
+	 * Yields the wrapped check.
+	 *
+	 * @return the wrapped check
+	 */
+	public SemanticCheck<A> getInner() {
+		return inner;
+	}
+
+	@Override
+	public void beforeExecution(CheckToolWithAnalysisResults<A> tool) {
+		long start = System.nanoTime();
+		try {
+			inner.beforeExecution(tool);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<A> tool) {
+		long start = System.nanoTime();
+		try {
+			inner.afterExecution(tool);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean visitUnit(CheckToolWithAnalysisResults<A> tool, Unit unit) {
+		long start = System.nanoTime();
+		try {
+			return inner.visitUnit(tool, unit);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void visitGlobal(CheckToolWithAnalysisResults<A> tool, Unit unit, Global global, boolean instance) {
+		long start = System.nanoTime();
+		try {
+			inner.visitGlobal(tool, unit, global, instance);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		long start = System.nanoTime();
+		try {
+			return inner.visit(tool, graph);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+		long start = System.nanoTime();
+		try {
+			return inner.visit(tool, graph, node);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Edge edge) {
+		long start = System.nanoTime();
+		try {
+			return inner.visit(tool, graph, edge);
+		} finally {
+			counters.record(Operation.CHECK, System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package it.unive.scsr.analysis;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SemanticOracle;
+import it.unive.lisa.analysis.lattices.Satisfiability;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.scsr.analysis.DomainStatistics.Counters;
+import it.unive.scsr.analysis.DomainStatistics.Operation;
+
+/**
+ * A {@link ForwardingValueDomain} that counts and times the lattice and
+ * semantic operations of the wrapped domain. Non-relational domains are
+ * lifted to {@link ValueDomain}s through value environments, so they are
+ * observed through the environment: the time of their per-variable operations
+ * is included in the one of the environment operation running them, but they
+ * are not counted one by one.
+ *
+ * @param <V> the type of the wrapped value domain
+ */
+public class InstrumentedValueDomain<V extends ValueDomain<V>>
+		extends ForwardingValueDomain<V, InstrumentedValueDomain<V>> {
+
+	private final Counters counters;
+
+	/**
+	 * Builds the domain.
+	 *
+	 * @param inner    the wrapped value domain
+	 * @param counters the counters where operations are recorded
+	 */
+	public InstrumentedValueDomain(V inner, Counters counters) {
+		super(inner);
+		this.counters = counters;
+	}
+
+	@Override
+	protected InstrumentedValueDomain<V> wrap(V inner) {
+		return new InstrumentedValueDomain<>(inner, counters);
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> assign(Identifier id, ValueExpression expression, ProgramPoint pp,
+			SemanticOracle oracle) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.assign(id, expression, pp, oracle);
+		} finally {
+			counters.record(Operation.ASSIGN, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> smallStepSemantics(ValueExpression expression, ProgramPoint pp,
+			SemanticOracle oracle) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.smallStepSemantics(expression, pp, oracle);
+		} finally {
+			counters.record(Operation.EVAL, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> assume(ValueExpression expression, ProgramPoint src, ProgramPoint dest,
+			SemanticOracle oracle) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.assume(expression, src, dest, oracle);
+		} finally {
+			counters.record(Operation.ASSUME, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp, SemanticOracle oracle)
+			throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.satisfies(expression, pp, oracle);
+		} finally {
+			counters.record(Operation.SATISFIES, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean lessOrEqual(InstrumentedValueDomain<V> other) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.lessOrEqual(other);
+		} finally {
+			counters.record(Operation.LESS_OR_EQUAL, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> lub(InstrumentedValueDomain<V> other) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.lub(other);
+		} finally {
+			counters.record(Operation.LUB, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> glb(InstrumentedValueDomain<V> other) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.glb(other);
+		} finally {
+			counters.record(Operation.GLB, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> widening(InstrumentedValueDomain<V> other) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.widening(other);
+		} finally {
+			counters.record(Operation.WIDENING, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public InstrumentedValueDomain<V> narrowing(InstrumentedValueDomain<V> other) throws SemanticException {
+		long start = System.nanoTime();
+		try {
+			return super.narrowing(other);
+		} finally {
+			counters.record(Operation.NARROWING, System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package it.unive.scsr.analysis;
+
+/**
+ * Helpers for the JSON files written by hand by the instrumentation and the
+ * reports of the analyses (statistics, convergence and footprint reports,
+ * SARIF logs, batch summaries), that are streamed or formatted without going
+ * through a JSON library.
+ */
+public final class Json {
+
+	private Json() {
+		// static utility
+	}
+
+	/**
+	 * Yields the JSON string literal of the given string: quotes, backslashes
+	 * and all control characters are escaped, so that any message or source
+	 * text yields valid JSON.
+	 *
+	 * @param s the string, possibly {@code null}
+	 *
+	 * @return the quoted string, or {@code null} if {@code s} is {@code null}
+	 */
+	public static String quote(String s) {
+		if (s == null)
+			return "null";
+
+		StringBuilder quoted = new StringBuilder(s.length() + 16).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				quoted.append("\\\"");
+				break;
+			case '\\':
+				quoted.append("\\\\");
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			case '\r':
+				quoted.append("\\r");
+				break;
+			case '\t':
+				quoted.append("\\t");
+				break;
+			case '\b':
+				quoted.append("\\b");
+				break;
+			case '\f':
+				quoted.append("\\f");
+				break;
+			default:
+				if (c < 0x20)
+					quoted.append(String.format("\\u%04x", (int) c));
+				else
+					quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
@@ -0,0 +1,234 @@
+package it.unive.scsr.analysis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * A cache of parsed IMP programs, keyed by the hash of the content of their
+ * source file and by the {@link TaintAnnotations} attached to them. Each
+ * distinct pair is parsed once, and the resulting {@link Program} is reused
+ * by the analyses asking for it one after the other.<br>
+ * <br>
+ * An analysis resolves calls and builds its call graph on the program it
+ * runs on, so a cached program is lent to a single analysis at a time: it
+ * is returned by {@link #get(String, TaintAnnotations)} and must be given
+ * back through {@link #release(Program)} once the analysis is over. While it
+ * is lent, concurrent requests for the same file and annotations get a
+ * fresh parse of their own, that is not cached.<br>
+ * <br>
+ * LiSA reads annotations directly from the program, so they cannot be
+ * layered on top of a cached instance: each set of annotations gets its own
+ * copy of the program, parsed and annotated before being lent.<br>
+ * <br>
+ * A long-running owner, such as the {@link AnalysisDaemon}, can bound the
+ * number of cached programs: the least recently requested ones are evicted
+ * first. In any case, when the content of a file changes, the programs
+ * parsed from its previous content are dropped.
+ */
+public class ProgramCache {
+
+	private final Map<Key, FutureTask<Program>> programs;
+
+	// the hash of the last parsed content of each file
+	private final Map<String, String> hashes = new HashMap<>();
+
+	// the keys of the cached programs currently lent
+	private final Set<Key> lent = new HashSet<>();
+
+	// the cached programs currently lent, with their keys
+	private final Map<Program, Key> leases = new IdentityHashMap<>();
+
+	/**
+	 * Builds a cache with no bound on the number of programs.
+	 */
+	public ProgramCache() {
+		this(0);
+	}
+
+	/**
+	 * Builds a cache holding at most the given number of programs.
+	 *
+	 * @param capacity the maximum number of programs, or a non-positive
+	 *                     value for no bound
+	 */
+	public ProgramCache(int capacity) {
+		// access order, so that the eldest entry is the least recently used
+		this.programs = new LinkedHashMap<Key, FutureTask<Program>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, FutureTask<Program>> eldest) {
+				return capacity > 0 && size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Yields the program in the given file, with no annotations. The program
+	 * has to be given back through {@link #release(Program)}.
+	 *
+	 * @param file the path of the IMP file
+	 *
+	 * @return the program
+	 *
+	 * @throws ParsingException if the file cannot be parsed
+	 */
+	public Program get(String file) throws ParsingException {
+		return get(file, TaintAnnotations.NONE);
+	}
+
+	/**
+	 * Yields the program in the given file, with the given annotations. The
+	 * program has to be given back through {@link #release(Program)}.
+	 *
+	 * @param file        the path of the IMP file
+	 * @param annotations the annotations
+	 *
+	 * @return the program
+	 *
+	 * @throws ParsingException if the file cannot be parsed
+	 */
+	public Program get(String file, TaintAnnotations annotations) throws ParsingException {
+		String hash = hash(file);
+		Key key = new Key(hash, annotations);
+		FutureTask<Program> task;
+		boolean available;
+		synchronized (programs) {
+			String previous = hashes.put(file, hash);
+			if (previous != null && !previous.equals(hash))
+				// the file changed: its previous versions will not be requested
+				// again, unless another file has the same content
+				programs.keySet().removeIf(k -> k.hash.equals(previous) && !hashes.containsValue(previous));
+			task = programs.computeIfAbsent(key, k -> new FutureTask<>(() -> parse(file, annotations)));
+			// reserved before parsing, so that concurrent callers do not wait
+			// for a program they could not use
+			available = lent.add(key);
+		}
+
+		if (!available)
+			return parse(file, annotations);
+		task.run();
+		try {
+			Program program = task.get();
+			synchronized (programs) {
+				leases.put(program, key);
+			}
+			return program;
+		} catch (ExecutionException e) {
+			// failures are not cached
+			synchronized (programs) {
+				programs.remove(key, task);
+				lent.remove(key);
+			}
+			if (e.getCause() instanceof ParsingException)
+				throw (ParsingException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("Cannot parse " + file, e.getCause());
+		} catch (InterruptedException e) {
+			synchronized (programs) {
+				lent.remove(key);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while parsing " + file, e);
+		}
+	}
+
+	/**
+	 * Gives back a program obtained from this cache, once the analysis using
+	 * it is over. Programs parsed for concurrent requests are simply dropped.
+	 *
+	 * @param program the program
+	 */
+	public void release(Program program) {
+		synchronized (programs) {
+			Key key = leases.remove(program);
+			if (key != null)
+				lent.remove(key);
+		}
+	}
+
+	/**
+	 * Yields the number of cached programs.
+	 *
+	 * @return the number of programs
+	 */
+	public int size() {
+		synchronized (programs) {
+			return programs.size();
+		}
+	}
+
+	/**
+	 * Removes all the cached programs.
+	 */
+	public void clear() {
+		synchronized (programs) {
+			programs.clear();
+			hashes.clear();
+			lent.clear();
+			leases.clear();
+		}
+	}
+
+	private static Program parse(String file, TaintAnnotations annotations) throws ParsingException {
+		Program program = IMPFrontend.processFile(file);
+		if (!annotations.isEmpty())
+			annotations.applyTo(program);
+		return program;
+	}
+
+	private static String hash(String file) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(Paths.get(file)));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + file, e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static class Key {
+		private final String hash;
+		private final TaintAnnotations annotations;
+
+		private Key(String hash, TaintAnnotations annotations) {
+			this.hash = hash;
+			this.annotations = annotations;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(hash, annotations);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash.equals(other.hash) && annotations.equals(other.annotations);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package it.unive.scsr.analysis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SourceCodeLocation;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.VariableTableEntry;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.datastructures.graph.GraphVisitor;
+
+/**
+ * Computes canonical forms of parsed programs, so that submissions differing
+ * only in layout, comments and names of local variables can be recognized as
+ * the same program. The canonical form of a {@link CFG} is made of its
+ * signature, of its nodes in source order (that layout does not change) and
+ * of its edges between them, where parameters and local variables are renamed
+ * after the order of their first occurrence. The canonical form of a
+ * {@link Unit} is made of its kind, its name, its immediate ancestors and its
+ * globals, so that programs differing only in their type hierarchies or
+ * fields are told apart. Units, code members and globals keep their names,
+ * since calls, field accesses and taint annotations refer to them: an
+ * identifier followed by an argument list, or preceded by a dot, is never
+ * renamed, even if a local variable has the same name.<br>
+ * <br>
+ * Programs with the same canonical form differ in the names of their local
+ * variables and in the positions of their statements, and LiSA embeds both
+ * in the messages of its warnings: {@link #translation(Program, Program)}
+ * rewrites the messages raised on a program into the ones raised on the
+ * other.
+ */
+public class ProgramCanonicalizer {
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+	private static final Comparator<Statement> SOURCE_ORDER = (a, b) -> {
+		CodeLocation l = a.getLocation(), r = b.getLocation();
+		if (l instanceof SourceCodeLocation && r instanceof SourceCodeLocation) {
+			SourceCodeLocation sl = (SourceCodeLocation) l, sr = (SourceCodeLocation) r;
+			int cmp = Integer.compare(sl.getLine(), sr.getLine());
+			return cmp != 0 ? cmp : Integer.compare(sl.getCol(), sr.getCol());
+		}
+		return String.valueOf(l).compareTo(String.valueOf(r));
+	};
+
+	private ProgramCanonicalizer() {
+		// static utility
+	}
+
+	/**
+	 * Yields the hash of the canonical form of the given program, that is, of
+	 * the sets of the canonical forms of its units and of its CFGs.
+	 *
+	 * @param program the program
+	 *
+	 * @return the hash, as an hexadecimal string
+	 */
+	public static String hash(Program program) {
+		List<String> units = new ArrayList<>();
+		for (Unit unit : program.getUnits())
+			units.add(canonicalize(unit));
+		Collections.sort(units);
+
+		List<String> cfgs = new ArrayList<>();
+		for (CFG cfg : program.getAllCFGs())
+			cfgs.add(sha256(canonicalize(cfg)));
+		Collections.sort(cfgs);
+		return sha256(String.join("", units) + "\n" + String.join("\n", cfgs));
+	}
+
+	/**
+	 * Yields the canonical form of the given unit.
+	 *
+	 * @param unit the unit
+	 *
+	 * @return the canonical form
+	 */
+	public static String canonicalize(Unit unit) {
+		StringBuilder result = new StringBuilder();
+		result.append(unit.getClass().getSimpleName()).append(' ').append(unit.getName());
+
+		List<String> members = new ArrayList<>();
+		if (unit instanceof CompilationUnit) {
+			CompilationUnit cu = (CompilationUnit) unit;
+			List<String> ancestors = new ArrayList<>();
+			for (CompilationUnit ancestor : cu.getImmediateAncestors())
+				ancestors.add(ancestor.getName());
+			Collections.sort(ancestors);
+			result.append(" extends ").append(String.join(", ", ancestors));
+			for (Global global : cu.getInstanceGlobals(false))
+				members.add("instance " + global.getName() + ": " + global.getStaticType());
+		}
+		for (Global global : unit.getGlobals())
+			members.add("global " + global.getName() + ": " + global.getStaticType());
+		Collections.sort(members);
+
+		result.append('\n');
+		for (String member : members)
+			result.append(member).append('\n');
+		return result.toString();
+	}
+
+	/**
+	 * Yields the canonical form of the given CFG.
+	 *
+	 * @param cfg the CFG
+	 *
+	 * @return the canonical form
+	 */
+	public static String canonicalize(CFG cfg) {
+		Set<String> locals = new HashSet<>();
+		for (Parameter formal : cfg.getDescriptor().getFormals())
+			locals.add(formal.getName());
+		for (VariableTableEntry variable : cfg.getDescriptor().getVariables())
+			locals.add(variable.getName());
+
+		List<Statement> nodes = new ArrayList<>(cfg.getNodes());
+		nodes.sort(SOURCE_ORDER);
+		Map<Statement, Integer> ids = new HashMap<>();
+		for (Statement node : nodes)
+			ids.put(node, ids.size());
+
+		// parameters are renamed first, so that their order is preserved
+		Map<String, String> names = new HashMap<>();
+		StringBuilder result = new StringBuilder();
+		result.append(cfg.getDescriptor().getUnit().getName()).append("::").append(cfg.getDescriptor().getName())
+				.append('(');
+		Parameter[] formals = cfg.getDescriptor().getFormals();
+		for (int i = 0; i < formals.length; i++)
+			result.append(i > 0 ? ", " : "").append(rename(formals[i].getName(), locals, names));
+		result.append(")\n");
+
+		for (Statement node : nodes)
+			result.append(ids.get(node)).append(' ').append(node.getClass().getSimpleName()).append(' ')
+					.append(rename(node.toString(), locals, names)).append('\n');
+
+		List<String> edges = new ArrayList<>();
+		for (Edge edge : cfg.getEdges())
+			edges.add(ids.get(edge.getSource()) + " -> " + ids.get(edge.getDestination()) + " "
+					+ edge.getClass().getSimpleName());
+		Collections.sort(edges);
+		for (String edge : edges)
+			result.append(edge).append('\n');
+		return result.toString();
+	}
+
+	/**
+	 * Yields a function translating the messages of the warnings raised on a
+	 * program into the ones that would be raised on another program with the
+	 * same canonical form. The locations, the signatures and the text of the
+	 * compound expressions of each CFG of the first program are replaced by
+	 * the ones of the corresponding CFG of the second, picked through the
+	 * first location found in the message.
+	 *
+	 * @param from the program the warnings were raised on
+	 * @param to   a program with the same canonical form
+	 *
+	 * @return the translating function
+	 */
+	public static UnaryOperator<String> translation(Program from, Program to) {
+		Map<String, CFG> targets = new HashMap<>();
+		for (CFG cfg : to.getAllCFGs())
+			targets.put(canonicalize(cfg), cfg);
+
+		// the replacements of each CFG, keyed by all its locations
+		Map<String, Map<String, String>> byLocation = new HashMap<>();
+		for (CFG cfg : from.getAllCFGs()) {
+			CFG target = targets.get(canonicalize(cfg));
+			if (target == null)
+				continue;
+			List<Statement> sources = expressions(cfg), destinations = expressions(target);
+			if (sources.size() != destinations.size())
+				continue;
+
+			Map<String, String> replacements = new HashMap<>();
+			List<String> locations = new ArrayList<>();
+			locations.add(String.valueOf(cfg.getDescriptor().getLocation()));
+			replacements.put(locations.get(0), String.valueOf(target.getDescriptor().getLocation()));
+			replacements.put(cfg.getDescriptor().getFullSignatureWithParNames(),
+					target.getDescriptor().getFullSignatureWithParNames());
+			for (int i = 0; i < sources.size(); i++) {
+				Statement source = sources.get(i), destination = destinations.get(i);
+				String location = String.valueOf(source.getLocation());
+				locations.add(location);
+				replacements.put(location, String.valueOf(destination.getLocation()));
+				// a lone variable would match words of the message too
+				if (!IDENTIFIER.matcher(source.toString()).matches())
+					replacements.put(source.toString(), destination.toString());
+			}
+			replacements.entrySet().removeIf(e -> e.getKey().equals(e.getValue()));
+			for (String location : locations)
+				byLocation.put(location, replacements);
+		}
+
+		if (byLocation.isEmpty())
+			return UnaryOperator.identity();
+		Pattern locations = alternation(byLocation.keySet());
+		return message -> {
+			Matcher m = locations.matcher(message);
+			Map<String, String> replacements = m.find() ? byLocation.get(m.group()) : null;
+			if (replacements == null || replacements.isEmpty())
+				return message;
+			Matcher r = alternation(replacements.keySet()).matcher(message);
+			StringBuffer result = new StringBuffer();
+			while (r.find())
+				r.appendReplacement(result, Matcher.quoteReplacement(replacements.get(r.group())));
+			r.appendTail(result);
+			return result.toString();
+		};
+	}
+
+	private static List<Statement> expressions(CFG cfg) {
+		List<Statement> nodes = new ArrayList<>(cfg.getNodes());
+		nodes.sort(SOURCE_ORDER);
+		List<Statement> expressions = new ArrayList<>();
+		Collector collector = new Collector();
+		for (Statement node : nodes)
+			node.accept(collector, expressions);
+		return expressions;
+	}
+
+	// the longest texts first, each one matched only as a whole word
+	private static Pattern alternation(Set<String> texts) {
+		List<String> sorted = new ArrayList<>(texts);
+		sorted.sort(Comparator.comparingInt(String::length).reversed());
+		List<String> patterns = new ArrayList<>(sorted.size());
+		for (String text : sorted)
+			patterns.add((isIdentifierPart(text.charAt(0)) ? "(?<![A-Za-z0-9_])" : "") + Pattern.quote(text)
+					+ (isIdentifierPart(text.charAt(text.length() - 1)) ? "(?![A-Za-z0-9_])" : ""));
+		return Pattern.compile(String.join("|", patterns));
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+	}
+
+	private static String rename(String text, Set<String> locals, Map<String, String> names) {
+		Matcher m = IDENTIFIER.matcher(text);
+		StringBuffer result = new StringBuffer();
+		while (m.find()) {
+			String id = m.group();
+			String replacement = locals.contains(id) && !isMember(text, m.start(), m.end())
+					? names.computeIfAbsent(id, k -> "v" + names.size())
+					: id;
+			m.appendReplacement(result, Matcher.quoteReplacement(replacement));
+		}
+		m.appendTail(result);
+		return result.toString();
+	}
+
+	// whether the identifier between start and end is a called or accessed member
+	private static boolean isMember(String text, int start, int end) {
+		if (start > 0 && text.charAt(start - 1) == '.')
+			return true;
+		int next = end;
+		while (next < text.length() && Character.isWhitespace(text.charAt(next)))
+			next++;
+		return next < text.length() && text.charAt(next) == '(';
+	}
+
+	private static String sha256(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static class Collector implements GraphVisitor<CFG, Statement, Edge, List<Statement>> {
+
+		@Override
+		public boolean visit(List<Statement> tool, CFG graph) {
+			return true;
+		}
+
+		@Override
+		public boolean visit(List<Statement> tool, CFG graph, Statement node) {
+			tool.add(node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(List<Statement> tool, CFG graph, Edge edge) {
+			return true;
+		}
+	}
+}
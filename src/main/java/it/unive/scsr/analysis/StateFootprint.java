@@ -0,0 +1,170 @@
+package it.unive.scsr.analysis;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.lattices.FunctionalLattice;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.scsr.Pentagons;
+import it.unive.scsr.UpperBounds;
+
+/**
+ * The footprint of a single value state: the number of identifiers it tracks,
+ * the number of upper-bound edges (for {@link Pentagons}), the number of
+ * mappings to top and to bottom, and an approximation of the bytes it retains.
+ * The approximation only accounts for the mappings and their values, since
+ * identifiers are shared among all the states of a CFG.
+ */
+public class StateFootprint {
+
+	/**
+	 * Approximate size of an entry of a hash-based map or set (node, table
+	 * slot and boxed hash).
+	 */
+	private static final int ENTRY_BYTES = 48;
+
+	/**
+	 * Approximate size of an empty hash-based map or set.
+	 */
+	private static final int MAP_BYTES = 64;
+
+	/**
+	 * Approximate size of a lattice element stored as the value of a mapping.
+	 */
+	private static final int VALUE_BYTES = 64;
+
+	private final boolean known;
+
+	private final int identifiers;
+
+	private final int upperBoundEdges;
+
+	private final int tops;
+
+	private final int bottoms;
+
+	private final long bytes;
+
+	private StateFootprint(boolean known, int identifiers, int upperBoundEdges, int tops, int bottoms, long bytes) {
+		this.known = known;
+		this.identifiers = identifiers;
+		this.upperBoundEdges = upperBoundEdges;
+		this.tops = tops;
+		this.bottoms = bottoms;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Computes the footprint of the given value state, removing any
+	 * {@link ForwardingValueDomain} layer wrapping it.
+	 *
+	 * @param state the value state
+	 *
+	 * @return the footprint
+	 */
+	public static StateFootprint of(ValueDomain<?> state) {
+		Object value = state;
+		while (value instanceof ForwardingValueDomain)
+			value = ((ForwardingValueDomain<?, ?>) value).inner;
+
+		if (value instanceof Pentagons) {
+			Pentagons pentagons = (Pentagons) value;
+			StateFootprint intervals = ofFunction(pentagons.getIntervals(), 0);
+			int edges = 0;
+			Map<Identifier, UpperBounds> bounds = pentagons.getUpperBounds().getMap();
+			if (bounds != null)
+				for (UpperBounds b : bounds.values())
+					for (@SuppressWarnings("unused")
+					Identifier id : b)
+						edges++;
+			StateFootprint upperBounds = ofFunction(pentagons.getUpperBounds(), edges);
+
+			Set<Object> ids = new HashSet<>(pentagons.getIntervals().getKeys());
+			ids.addAll(pentagons.getUpperBounds().getKeys());
+			return new StateFootprint(true, ids.size(), edges,
+					intervals.tops + upperBounds.tops,
+					intervals.bottoms + upperBounds.bottoms,
+					intervals.bytes + upperBounds.bytes);
+		}
+
+		if (value instanceof FunctionalLattice)
+			return ofFunction((FunctionalLattice<?, ?, ?>) value, 0);
+
+		return new StateFootprint(false, 0, 0, 0, 0, 0);
+	}
+
+	private static StateFootprint ofFunction(FunctionalLattice<?, ?, ?> function, int setElements) {
+		Map<?, ?> map = function.getMap();
+		if (map == null)
+			return new StateFootprint(true, 0, 0, 0, 0, 0);
+
+		int tops = 0, bottoms = 0;
+		for (Object v : map.values())
+			if (((Lattice<?>) v).isTop())
+				tops++;
+			else if (((Lattice<?>) v).isBottom())
+				bottoms++;
+
+		long bytes = MAP_BYTES + (long) map.size() * (ENTRY_BYTES + VALUE_BYTES)
+				+ (long) setElements * ENTRY_BYTES;
+		return new StateFootprint(true, map.size(), 0, tops, bottoms, bytes);
+	}
+
+	/**
+	 * Yields whether the footprint of the state could be computed: states of
+	 * unsupported domains yield all-zero footprints.
+	 *
+	 * @return {@code true} if the footprint is known
+	 */
+	public boolean isKnown() {
+		return known;
+	}
+
+	/**
+	 * Yields the number of tracked identifiers.
+	 *
+	 * @return the number of identifiers
+	 */
+	public int getIdentifiers() {
+		return identifiers;
+	}
+
+	/**
+	 * Yields the number of upper-bound edges.
+	 *
+	 * @return the number of edges
+	 */
+	public int getUpperBoundEdges() {
+		return upperBoundEdges;
+	}
+
+	/**
+	 * Yields the number of identifiers mapped to top.
+	 *
+	 * @return the number of top mappings
+	 */
+	public int getTops() {
+		return tops;
+	}
+
+	/**
+	 * Yields the number of identifiers mapped to bottom.
+	 *
+	 * @return the number of bottom mappings
+	 */
+	public int getBottoms() {
+		return bottoms;
+	}
+
+	/**
+	 * Yields the approximate number of bytes retained by the state.
+	 *
+	 * @return the approximate size
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+}
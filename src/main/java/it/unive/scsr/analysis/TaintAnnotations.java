@@ -0,0 +1,159 @@
+package it.unive.scsr.analysis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import it.unive.lisa.program.ClassUnit;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.scsr.TaintThreeLevels;
+import it.unive.scsr.checkers.TaintThreeLevelsChecker;
+
+/**
+ * An immutable set of taint annotations to attach to a program: the names of
+ * the methods whose result is tainted (sources) or clean (sanitizers), and of
+ * the methods whose parameters are sinks. Instances are values, and are used
+ * by {@link ProgramCache} to tell apart the differently annotated versions of
+ * the same program.
+ */
+public final class TaintAnnotations {
+
+	/**
+	 * No annotations.
+	 */
+	public static final TaintAnnotations NONE = new TaintAnnotations(new String[0], new String[0], new String[0]);
+
+	private final SortedSet<String> sources;
+
+	private final SortedSet<String> sanitizers;
+
+	private final SortedSet<String> sinks;
+
+	/**
+	 * Builds the annotations.
+	 *
+	 * @param sources    the names of the source methods
+	 * @param sanitizers the names of the sanitizer methods
+	 * @param sinks      the names of the methods whose parameters are sinks
+	 */
+	public TaintAnnotations(String[] sources, String[] sanitizers, String[] sinks) {
+		this.sources = Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(sources)));
+		this.sanitizers = Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(sanitizers)));
+		this.sinks = Collections.unmodifiableSortedSet(new TreeSet<>(Arrays.asList(sinks)));
+	}
+
+	/**
+	 * Yields the names of the source methods.
+	 *
+	 * @return the names
+	 */
+	public Set<String> getSources() {
+		return sources;
+	}
+
+	/**
+	 * Yields the names of the sanitizer methods.
+	 *
+	 * @return the names
+	 */
+	public Set<String> getSanitizers() {
+		return sanitizers;
+	}
+
+	/**
+	 * Yields the names of the methods whose parameters are sinks.
+	 *
+	 * @return the names
+	 */
+	public Set<String> getSinks() {
+		return sinks;
+	}
+
+	/**
+	 * Whether these annotations are empty.
+	 *
+	 * @return {@code true} if no method is annotated
+	 */
+	public boolean isEmpty() {
+		return sources.isEmpty() && sanitizers.isEmpty() && sinks.isEmpty();
+	}
+
+	/**
+	 * Attaches these annotations to the instance code members of the class
+	 * units of the given program, that must not be shared yet.
+	 *
+	 * @param program the program
+	 *
+	 * @return the number of annotated sources, sanitizers and sink parameters
+	 */
+	int[] applyTo(Program program) {
+		return visit(program, true);
+	}
+
+	/**
+	 * Yields a summary of the members of the given program these annotations
+	 * apply to, without modifying it. Since the program may be shared, this
+	 * is the way for callers to report what has been annotated.
+	 *
+	 * @param program the program
+	 *
+	 * @return the number of sources, sanitizers and sink parameters, as text
+	 */
+	public String summary(Program program) {
+		int[] found = visit(program, false);
+		return found[0] + " sources, " + found[1] + " sanitizers, " + found[2] + " sink parameters";
+	}
+
+	private int[] visit(Program program, boolean annotate) {
+		int sourcesFound = 0, sanitizersFound = 0, sinksFound = 0;
+		for (Unit unit : program.getUnits()) {
+			if (!(unit instanceof ClassUnit))
+				continue;
+			for (CodeMember cm : ((ClassUnit) unit).getInstanceCodeMembers(false)) {
+				String name = cm.getDescriptor().getName();
+				if (sources.contains(name)) {
+					if (annotate)
+						cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.TAINTED_ANNOTATION);
+					sourcesFound++;
+				}
+				if (sanitizers.contains(name)) {
+					if (annotate)
+						cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.CLEAN_ANNOTATION);
+					sanitizersFound++;
+				}
+				if (sinks.contains(name))
+					for (Parameter param : cm.getDescriptor().getFormals()) {
+						if (annotate)
+							param.addAnnotation(TaintThreeLevelsChecker.SINK_ANNOTATION);
+						sinksFound++;
+					}
+			}
+		}
+		return new int[] { sourcesFound, sanitizersFound, sinksFound };
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * sources.hashCode() + sanitizers.hashCode()) + sinks.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof TaintAnnotations))
+			return false;
+		TaintAnnotations other = (TaintAnnotations) obj;
+		return sources.equals(other.sources) && sanitizers.equals(other.sanitizers) && sinks.equals(other.sinks);
+	}
+
+	@Override
+	public String toString() {
+		return "sources=" + sources + ", sanitizers=" + sanitizers + ", sinks=" + sinks;
+	}
+}
@@ -0,0 +1,172 @@
+package it.unive.scsr.analysis;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a bounded number of threads at a time, each within a time
+ * limit counted from its submission. Submitting blocks until a thread is
+ * free, so that the limit of a task does not include the time spent waiting
+ * for the others.<br>
+ * <br>
+ * A task exceeding its limit is cancelled and its thread is interrupted, but
+ * the thread is not waited for: its slot is released right away and the next
+ * task runs on a new thread, so that a task ignoring interruption (e.g., a
+ * fixpoint that never converges) cannot starve the others. Threads are
+ * daemons, so abandoned ones do not prevent the JVM from exiting.
+ */
+class TimeLimitedExecutor implements AutoCloseable {
+
+	private final Semaphore slots;
+
+	private final long timeoutMillis;
+
+	private final ExecutorService threads;
+
+	private final ScheduledExecutorService watchdog;
+
+	/**
+	 * Builds the executor.
+	 *
+	 * @param threads       the number of tasks running at the same time
+	 * @param timeoutMillis the time limit of each task, in milliseconds, or a
+	 *                          non-positive value for no limit
+	 * @param name          the prefix of the names of the threads
+	 */
+	TimeLimitedExecutor(int threads, long timeoutMillis, String name) {
+		this.slots = new Semaphore(Math.max(1, threads));
+		this.timeoutMillis = timeoutMillis;
+		// threads of cancelled tasks may never become idle again, so the pool
+		// is not bounded: the semaphore is
+		this.threads = Executors.newCachedThreadPool(daemon(name));
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon(name + "-watchdog"));
+	}
+
+	/**
+	 * Yields a factory of daemon threads named after the given prefix.
+	 *
+	 * @param name the prefix of the names of the threads
+	 *
+	 * @return the factory
+	 */
+	static ThreadFactory daemon(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Submits a task, waiting for a thread to be free. The time limit of the
+	 * task starts now.
+	 *
+	 * @param <T>  the type of the result of the task
+	 * @param task the task
+	 *
+	 * @return the running task
+	 *
+	 * @throws InterruptedException if interrupted while waiting for a thread
+	 */
+	<T> Task<T> submit(Callable<T> task) throws InterruptedException {
+		slots.acquire();
+		Task<T> running = new Task<>(task);
+		try {
+			threads.execute(running);
+		} catch (RejectedExecutionException e) {
+			running.release();
+			throw e;
+		}
+		if (timeoutMillis > 0)
+			running.alarm = watchdog.schedule(() -> running.cancel(true), timeoutMillis, TimeUnit.MILLISECONDS);
+		return running;
+	}
+
+	@Override
+	public void close() {
+		// cancelled tasks may still be running on their daemon threads
+		threads.shutdownNow();
+		watchdog.shutdownNow();
+	}
+
+	/**
+	 * A task submitted to the executor.
+	 *
+	 * @param <T> the type of its result
+	 */
+	class Task<T> extends FutureTask<T> {
+
+		private final long submitted = System.currentTimeMillis();
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private volatile ScheduledFuture<?> alarm;
+
+		private Task(Callable<T> callable) {
+			super(callable);
+		}
+
+		/**
+		 * Yields the time elapsed since the submission of this task.
+		 *
+		 * @return the time, in milliseconds
+		 */
+		long elapsed() {
+			return System.currentTimeMillis() - submitted;
+		}
+
+		/**
+		 * Waits for the result of this task, at most until its time limit
+		 * expires. If it does, the task is cancelled.
+		 *
+		 * @return the result
+		 *
+		 * @throws InterruptedException if interrupted while waiting
+		 * @throws ExecutionException   if the task failed
+		 * @throws TimeoutException     if the time limit expired, also when
+		 *                                  the task has been cancelled by the
+		 *                                  watchdog
+		 */
+		T await() throws InterruptedException, ExecutionException, TimeoutException {
+			try {
+				if (timeoutMillis <= 0)
+					return get();
+				return get(Math.max(0, submitted + timeoutMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			} catch (CancellationException e) {
+				throw new TimeoutException();
+			} catch (TimeoutException e) {
+				cancel(true);
+				throw e;
+			}
+		}
+
+		@Override
+		protected void done() {
+			// on completion, failure or cancellation, even if the thread is
+			// still stuck in the task
+			release();
+			ScheduledFuture<?> pending = alarm;
+			if (pending != null)
+				pending.cancel(false);
+		}
+
+		private void release() {
+			if (released.compareAndSet(false, true))
+				slots.release();
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package it.unive.scsr.checkers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.AnalysisState;
+import it.unive.lisa.analysis.AnalyzedCFG;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.call.Call;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+
+/**
+ * The analysis results of a single CFG, shared among the checks visiting it.
+ * The results of each context are fetched from the tool once, and the
+ * post-state of each statement and the resolved version of each call are
+ * computed once per context, no matter how many checks ask for them.
+ * Warnings are raised through this object as well, and are streamed to the
+ * {@link SarifReport} of the tool, if any.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public class AnalysisResults<A extends AbstractState<A>> {
+
+	private final CheckToolWithAnalysisResults<A> tool;
+
+	private final CFG graph;
+
+	private final List<AnalyzedCFG<A>> results;
+
+	private final Map<AnalyzedCFG<A>, Map<Statement, AnalysisState<A>>> states = new IdentityHashMap<>();
+
+	private final Map<AnalyzedCFG<A>, Map<UnresolvedCall, Call>> calls = new IdentityHashMap<>();
+
+	private final List<Warning> buffer;
+
+	private final WarningAggregator aggregator;
+
+	private IndexedCheck<A> current;
+
+	/**
+	 * Builds the results of the given CFG.
+	 *
+	 * @param tool  the tool providing the results
+	 * @param graph the CFG
+	 */
+	public AnalysisResults(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		this(tool, graph, false, null);
+	}
+
+	/**
+	 * Builds the results of the given CFG, optionally buffering the warnings
+	 * raised through them until {@link #flush()} is invoked. The results of
+	 * the CFG are fetched from the tool here, so buffered results must be
+	 * built on the thread running the checks: once the calls of the CFG have
+	 * been resolved through {@link #resolveCalls(Collection)}, also on that
+	 * thread, they can be visited by another one without touching the tool.
+	 *
+	 * @param tool     the tool providing the results
+	 * @param graph    the CFG
+	 * @param buffered   whether warnings have to be buffered
+	 * @param aggregator the aggregator of the warnings raised from templates,
+	 *                       or {@code null} to raise them right away
+	 */
+	AnalysisResults(CheckToolWithAnalysisResults<A> tool, CFG graph, boolean buffered,
+			WarningAggregator aggregator) {
+		this.tool = tool;
+		this.graph = graph;
+		this.results = Collections.unmodifiableList(new ArrayList<>(tool.getResultOf(graph)));
+		this.buffer = buffered ? new ArrayList<>() : null;
+		this.aggregator = aggregator;
+	}
+
+	/**
+	 * Yields the aggregator of the warnings raised through these results.
+	 *
+	 * @return the aggregator, or {@code null} if warnings are not aggregated
+	 */
+	WarningAggregator getAggregator() {
+		return aggregator;
+	}
+
+	/**
+	 * Builds the results of the given CFG for a check visiting it on its own,
+	 * outside of {@link IndexedChecks}.
+	 *
+	 * @param <A>   the type of abstract state of the analysis
+	 * @param check the check
+	 * @param tool  the tool providing the results
+	 * @param graph the CFG
+	 *
+	 * @return the results, whose warnings are attributed to the check
+	 */
+	static <A extends AbstractState<A>> AnalysisResults<A> of(IndexedCheck<A> check,
+			CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		AnalysisResults<A> results = new AnalysisResults<>(tool, graph);
+		results.setCurrentCheck(check);
+		return results;
+	}
+
+	/**
+	 * Sets the check whose warnings are being raised, used to aggregate them
+	 * and to identify their rule in the {@link SarifReport}.
+	 *
+	 * @param check the check
+	 */
+	void setCurrentCheck(IndexedCheck<A> check) {
+		this.current = check;
+	}
+
+	/**
+	 * Yields the tool providing the results.
+	 *
+	 * @return the tool
+	 */
+	public CheckToolWithAnalysisResults<A> getTool() {
+		return tool;
+	}
+
+	/**
+	 * Yields the CFG these results refer to.
+	 *
+	 * @return the CFG
+	 */
+	public CFG getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Yields the results of the CFG, one for each context it has been
+	 * analyzed in.
+	 *
+	 * @return the results
+	 */
+	public List<AnalyzedCFG<A>> getResults() {
+		return results;
+	}
+
+	/**
+	 * Yields the post-state of the given statement in the given result.
+	 *
+	 * @param result the result, one of {@link #getResults()}
+	 * @param st     the statement
+	 *
+	 * @return the post-state
+	 */
+	public AnalysisState<A> stateAfter(AnalyzedCFG<A> result, Statement st) {
+		return states.computeIfAbsent(result, r -> new IdentityHashMap<>())
+				.computeIfAbsent(st, result::getAnalysisStateAfter);
+	}
+
+	/**
+	 * Yields the resolved version of the given call in the given result.
+	 *
+	 * @param call   the call
+	 * @param result the result, one of {@link #getResults()}
+	 *
+	 * @return the resolved call, or {@code null} if it cannot be found
+	 */
+	public Call getResolvedVersion(UnresolvedCall call, AnalyzedCFG<A> result) {
+		Map<UnresolvedCall, Call> resolved = calls.computeIfAbsent(result, r -> new IdentityHashMap<>());
+		if (resolved.containsKey(call))
+			return resolved.get(call);
+		Call target;
+		if (buffer == null)
+			target = tool.getResolvedVersion(call, result);
+		else
+			// not resolved in advance: the call graph caches resolutions, so
+			// workers must not query it concurrently
+			synchronized (tool) {
+				target = tool.getResolvedVersion(call, result);
+			}
+		resolved.put(call, target);
+		return target;
+	}
+
+	/**
+	 * Resolves the given calls in all the results of the CFG, so that
+	 * {@link #getResolvedVersion(UnresolvedCall, AnalyzedCFG)} does not need
+	 * to query the tool when these results are visited on another thread.
+	 *
+	 * @param statements the calls, typically the
+	 *                       {@link StatementKind#UNRESOLVED_CALL} statements
+	 *                       of the CFG
+	 */
+	void resolveCalls(Collection<Statement> statements) {
+		for (AnalyzedCFG<A> result : results)
+			for (Statement st : statements)
+				if (st instanceof UnresolvedCall)
+					getResolvedVersion((UnresolvedCall) st, result);
+	}
+
+	/**
+	 * Raises a warning on the given statement.
+	 *
+	 * @param st      the statement
+	 * @param message the message of the warning
+	 */
+	public void warnOn(Statement st, String message) {
+		Class<?> check = current == null ? null : current.getClass();
+		if (buffer != null)
+			buffer.add(new Warning(check, st, message));
+		else
+			SarifReport.warnOn(tool, check, st, message);
+	}
+
+	/**
+	 * Raises a warning on the given statement, with a message built from the
+	 * given template and arguments. If warnings are aggregated, the message
+	 * is formatted only once for all the contexts raising it, when the
+	 * aggregated warnings are raised on the tool.
+	 *
+	 * @param context   the result, one of {@link #getResults()}, in which the
+	 *                      warning is raised
+	 * @param st        the statement
+	 * @param template  the message template, in {@link String#format} syntax
+	 * @param arguments the arguments of the template
+	 */
+	public void warnOn(AnalyzedCFG<A> context, Statement st, String template, Object... arguments) {
+		if (aggregator != null)
+			aggregator.add(current == null ? null : current.getClass(), context, st, template, arguments);
+		else
+			warnOn(st, String.format(template, arguments));
+	}
+
+	/**
+	 * Raises on the tool the buffered warnings, in the order they have been
+	 * raised.
+	 */
+	void flush() {
+		if (buffer == null)
+			return;
+		for (Warning w : buffer)
+			SarifReport.warnOn(tool, w.check, w.statement, w.message);
+		buffer.clear();
+	}
+
+	private static class Warning {
+		private final Class<?> check;
+		private final Statement statement;
+		private final String message;
+
+		private Warning(Class<?> check, Statement statement, String message) {
+			this.check = check;
+			this.statement = statement;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package it.unive.scsr.checkers;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.analysis.AnalysisBudget;
+
+/**
+ * Marks in the report the CFGs whose analysis exceeded its
+ * {@link AnalysisBudget}, and whose results have thus been forced to top.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public class DegradedResultsChecker<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	private final AnalysisBudget budget;
+
+	public DegradedResultsChecker(AnalysisBudget budget) {
+		this.budget = budget;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		String reason = budget.getReason(graph);
+		if (reason != null)
+			SarifReport.warnOn(tool, getClass(), graph, "[DEGRADED] Analysis budget exceeded (" + reason
+					+ "): results of this CFG have been forced to top and may be imprecise");
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+		return true;
+	}
+}
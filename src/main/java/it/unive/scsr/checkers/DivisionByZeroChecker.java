@@ -1,8 +1,16 @@
 package it.unive.scsr.checkers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import it.unive.lisa.analysis.AnalysisState;
 import it.unive.lisa.analysis.AnalyzedCFG;
@@ -13,7 +21,6 @@ import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
-import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.program.cfg.CFG;
 import it.unive.lisa.program.cfg.statement.Statement;
 import it.unive.lisa.program.cfg.statement.numeric.Division;
@@ -25,77 +32,140 @@ import it.unive.lisa.util.numeric.MathNumber;
 import it.unive.lisa.util.numeric.MathNumberConversionException;
 import it.unive.scsr.Intervals;
 import it.unive.scsr.NumericalSize; 
+import it.unive.scsr.analysis.ForwardingValueDomain;
 
-public class DivisionByZeroChecker implements SemanticCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
+public class DivisionByZeroChecker implements IndexedCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
+
+	private static final Set<StatementKind> KINDS = EnumSet.of(StatementKind.DIVISION);
 	
 	private NumericalSize size;
+
+	private final AtomicLong reachabilityQueries = new AtomicLong();
+
+	private final AtomicLong evaluations = new AtomicLong();
+
+	// the results of the CFG being visited when this check is registered on
+	// its own, fetched at its first statement of interest
+	private AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> standalone;
 	
 	public DivisionByZeroChecker(NumericalSize size) {
 		this.size = size;
 	}
 
+	@Override
+	public Set<StatementKind> kinds() {
+		return KINDS;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph) {
+		standalone = null;
+		return true;
+	}
+
 	@Override
 	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph, Statement node) {
+		if (KINDS.contains(StatementKind.of(node))) {
+			if (standalone == null)
+				standalone = AnalysisResults.of(this, tool, graph);
+			return visit(tool, standalone, node);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, Statement node) {
 		
 		if(node instanceof Division)
-			checkDivision(tool, graph, (Division) node);
+			checkDivision(results, (Division) node);
 
 		return true;
 	}
 
-	private void checkDivision(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph, Division div) {
+	private void checkDivision(AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, Division div) {
 
-		for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result : tool.getResultOf(graph)) {
+		// contexts often reach the division with equal states: the divisors
+		// are computed once per distinct state, and forgotten with the division
+		Map<List<Object>, List<Intervals>> divisions = new HashMap<>();
+		Map<List<Object>, Set<Type>> types = new HashMap<>();
+		for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result : results.getResults()) {
 			
-			AnalysisState<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> state = result.getAnalysisStateAfter(div.getRight());
+			AnalysisState<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> state = results.stateAfter(result, div.getRight());
+			SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> inner = state.getState();
 			
-			Set<SymbolicExpression> reachableIds = new HashSet<>();
-			Iterator<SymbolicExpression> comExprIterator = state.getComputedExpressions().iterator();
-			if(comExprIterator.hasNext()) {
-				SymbolicExpression divisor = comExprIterator.next();
-				try {
-					reachableIds.addAll(state.getState().reachableFrom(divisor, div, state.getState()).elements);
-					
-					for (SymbolicExpression s : reachableIds) {
-						Set<Type> types = getPossibleDynamicTypes(s, div, state.getState());
-					
-						// Check if it's a numerical type
-						boolean isNumerical = false;
-						for (Type type : types) {
-							if (isNumericalType(type)) {
-								isNumerical = true;
-								break;
-							}
-						}
-						
-						if (!isNumerical && !types.isEmpty()) {
-							// Not a numerical type, skip division by zero check
-							continue;
-						}
+			List<Object> key = Arrays.asList(state.getComputedExpressions(), inner.getHeapState(),
+					ForwardingValueDomain.valueStateOf(inner), inner.getTypeState());
+			List<Intervals> divisors = divisions.get(key);
+			if (divisors == null) {
+				divisors = computeDivisors(div, state, types);
+				divisions.put(key, divisors);
+			}
+			
+			for (Intervals intervalAbstractValue : divisors)
+				checkDivisionByZero(results, result, div, intervalAbstractValue);
+		}
+	}
+
+	private List<Intervals> computeDivisors(Division div, AnalysisState<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> state, Map<List<Object>, Set<Type>> types) {
 		
-						ValueEnvironment<Intervals> valueState = state.getState().getValueState();
-						Intervals intervalAbstractValue = valueState.eval((ValueExpression) s, div, state.getState());
-						
-						checkDivisionByZero(tool, div, intervalAbstractValue, s);
-					}
-				} catch (SemanticException e) {
-					e.printStackTrace();
-				}
+		// all computed expressions are checked, not only the first one
+		Set<SymbolicExpression> reachableIds = new LinkedHashSet<>();
+		for (SymbolicExpression divisor : state.getComputedExpressions())
+			try {
+				reachabilityQueries.incrementAndGet();
+				reachableIds.addAll(state.getState().reachableFrom(divisor, div, state.getState()).elements);
+			} catch (SemanticException e) {
+				e.printStackTrace();
+			}
+		
+		List<Intervals> divisors = new ArrayList<>(reachableIds.size());
+		for (SymbolicExpression s : reachableIds)
+			try {
+				evaluate(s, div, state.getState(), types).ifPresent(divisors::add);
+			} catch (SemanticException e) {
+				e.printStackTrace();
 			}
+		return divisors;
+	}
+
+	private Optional<Intervals> evaluate(SymbolicExpression s, Division div, SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state, Map<List<Object>, Set<Type>> cache) throws SemanticException {
+		List<Object> key = Arrays.asList(s, state.getHeapState(), state.getTypeState());
+		Set<Type> types = cache.get(key);
+		if (types == null) {
+			types = getPossibleDynamicTypes(s, div, state);
+			cache.put(key, types);
+		}
+		
+		// Check if it's a numerical type
+		boolean isNumerical = false;
+		for (Type type : types) {
+			if (NumericTypes.isNumerical(type)) {
+				isNumerical = true;
+				break;
+			}
+		}
+		
+		if (!isNumerical && !types.isEmpty()) {
+			// Not a numerical type, skip division by zero check
+			return Optional.empty();
 		}
+
+		evaluations.incrementAndGet();
+		ValueEnvironment<Intervals> valueState = ForwardingValueDomain.valueStateOf(state);
+		return Optional.of(valueState.eval((ValueExpression) s, div, state));
 	}
 	
-	private void checkDivisionByZero(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, Division div, Intervals intervals, SymbolicExpression divisorExpr) {
+	private void checkDivisionByZero(AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result, Division div, Intervals intervals) {
 		
 		if (intervals.isBottom()) {
 			// Bottom state - possibly an error already
-			tool.warnOn(div, "Division by unreachable value (bottom state) detected in expression: " + div);
+			results.warnOn(result, div, "Division by unreachable value (bottom state) detected in expression: %s", div);
 			return;
 		}
 		
 		if (intervals.isTop()) {
 			// Top state - unknown value, could be zero
-			tool.warnOn(div, "Division by unknown value - potential division by zero in expression: " + div);
+			results.warnOn(result, div, "Division by unknown value - potential division by zero in expression: %s", div);
 			return;
 		}
 		
@@ -103,10 +173,10 @@ public class DivisionByZeroChecker implements SemanticCheck<SimpleAbstractState<
 		if (intervals.containsZero()) {
 			if (intervals.isZero()) {
 				// Definitely zero
-				tool.warnOn(div, "Definite division by zero detected in expression: " + div + " (divisor is definitely zero)");
+				results.warnOn(result, div, "Definite division by zero detected in expression: %s (divisor is definitely zero)", div);
 			} else {
 				// Possibly zero
-				tool.warnOn(div, "Possible division by zero detected in expression: " + div + " (divisor interval " + intervals.representation() + " contains zero)");
+				results.warnOn(result, div, "Possible division by zero detected in expression: %s (divisor interval %s contains zero)", div, intervals.representation());
 			}
 		}
 		
@@ -123,7 +193,7 @@ public class DivisionByZeroChecker implements SemanticCheck<SimpleAbstractState<
 				double minAbs = Math.min(absLow, absHigh);
 				
 				if (minAbs > 0 && minAbs < epsilon) {
-					tool.warnOn(div, "Division by very small " + size.getTypeName() + " value detected in expression: " + div + " (divisor interval " + intervals.representation() + " contains values close to zero, may cause precision issues)");
+					results.warnOn(result, div, "Division by very small %s value detected in expression: %s (divisor interval %s contains values close to zero, may cause precision issues)", size.getTypeName(), div, intervals.representation());
 				}
 			} catch (MathNumberConversionException e) {
 				throw new RuntimeException("Failed to convert MathNumber to double", e);
@@ -144,12 +214,6 @@ public class DivisionByZeroChecker implements SemanticCheck<SimpleAbstractState<
 		}
 	}
 	
-	private boolean isNumericalType(Type type) {
-		if (type == null) return false;
-		String typeName = type.toString().toLowerCase();
-		return typeName.contains("int") || typeName.contains("float") || typeName.contains("double") || typeName.contains("number") || typeName.contains("numeric");
-	}
-
 	// Compute possible dynamic types / runtime types
 	private Set<Type> getPossibleDynamicTypes(SymbolicExpression s, Division div, SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state) throws SemanticException {
 		
@@ -166,4 +230,29 @@ public class DivisionByZeroChecker implements SemanticCheck<SimpleAbstractState<
 		
 		return possibleDynamicTypes;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Yields how many times the expressions reachable from a divisor have
+	 * been computed, since this checker has been built.
+	 *
+	 * @return the number of reachability queries
+	 */
+	long getReachabilityQueries() {
+		return reachabilityQueries.get();
+	}
+
+	/**
+	 * Yields how many times a divisor has been evaluated, since this checker
+	 * has been built.
+	 *
+	 * @return the number of evaluations
+	 */
+	long getEvaluations() {
+		return evaluations.get();
+	}
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool) {
+		standalone = null;
+	}
+}
@@ -0,0 +1,45 @@
+package it.unive.scsr.checkers;
+
+import java.util.Set;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A {@link SemanticCheck} that declares the kinds of statements it is
+ * interested in. When run through {@link IndexedChecks}, it is visited only on
+ * the statements of those kinds, taken from a {@link StatementIndex} built
+ * once per CFG and shared among all checks, together with the
+ * {@link AnalysisResults} of the CFG. It can still be registered
+ * directly in LiSA, in which case it is visited on every statement.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public interface IndexedCheck<A extends AbstractState<A>> extends SemanticCheck<A> {
+
+	/**
+	 * Yields the kinds of statements this check must be visited on.
+	 *
+	 * @return the kinds of statements
+	 */
+	Set<StatementKind> kinds();
+
+	/**
+	 * Visits the given statement, reading the analysis results from the given
+	 * {@link AnalysisResults} shared among all the checks visiting its CFG.
+	 * The default implementation falls back to
+	 * {@link #visit(CheckToolWithAnalysisResults, CFG, Statement)}.
+	 *
+	 * @param tool    the auxiliary tool
+	 * @param results the results of the CFG containing the statement
+	 * @param node    the statement
+	 *
+	 * @return whether or not the visit should continue
+	 */
+	default boolean visit(CheckToolWithAnalysisResults<A> tool, AnalysisResults<A> results, Statement node) {
+		return visit(tool, results.getGraph(), node);
+	}
+}
@@ -0,0 +1,261 @@
+package it.unive.scsr.checkers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.analysis.AnalysisCache;
+
+/**
+ * A {@link SemanticCheck} running several {@link IndexedCheck}s at once. Each
+ * CFG is indexed once, its results are fetched once and shared through an
+ * {@link AnalysisResults}, and each check is visited only on the statements of
+ * the kinds it declared: LiSA's own visit of every statement is skipped by
+ * returning {@code false} from {@link #visit(CheckToolWithAnalysisResults, CFG)}.
+ * <br>
+ * <br>
+ * With more than one thread, the statements of each CFG are not visited right
+ * away: CFGs are queued, and visited on a pool of workers once LiSA has
+ * visited all of them. The results of each CFG are fetched, and its calls
+ * resolved, on LiSA's thread when the CFG is queued, so that workers never
+ * query the tool. Each CFG buffers its own warnings, that are raised on the
+ * tool in the order in which LiSA visited the CFGs, so that reports do not
+ * depend on scheduling. Checks run this way must tolerate concurrent visits of
+ * different CFGs.
+ * <br>
+ * <br>
+ * Optionally, the warnings raised from templates through
+ * {@link AnalysisResults#warnOn(it.unive.lisa.analysis.AnalyzedCFG, Statement, String, Object...)}
+ * are aggregated by statement, check and template with a
+ * {@link WarningAggregator}, and raised on the tool only once all CFGs have
+ * been visited.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public class IndexedChecks<A extends AbstractState<A>> implements SemanticCheck<A> {
+
+	/**
+	 * The system property holding the default number of threads used by
+	 * {@link #of(IndexedCheck...)}.
+	 */
+	public static final String THREADS_PROPERTY = "scsr.checkThreads";
+
+	/**
+	 * The system property enabling, in {@link #of(IndexedCheck...)}, the
+	 * aggregation of warnings across contexts.
+	 */
+	public static final String AGGREGATE_PROPERTY = "scsr.aggregateWarnings";
+
+	private final List<IndexedCheck<A>> checks;
+
+	@AnalysisCache.NotInKey
+	private final int threads;
+
+	private final boolean aggregated;
+
+	private final List<Pending> queue = new ArrayList<>();
+
+	private final List<WarningAggregator> aggregators = new ArrayList<>();
+
+	private IndexedChecks(List<IndexedCheck<A>> checks, int threads, boolean aggregated) {
+		this.checks = checks;
+		this.threads = threads;
+		this.aggregated = aggregated;
+	}
+
+	/**
+	 * Builds a check running all the given ones. The checks can be defined on
+	 * different abstract states, as long as they are compatible with the one
+	 * of the analysis they are run on. CFGs are visited on the number of
+	 * threads given by the {@value #THREADS_PROPERTY} system property, or
+	 * sequentially if it is not set, and warnings are aggregated if the
+	 * {@value #AGGREGATE_PROPERTY} system property is set to {@code true}.
+	 *
+	 * @param checks the checks to run
+	 *
+	 * @return the check running them
+	 */
+	public static SemanticCheck<?> of(IndexedCheck<?>... checks) {
+		return create(Integer.getInteger(THREADS_PROPERTY, 1), Boolean.getBoolean(AGGREGATE_PROPERTY), checks);
+	}
+
+	/**
+	 * Builds a check running all the given ones, visiting CFGs on the given
+	 * number of threads.
+	 *
+	 * @param threads the number of threads; values smaller than {@code 2}
+	 *                    visit CFGs sequentially, as LiSA does
+	 * @param checks  the checks to run
+	 *
+	 * @return the check running them
+	 */
+	public static SemanticCheck<?> parallel(int threads, IndexedCheck<?>... checks) {
+		return create(threads, false, checks);
+	}
+
+	/**
+	 * Builds a check running all the given ones, visiting CFGs on the given
+	 * number of threads and optionally aggregating their warnings.
+	 *
+	 * @param threads    the number of threads; values smaller than {@code 2}
+	 *                       visit CFGs sequentially, as LiSA does
+	 * @param aggregated whether warnings raised from templates have to be
+	 *                       aggregated across contexts
+	 * @param checks     the checks to run
+	 *
+	 * @return the check running them
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static SemanticCheck<?> create(int threads, boolean aggregated, IndexedCheck<?>... checks) {
+		return new IndexedChecks(new ArrayList<>(Arrays.asList(checks)), threads, aggregated);
+	}
+
+	/**
+	 * Yields the checks run by this one.
+	 *
+	 * @return the checks
+	 */
+	public List<IndexedCheck<A>> getChecks() {
+		return checks;
+	}
+
+	@Override
+	public void beforeExecution(CheckToolWithAnalysisResults<A> tool) {
+		queue.clear();
+		aggregators.clear();
+		for (IndexedCheck<A> check : checks)
+			check.beforeExecution(tool);
+	}
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<A> tool) {
+		if (!queue.isEmpty())
+			visitQueued();
+		// aggregated warnings are formatted only now, in the order in which
+		// LiSA visited the CFGs
+		for (WarningAggregator aggregator : aggregators)
+			aggregator.flush(tool);
+		aggregators.clear();
+		for (IndexedCheck<A> check : checks)
+			check.afterExecution(tool);
+	}
+
+	@Override
+	public boolean visitUnit(CheckToolWithAnalysisResults<A> tool, Unit unit) {
+		for (IndexedCheck<A> check : checks)
+			check.visitUnit(tool, unit);
+		return true;
+	}
+
+	@Override
+	public void visitGlobal(CheckToolWithAnalysisResults<A> tool, Unit unit, Global global, boolean instance) {
+		for (IndexedCheck<A> check : checks)
+			check.visitGlobal(tool, unit, global, instance);
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		// CFG-level visits may raise warnings directly on the tool, so they
+		// always happen here, on LiSA's thread
+		List<IndexedCheck<A>> enabled = new ArrayList<>(checks.size());
+		for (IndexedCheck<A> check : checks)
+			if (check.visit(tool, graph))
+				enabled.add(check);
+
+		StatementIndex index = new StatementIndex(graph);
+		if (threads > 1) {
+			AnalysisResults<A> results = new AnalysisResults<>(tool, graph, true, newAggregator());
+			results.resolveCalls(index.get(StatementKind.UNRESOLVED_CALL));
+			queue.add(new Pending(tool, results, index, enabled));
+		} else {
+			AnalysisResults<A> results = new AnalysisResults<>(tool, graph, false, newAggregator());
+			visitStatements(tool, results, index, enabled);
+			if (results.getAggregator() != null)
+				aggregators.add(results.getAggregator());
+		}
+
+		// statements have already been dispatched, or will be
+		return false;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+		return true;
+	}
+
+	private void visitStatements(CheckToolWithAnalysisResults<A> tool, AnalysisResults<A> results,
+			StatementIndex index, List<IndexedCheck<A>> enabled) {
+		for (IndexedCheck<A> check : enabled) {
+			results.setCurrentCheck(check);
+			for (StatementKind kind : check.kinds())
+				for (Statement node : index.get(kind))
+					check.visit(tool, results, node);
+		}
+	}
+
+	private WarningAggregator newAggregator() {
+		return aggregated ? new WarningAggregator() : null;
+	}
+
+	private void visitQueued() {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, queue.size()));
+		try {
+			List<Future<AnalysisResults<A>>> futures = new ArrayList<>(queue.size());
+			for (Pending pending : queue)
+				futures.add(pool.submit(pending));
+
+			// warnings are raised in the order in which LiSA visited the CFGs
+			for (Future<AnalysisResults<A>> future : futures) {
+				AnalysisResults<A> results = future.get();
+				results.flush();
+				if (results.getAggregator() != null)
+					aggregators.add(results.getAggregator());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running semantic checks", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException("Semantic check failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+			queue.clear();
+		}
+	}
+
+	private class Pending implements Callable<AnalysisResults<A>> {
+		private final CheckToolWithAnalysisResults<A> tool;
+		private final AnalysisResults<A> results;
+		private final StatementIndex index;
+		private final List<IndexedCheck<A>> enabled;
+
+		private Pending(CheckToolWithAnalysisResults<A> tool, AnalysisResults<A> results, StatementIndex index,
+				List<IndexedCheck<A>> enabled) {
+			this.tool = tool;
+			this.results = results;
+			this.index = index;
+			this.enabled = enabled;
+		}
+
+		@Override
+		public AnalysisResults<A> call() {
+			visitStatements(tool, results, index, enabled);
+			return results;
+		}
+	}
+}
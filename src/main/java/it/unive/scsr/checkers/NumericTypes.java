@@ -0,0 +1,38 @@
+package it.unive.scsr.checkers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unive.lisa.type.Type;
+
+/**
+ * Classification of types as numerical, shared by the checkers. A type is
+ * numerical if its name mentions an integer, floating point or generic number
+ * type. Since types are few and mostly singletons, the classification of each
+ * of them is computed once and cached.
+ */
+public final class NumericTypes {
+
+	private static final Map<Type, Boolean> CACHE = new ConcurrentHashMap<>();
+
+	private NumericTypes() {
+	}
+
+	/**
+	 * Yields whether the given type is numerical.
+	 *
+	 * @param type the type, possibly {@code null}
+	 *
+	 * @return {@code true} if the type is numerical
+	 */
+	public static boolean isNumerical(Type type) {
+		if (type == null)
+			return false;
+		return CACHE.computeIfAbsent(type, NumericTypes::classify);
+	}
+
+	private static boolean classify(Type type) {
+		String typeName = type.toString().toLowerCase();
+		return typeName.contains("int") || typeName.contains("float") || typeName.contains("double") || typeName.contains("number") || typeName.contains("numeric");
+	}
+}
@@ -1,7 +1,11 @@
 package it.unive.scsr.checkers;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import it.unive.lisa.analysis.AnalyzedCFG;
 import it.unive.lisa.analysis.SemanticException;
@@ -11,7 +15,6 @@ import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
-import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.program.cfg.CFG;
 import it.unive.lisa.program.cfg.statement.Assignment;
 import it.unive.lisa.program.cfg.statement.Expression;
@@ -24,72 +27,128 @@ import it.unive.lisa.util.numeric.MathNumber;
 import it.unive.lisa.util.numeric.MathNumberConversionException;
 import it.unive.scsr.Intervals;
 import it.unive.scsr.NumericalSize;
+import it.unive.scsr.analysis.ForwardingValueDomain;
 
-public class OverflowChecker implements SemanticCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
-	private NumericalSize size;
+public class OverflowChecker implements IndexedCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
+
+	private static final Set<StatementKind> KINDS = EnumSet.of(StatementKind.ASSIGNMENT, StatementKind.VARIABLE_REF);
+
+	private final NumericalSize[] sizes;
+
+	private final boolean tagged;
+
+	private final Map<VariableRef, Variable> variables = new ConcurrentHashMap<>();
+
+	// the results of the CFG being visited when this check is registered on
+	// its own, fetched at its first statement of interest
+	private AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> standalone;
 	
 	public OverflowChecker(NumericalSize size) {
-		this.size = size;
+		this.sizes = new NumericalSize[] { size };
+		this.tagged = false;
+	}
+
+	/**
+	 * Builds a checker that compares each interval against all the given
+	 * target types in a single visit, so that one analysis serves all of them.
+	 * Each warning is prefixed by the name of its target type in brackets.
+	 *
+	 * @param sizes the target types, must not be empty
+	 */
+	public OverflowChecker(Set<NumericalSize> sizes) {
+		this.sizes = EnumSet.copyOf(sizes).toArray(new NumericalSize[0]);
+		this.tagged = true;
+	}
+
+	@Override
+	public Set<StatementKind> kinds() {
+		return KINDS;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph) {
+		standalone = null;
+		return true;
 	}
 
 	@Override
 	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph, Statement node) {
+		if (KINDS.contains(StatementKind.of(node))) {
+			if (standalone == null)
+				standalone = AnalysisResults.of(this, tool, graph);
+			return visit(tool, standalone, node);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, Statement node) {
 		
 		if (node instanceof Assignment) {
 			Assignment assignment = (Assignment) node;
 			Expression leftExpression = assignment.getLeft();
 			
 			if (leftExpression instanceof VariableRef) {
-				checkVariableRef(tool, (VariableRef) leftExpression, graph, node);
+				checkVariableRef(results, (VariableRef) leftExpression, node);
 			}
 		} else if (node instanceof VariableRef) {
-			checkVariableRef(tool, (VariableRef) node, graph, node);
+			checkVariableRef(results, (VariableRef) node, node);
 		}
 		
 		return true;
 	}
 	
-	private void checkVariableRef(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, VariableRef varRef, CFG graph, Statement node) {
+	private void checkVariableRef(AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, VariableRef varRef, Statement node) {
 		
-		Variable id = new Variable(varRef.getStaticType(), varRef.getName(), varRef.getLocation());
+		Variable id = variables.computeIfAbsent(varRef, ref -> new Variable(ref.getStaticType(), ref.getName(), ref.getLocation()));
 		
+		// With a static type, the dynamic types are irrelevant and need not be computed
 		Type staticType = id.getStaticType();
-		Set<Type> dynamicTypes = getPossibleDynamicTypes(tool, graph, node, id, varRef);
-
-		Statement target = node;
-		
-		// Check if we need numerical type verification
-		boolean hasNumericalType = false;
-		if (!staticType.isUntyped()) {
-			hasNumericalType = isNumericalType(staticType);
-		} else {
-			// Check dynamic types
-			for (Type dynType : dynamicTypes) {
-				if (isNumericalType(dynType)) {
-					hasNumericalType = true;
-					break;
-				}
-			}
-		}
-		
-		if (!hasNumericalType) {
+		boolean hasNumericalType = !staticType.isUntyped() && NumericTypes.isNumerical(staticType);
+		if (!staticType.isUntyped() && !hasNumericalType) {
 			// Not a numerical type, skip overflow check
 			return;
 		}
 
+		Statement target = node;
 		if (varRef.getParentStatement() instanceof Assignment && ((Assignment) varRef.getParentStatement()).getLeft() == varRef) {
 			target = varRef.getParentStatement();
 		}
 
-		for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result : tool.getResultOf(graph)) {
-			SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state = result.getAnalysisStateAfter(target).getState();
-			Intervals intervalAbstractValue = state.getValueState().getState(id);	
-			
-			checkOverflowUnderflow(tool, varRef, intervalAbstractValue);
+		// Single pass over the results: with no numerical type known yet, the
+		// intervals of each context are buffered until a numerical dynamic
+		// type is found, and dropped if none is
+		List<Intervals> pending = null;
+		List<AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>>> pendingContexts = null;
+		for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result : results.getResults()) {
+			if (!hasNumericalType)
+				hasNumericalType = hasNumericalDynamicType(results.stateAfter(result, varRef).getState(), id, varRef, node);
+
+			SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state = results.stateAfter(result, target).getState();
+			ValueEnvironment<Intervals> valueState = ForwardingValueDomain.valueStateOf(state);
+			Intervals intervalAbstractValue = valueState.getState(id);
+
+			if (!hasNumericalType) {
+				if (pending == null) {
+					pending = new ArrayList<>();
+					pendingContexts = new ArrayList<>();
+				}
+				pending.add(intervalAbstractValue);
+				pendingContexts.add(result);
+				continue;
+			}
+
+			if (pending != null) {
+				for (int i = 0; i < pending.size(); i++)
+					checkOverflowUnderflow(results, pendingContexts.get(i), varRef, pending.get(i));
+				pending = null;
+				pendingContexts = null;
+			}
+			checkOverflowUnderflow(results, result, varRef, intervalAbstractValue);
 		}
 	}
 	
-	private void checkOverflowUnderflow(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, VariableRef varRef, Intervals intervals) {
+	private void checkOverflowUnderflow(AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result, VariableRef varRef, Intervals intervals) {
 		
 		if (intervals.isBottom()) {
 			// Bottom state - possibly an error already
@@ -98,7 +157,8 @@ public class OverflowChecker implements SemanticCheck<SimpleAbstractState<PointB
 		
 		if (intervals.isTop()) {
 			// Top state - could potentially overflow/underflow
-			tool.warnOn(varRef, "Variable '" + varRef.getName() + "' has unknown value - potential " + size.getTypeName() + " overflow/underflow");
+			for (NumericalSize size : sizes)
+				results.warnOn(result, varRef, "%sVariable '%s' has unknown value - potential %s overflow/underflow", tag(size), varRef.getName(), size.getTypeName());
 			return;
 		}
 		
@@ -106,35 +166,49 @@ public class OverflowChecker implements SemanticCheck<SimpleAbstractState<PointB
 		MathNumber high = intervals.interval.getHigh();
 		
 		try {
-		    if (!high.isPlusInfinity() && high.toDouble() > size.getMax()) {
-		        double wrappedValue = wrapAroundValue(high.toDouble(), size);
-		        if (size.isFloatingPoint()) {
-		            tool.warnOn(varRef, "Potential " + size.getTypeName() + " overflow detected: value " + high + " exceeds maximum " + size.getMax() + " for variable '" + varRef.getName() + "'");
-		        } else {
-		            tool.warnOn(varRef, "Potential " + size.getTypeName() + " overflow detected: value " + high + " exceeds maximum " + size.getMax() + " (wraps to " + wrappedValue + ") for variable '" + varRef.getName() + "'");
-		        }
-		    }
-		    
-		    if (!low.isMinusInfinity() && low.toDouble() < size.getMin()) {
-		        double wrappedValue = wrapAroundValue(low.toDouble(), size);
-		        if (size.isFloatingPoint()) {
-		            tool.warnOn(varRef, "Potential " + size.getTypeName() + " underflow detected: value " + low + " below minimum " + size.getMin() + " for variable '" + varRef.getName() + "'");
-		        } else {
-		            tool.warnOn(varRef, "Potential " + size.getTypeName() + " underflow detected: value " + low + " below minimum " + size.getMin() + " (wraps to " + wrappedValue + ") for variable '" + varRef.getName() + "'");
-		        }
-		    }
-		    
-		    if (!low.isMinusInfinity() && !high.isPlusInfinity() &&
-		        low.toDouble() <= size.getMax() && high.toDouble() >= size.getMin() &&
-		        (low.toDouble() < size.getMin() || high.toDouble() > size.getMax())) {
-		        tool.warnOn(varRef, "Variable '" + varRef.getName() + "' has interval [" + low + ", " + high + "] that may exceed " + size.getTypeName() + " bounds [" + size.getMin() + ", " + size.getMax() + "]");
-		    }
+			// Bounds are converted once and compared against every target
+			double lowValue = low.isMinusInfinity() ? Double.NEGATIVE_INFINITY : low.toDouble();
+			double highValue = high.isPlusInfinity() ? Double.POSITIVE_INFINITY : high.toDouble();
+			for (NumericalSize size : sizes)
+				checkBounds(results, result, varRef, size, low, high, lowValue, highValue);
 		} catch (MathNumberConversionException e) {
 		    // Handle the exception as appropriate for your application
 		    // For example, you can log and return, or throw a runtime exception
 		    throw new RuntimeException("Failed to convert MathNumber to double", e);
 		}
 	}
+
+	private void checkBounds(AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> results, AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result, VariableRef varRef, NumericalSize size, MathNumber low, MathNumber high, double lowValue, double highValue) {
+		String tag = tag(size);
+
+	    if (!high.isPlusInfinity() && highValue > size.getMax()) {
+	        double wrappedValue = wrapAroundValue(highValue, size);
+	        if (size.isFloatingPoint()) {
+	            results.warnOn(result, varRef, "%sPotential %s overflow detected: value %s exceeds maximum %s for variable '%s'", tag, size.getTypeName(), high, size.getMax(), varRef.getName());
+	        } else {
+	            results.warnOn(result, varRef, "%sPotential %s overflow detected: value %s exceeds maximum %s (wraps to %s) for variable '%s'", tag, size.getTypeName(), high, size.getMax(), wrappedValue, varRef.getName());
+	        }
+	    }
+	    
+	    if (!low.isMinusInfinity() && lowValue < size.getMin()) {
+	        double wrappedValue = wrapAroundValue(lowValue, size);
+	        if (size.isFloatingPoint()) {
+	            results.warnOn(result, varRef, "%sPotential %s underflow detected: value %s below minimum %s for variable '%s'", tag, size.getTypeName(), low, size.getMin(), varRef.getName());
+	        } else {
+	            results.warnOn(result, varRef, "%sPotential %s underflow detected: value %s below minimum %s (wraps to %s) for variable '%s'", tag, size.getTypeName(), low, size.getMin(), wrappedValue, varRef.getName());
+	        }
+	    }
+	    
+	    if (!low.isMinusInfinity() && !high.isPlusInfinity() &&
+	        lowValue <= size.getMax() && highValue >= size.getMin() &&
+	        (lowValue < size.getMin() || highValue > size.getMax())) {
+	        results.warnOn(result, varRef, "%sVariable '%s' has interval [%s, %s] that may exceed %s bounds [%s, %s]", tag, varRef.getName(), low, high, size.getTypeName(), size.getMin(), size.getMax());
+	    }
+	}
+
+	private String tag(NumericalSize size) {
+		return tagged ? "[" + size.getTypeName() + "] " : "";
+	}
 	
 	private double wrapAroundValue(double value, NumericalSize size) {
 		if (size.isFloatingPoint()) {
@@ -156,31 +230,28 @@ public class OverflowChecker implements SemanticCheck<SimpleAbstractState<PointB
 		return value; // No wrapping needed
 	}
 	
-	private boolean isNumericalType(Type type) {
-		String typeName = type.toString().toLowerCase();
-		return typeName.contains("int") || typeName.contains("float") || typeName.contains("double") || typeName.contains("number") || typeName.contains("numeric");
+	private boolean hasNumericalDynamicType(SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state, Variable id, VariableRef varRef, Statement node) {
+		try {
+			Type dynamicTypes = state.getDynamicTypeOf(id, varRef, state);
+			if(dynamicTypes != null && !dynamicTypes.isUntyped()) {
+				return NumericTypes.isNumerical(dynamicTypes);
+			} else if(dynamicTypes != null && dynamicTypes.isUntyped()){
+				Set<Type> runtimeTypes = state.getRuntimeTypesOf(id, varRef, state);
+				if(runtimeTypes.stream().anyMatch(t -> t != Untyped.INSTANCE))
+					for(Type t : runtimeTypes)
+						if (NumericTypes.isNumerical(t))
+							return true;
+			}
+		} catch (SemanticException e) {
+			System.err.println("Cannot check " + node);
+			e.printStackTrace(System.err);
+		}
+		return false;
 	}
 
-	private Set<Type> getPossibleDynamicTypes(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool, CFG graph, Statement node, Variable id, VariableRef varRef) {
-		
-		Set<Type> possibleDynamicTypes = new HashSet<>();
-		for (AnalyzedCFG<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> result : tool.getResultOf(graph)) {
-			SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>> state = result.getAnalysisStateAfter(varRef).getState();
-			try {
-				Type dynamicTypes = state.getDynamicTypeOf(id, varRef, state);
-				if(dynamicTypes != null && !dynamicTypes.isUntyped()) {
-					possibleDynamicTypes.add(dynamicTypes);
-				} else if(dynamicTypes != null && dynamicTypes.isUntyped()){
-					Set<Type> runtimeTypes = state.getRuntimeTypesOf(id, varRef, state);
-					if(runtimeTypes.stream().anyMatch(t -> t != Untyped.INSTANCE))
-						for(Type t : runtimeTypes)
-							possibleDynamicTypes.add(t);
-				}
-			} catch (SemanticException e) {
-				System.err.println("Cannot check " + node);
-				e.printStackTrace(System.err);
-			}
-		}	
-		return possibleDynamicTypes;
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool) {
+		standalone = null;
+		variables.clear();
 	}
-}
\ No newline at end of file
+}
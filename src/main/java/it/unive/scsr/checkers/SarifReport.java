@@ -0,0 +1,201 @@
+package it.unive.scsr.checkers;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.analysis.AnalysisCache;
+
+/**
+ * A {@link SemanticCheck} that streams the warnings of the other checks to
+ * {@value #FILE_NAME}, a SARIF 2.1.0 log in the working directory of the
+ * analysis, as they are raised. The log is opened before the checks run and
+ * completed after all of them have run, so this check has to be the last one
+ * of the configuration, as done by {@link #apply(LiSAConfiguration)}.<br>
+ * <br>
+ * LiSA does not notify warnings, so only those raised through
+ * {@link #warnOn(CheckToolWithAnalysisResults, Class, Statement, String)} and
+ * {@link #warnOn(CheckToolWithAnalysisResults, Class, CFG, String)}, as all
+ * the ones raised through {@link AnalysisResults}, are streamed, and only the
+ * first time LiSA records them. Warnings raised directly on the tool are not
+ * part of the log: nothing is kept in memory to tell them apart from the
+ * streamed ones, so only their number is reported when the log is completed.
+ *
+ * @param <A> the type of abstract state of the analysis
+ */
+public class SarifReport<A extends AbstractState<A>> implements SemanticCheck<A>, AnalysisCache.OutputCheck {
+
+	/**
+	 * The name of the file where warnings are streamed.
+	 */
+	public static final String FILE_NAME = "report.sarif";
+
+	/**
+	 * The system property enabling the SARIF log in
+	 * {@link it.unive.scsr.analysis.AnalysisRunner#analyze(LiSAConfiguration, it.unive.lisa.program.Program)}.
+	 */
+	public static final String SARIF_PROPERTY = "scsr.sarif";
+
+	/**
+	 * The report of each running tool. Tools are only weakly referenced, so
+	 * that a run whose checks are never completed does not keep them alive.
+	 */
+	private static final Map<CheckToolWithAnalysisResults<?>, SarifReport<?>> REPORTS = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Adds a SARIF report as the last semantic check of the given
+	 * configuration. Checks added afterwards are not guaranteed to have their
+	 * warnings streamed.
+	 *
+	 * @param conf the configuration
+	 *
+	 * @return the report, to be {@link #close() closed} once the analysis
+	 *             has run
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static SarifReport<?> apply(LiSAConfiguration conf) {
+		SarifReport report = new SarifReport();
+		conf.semanticChecks.add(report);
+		return report;
+	}
+
+	private final List<String> outputs = new ArrayList<>();
+
+	// the number of distinct warnings streamed
+	private int streamed;
+
+	private SarifWriter writer;
+
+	@Override
+	public Collection<String> getOutputFiles() {
+		return outputs;
+	}
+
+	@Override
+	public synchronized void beforeExecution(CheckToolWithAnalysisResults<A> tool) {
+		outputs.clear();
+		streamed = 0;
+		close();
+		try {
+			writer = new SarifWriter(Paths.get(tool.getConfiguration().workdir, FILE_NAME), "LiSA");
+			outputs.add(FILE_NAME);
+			REPORTS.put(tool, this);
+		} catch (IOException e) {
+			System.err.println("Cannot create " + FILE_NAME);
+			e.printStackTrace(System.err);
+		}
+	}
+
+	@Override
+	public synchronized void afterExecution(CheckToolWithAnalysisResults<A> tool) {
+		REPORTS.remove(tool);
+		int direct = tool.getWarnings().size() - streamed;
+		if (direct > 0 && writer != null)
+			System.err.println(direct + " warnings raised directly on the tool are not in " + FILE_NAME);
+		close();
+	}
+
+	/**
+	 * Completes the log, if it is still open. This happens after all checks
+	 * have run, but has to be invoked by whoever runs the analysis if LiSA
+	 * does not get to that point.
+	 */
+	public synchronized void close() {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			System.err.println("Cannot complete " + FILE_NAME);
+			e.printStackTrace(System.err);
+		} finally {
+			writer = null;
+		}
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph) {
+		// no need to visit the statements
+		return false;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A> tool, CFG graph, Statement node) {
+		return false;
+	}
+
+	/**
+	 * Raises a warning on the given statement, also streaming it to the SARIF
+	 * log of the tool, if any.
+	 *
+	 * @param tool    the tool
+	 * @param check   the class of the check raising the warning, used as rule
+	 *                    identifier, or {@code null} if unknown
+	 * @param st      the statement
+	 * @param message the message of the warning
+	 */
+	public static void warnOn(CheckToolWithAnalysisResults<?> tool, Class<?> check, Statement st, String message) {
+		SarifReport<?> report = REPORTS.get(tool);
+		if (report == null)
+			tool.warnOn(st, message);
+		else
+			synchronized (report) {
+				int before = tool.getWarnings().size();
+				tool.warnOn(st, message);
+				if (tool.getWarnings().size() > before)
+					report.stream(check, message, st.getLocation(), st.getCFG().getDescriptor().getFullSignature());
+			}
+	}
+
+	/**
+	 * Raises a warning on the given CFG, also streaming it to the SARIF log of
+	 * the tool, if any.
+	 *
+	 * @param tool    the tool
+	 * @param check   the class of the check raising the warning, used as rule
+	 *                    identifier, or {@code null} if unknown
+	 * @param graph   the CFG
+	 * @param message the message of the warning
+	 */
+	public static void warnOn(CheckToolWithAnalysisResults<?> tool, Class<?> check, CFG graph, String message) {
+		SarifReport<?> report = REPORTS.get(tool);
+		if (report == null)
+			tool.warnOn(graph, message);
+		else
+			synchronized (report) {
+				int before = tool.getWarnings().size();
+				tool.warnOn(graph, message);
+				if (tool.getWarnings().size() > before)
+					report.stream(check, message, graph.getDescriptor().getLocation(),
+							graph.getDescriptor().getFullSignature());
+			}
+	}
+
+	// invoked with the lock of this report held, once per warning recorded by LiSA
+	private void stream(Class<?> check, String message, CodeLocation location, String logical) {
+		streamed++;
+		if (writer == null)
+			return;
+		try {
+			writer.warning(check == null ? null : check.getSimpleName(), message, location, logical);
+		} catch (IOException e) {
+			// the log is abandoned, warnings are still in the report
+			close();
+			System.err.println("Cannot write " + FILE_NAME + ", streaming disabled");
+			e.printStackTrace(System.err);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package it.unive.scsr.checkers;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import it.unive.lisa.program.SourceCodeLocation;
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.scsr.analysis.Json;
+
+/**
+ * A writer of SARIF 2.1.0 logs that streams each result to disk as soon as it
+ * is written. The log holds a single run, whose results are written through a
+ * buffer of {@value #BUFFER_SIZE} characters: whenever the buffer fills up,
+ * its content is written to the file, so that memory usage does not depend on
+ * the number of results. The log becomes a complete JSON document when the
+ * writer is closed.
+ */
+public class SarifWriter implements Closeable {
+
+	/**
+	 * The size, in characters, of the buffer of the writer.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+
+	private final BufferedWriter writer;
+
+	private int results;
+
+	private boolean closed;
+
+	/**
+	 * Builds the writer, creating the given file and writing the header of
+	 * the log.
+	 *
+	 * @param file the file to write
+	 * @param tool the name of the tool producing the results
+	 *
+	 * @throws IOException if the file cannot be created
+	 */
+	public SarifWriter(Path file, String tool) throws IOException {
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		this.writer = new BufferedWriter(
+				new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+		writer.write("{\n  \"$schema\" : \"" + SCHEMA + "\",\n  \"version\" : \"2.1.0\",\n  \"runs\" : [ {\n");
+		writer.write("    \"tool\" : { \"driver\" : { \"name\" : " + Json.quote(tool) + " } },\n");
+		writer.write("    \"results\" : [");
+	}
+
+	/**
+	 * Writes a result with level {@code warning}. Results written after the
+	 * writer has been closed are ignored.
+	 *
+	 * @param ruleId   the identifier of the rule (i.e., the check) producing
+	 *                     the result, or {@code null} if unknown
+	 * @param message  the message of the result
+	 * @param location the location the result refers to, or {@code null} if
+	 *                     unknown
+	 * @param logical  the fully qualified name of the code member the result
+	 *                     refers to, or {@code null} if unknown
+	 *
+	 * @throws IOException if the result cannot be written
+	 */
+	public synchronized void warning(String ruleId, String message, CodeLocation location, String logical)
+			throws IOException {
+		if (closed)
+			return;
+
+		StringBuilder result = new StringBuilder(256);
+		result.append(results++ == 0 ? "\n" : ",\n");
+		result.append("      { ");
+		if (ruleId != null)
+			result.append("\"ruleId\" : ").append(Json.quote(ruleId)).append(", ");
+		result.append("\"level\" : \"warning\", \"message\" : { \"text\" : ").append(Json.quote(message)).append(" }");
+
+		String physical = physicalLocation(location);
+		if (physical != null || logical != null) {
+			result.append(", \"locations\" : [ { ");
+			if (physical != null)
+				result.append(physical);
+			if (logical != null)
+				result.append(physical != null ? ", " : "")
+						.append("\"logicalLocations\" : [ { \"fullyQualifiedName\" : ")
+						.append(Json.quote(logical)).append(" } ]");
+			result.append(" } ]");
+		}
+		result.append(" }");
+		writer.write(result.toString());
+	}
+
+	private static String physicalLocation(CodeLocation location) {
+		if (!(location instanceof SourceCodeLocation))
+			return null;
+		SourceCodeLocation source = (SourceCodeLocation) location;
+		StringBuilder physical = new StringBuilder("\"physicalLocation\" : { \"artifactLocation\" : { \"uri\" : ")
+				.append(Json.quote(source.getSourceFile().replace('\\', '/'))).append(" }");
+		// SARIF lines and columns start from 1
+		if (source.getLine() > 0) {
+			physical.append(", \"region\" : { \"startLine\" : ").append(source.getLine());
+			if (source.getCol() > 0)
+				physical.append(", \"startColumn\" : ").append(source.getCol());
+			physical.append(" }");
+		}
+		return physical.append(" }").toString();
+	}
+
+	/**
+	 * Yields the number of results written so far.
+	 *
+	 * @return the number of results
+	 */
+	public synchronized int getResults() {
+		return results;
+	}
+
+	/**
+	 * Writes the buffered results to the file.
+	 *
+	 * @throws IOException if the results cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (!closed)
+			writer.flush();
+	}
+
+	/**
+	 * Completes the log and closes the file.
+	 *
+	 * @throws IOException if the log cannot be completed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			writer.write((results == 0 ? " ]\n" : "\n    ]\n") + "  } ]\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+}
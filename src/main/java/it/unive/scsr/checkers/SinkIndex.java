@@ -0,0 +1,164 @@
+package it.unive.scsr.checkers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.ProgramUnit;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.annotations.matcher.AnnotationMatcher;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeMember;
+import it.unive.lisa.program.cfg.Parameter;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+
+/**
+ * A program-wide index of the formal parameters annotated as sinks, built
+ * once for all the calls of a program. Calls whose target name does not
+ * belong to any code member with a sink are discarded with a single lookup.
+ */
+public class SinkIndex {
+
+	private static final int[] NONE = new int[0];
+
+	private final Program program;
+
+	private final AnnotationMatcher matcher;
+
+	private final Map<CodeMember, int[]> positions = new ConcurrentHashMap<>();
+
+	private final Set<String> names = new HashSet<>();
+
+	/**
+	 * Builds the index of the given program.
+	 *
+	 * @param program the program
+	 * @param matcher the matcher identifying sink parameters
+	 */
+	public SinkIndex(Program program, AnnotationMatcher matcher) {
+		this.program = program;
+		this.matcher = matcher;
+
+		List<CodeMember> members = new ArrayList<>(program.getCodeMembers());
+		for (Unit unit : program.getUnits()) {
+			members.addAll(unit.getCodeMembers());
+			if (unit instanceof CompilationUnit)
+				members.addAll(((CompilationUnit) unit).getInstanceCodeMembers(false));
+		}
+
+		for (CodeMember member : members)
+			if (getSinkPositions(member).length > 0)
+				names.add(member.getDescriptor().getName());
+	}
+
+	/**
+	 * Yields the program containing the given CFG.
+	 *
+	 * @param graph the CFG
+	 *
+	 * @return the program
+	 */
+	public static Program programOf(CFG graph) {
+		Unit unit = graph.getDescriptor().getUnit();
+		return unit instanceof Program ? (Program) unit : ((ProgramUnit) unit).getProgram();
+	}
+
+	/**
+	 * Yields the indexed program.
+	 *
+	 * @return the program
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * Yields whether the given call may target a code member with sink
+	 * parameters.
+	 *
+	 * @param call the call
+	 *
+	 * @return {@code false} if the call cannot reach a sink
+	 */
+	public boolean mayReachSink(UnresolvedCall call) {
+		return names.contains(call.getTargetName());
+	}
+
+	/**
+	 * Yields the positions of the formal parameters of the given code member
+	 * that are annotated as sinks.
+	 *
+	 * @param member the code member
+	 *
+	 * @return the positions, in increasing order
+	 */
+	public int[] getSinkPositions(CodeMember member) {
+		return positions.computeIfAbsent(member, this::computePositions);
+	}
+
+	private int[] computePositions(CodeMember member) {
+		Parameter[] formals = member.getDescriptor().getFormals();
+		int count = 0;
+		int[] result = new int[formals.length];
+		for (int i = 0; i < formals.length; i++)
+			if (formals[i].getAnnotations().contains(matcher))
+				result[count++] = i;
+		if (count == 0)
+			return NONE;
+		int[] trimmed = new int[count];
+		System.arraycopy(result, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	/**
+	 * The index of the program being analyzed, built lazily by the first
+	 * visit that needs it and rebuilt when a check is run on another
+	 * program. Visits of different CFGs may ask for it concurrently.
+	 */
+	public static class Cache {
+
+		private final AnnotationMatcher matcher;
+
+		private volatile SinkIndex index;
+
+		/**
+		 * Builds an empty cache.
+		 *
+		 * @param matcher the matcher identifying sink parameters
+		 */
+		public Cache(AnnotationMatcher matcher) {
+			this.matcher = matcher;
+		}
+
+		/**
+		 * Yields the index of the program containing the given CFG.
+		 *
+		 * @param graph the CFG
+		 *
+		 * @return the index
+		 */
+		public SinkIndex of(CFG graph) {
+			Program program = programOf(graph);
+			SinkIndex current = index;
+			if (current == null || current.getProgram() != program)
+				synchronized (this) {
+					current = index;
+					if (current == null || current.getProgram() != program)
+						index = current = new SinkIndex(program, matcher);
+				}
+			return current;
+		}
+
+		/**
+		 * Drops the cached index, so that the program can be collected.
+		 */
+		public void clear() {
+			index = null;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package it.unive.scsr.checkers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.datastructures.graph.GraphVisitor;
+
+/**
+ * The statements of a CFG grouped by {@link StatementKind}. Statements are
+ * collected with the same traversal LiSA uses when visiting a CFG with a
+ * check, so that nested expressions (e.g., the operands of an assignment) are
+ * indexed as well, in the same order in which a check would visit them.
+ */
+public class StatementIndex {
+
+	private final CFG graph;
+
+	private final Map<StatementKind, List<Statement>> statements = new EnumMap<>(StatementKind.class);
+
+	/**
+	 * Builds the index of the given CFG.
+	 *
+	 * @param graph the CFG
+	 */
+	public StatementIndex(CFG graph) {
+		this.graph = graph;
+		Collector collector = new Collector();
+		for (Statement node : graph.getNodes())
+			node.accept(collector, null);
+	}
+
+	/**
+	 * Yields the indexed CFG.
+	 *
+	 * @return the CFG
+	 */
+	public CFG getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Yields the statements of the given kind.
+	 *
+	 * @param kind the kind
+	 *
+	 * @return the statements, in visiting order
+	 */
+	public List<Statement> get(StatementKind kind) {
+		return statements.getOrDefault(kind, Collections.emptyList());
+	}
+
+	private class Collector implements GraphVisitor<CFG, Statement, Edge, Void> {
+
+		@Override
+		public boolean visit(Void tool, CFG graph) {
+			return true;
+		}
+
+		@Override
+		public boolean visit(Void tool, CFG graph, Statement node) {
+			StatementKind kind = StatementKind.of(node);
+			if (kind != null)
+				statements.computeIfAbsent(kind, k -> new ArrayList<>()).add(node);
+			return true;
+		}
+
+		@Override
+		public boolean visit(Void tool, CFG graph, Edge edge) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package it.unive.scsr.checkers;
+
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.program.cfg.statement.call.UnresolvedCall;
+import it.unive.lisa.program.cfg.statement.numeric.Division;
+
+/**
+ * The kinds of statements the checkers of this project are interested in.
+ */
+public enum StatementKind {
+
+	/**
+	 * {@link Division}s.
+	 */
+	DIVISION,
+
+	/**
+	 * {@link Assignment}s.
+	 */
+	ASSIGNMENT,
+
+	/**
+	 * {@link VariableRef}s.
+	 */
+	VARIABLE_REF,
+
+	/**
+	 * {@link UnresolvedCall}s.
+	 */
+	UNRESOLVED_CALL;
+
+	/**
+	 * Yields the kind of the given statement.
+	 *
+	 * @param st the statement
+	 *
+	 * @return the kind, or {@code null} if the statement is of none of these
+	 *             kinds
+	 */
+	public static StatementKind of(Statement st) {
+		if (st instanceof Division)
+			return DIVISION;
+		if (st instanceof Assignment)
+			return ASSIGNMENT;
+		if (st instanceof VariableRef)
+			return VARIABLE_REF;
+		if (st instanceof UnresolvedCall)
+			return UNRESOLVED_CALL;
+		return null;
+	}
+}
@@ -1,6 +1,7 @@
 package it.unive.scsr.checkers;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -25,12 +26,12 @@ import it.unive.lisa.symbolic.value.ValueExpression;
 import it.unive.lisa.util.StringUtilities;
 import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
-import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.program.annotations.Annotation;
 import it.unive.scsr.Taint;
+import it.unive.scsr.analysis.ForwardingValueDomain;
 
 public class TaintChecker implements
-SemanticCheck<
+IndexedCheck<
 		SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> {
 	
 	/**
@@ -43,25 +44,69 @@ SemanticCheck<
 	 */
 	public static final AnnotationMatcher SINK_MATCHER = new BasicAnnotationMatcher(SINK_ANNOTATION);
 
+	private static final Set<StatementKind> KINDS = EnumSet.of(StatementKind.UNRESOLVED_CALL);
+
+	@Override
+	public Set<StatementKind> kinds() {
+		return KINDS;
+	}
+
+	private final SinkIndex.Cache sinks = new SinkIndex.Cache(SINK_MATCHER);
+
+	// the results of the CFG being visited when this check is registered on
+	// its own, fetched at its first statement of interest
+	private AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> standalone;
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> tool) {
+		standalone = null;
+		sinks.clear();
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph) {
+		standalone = null;
+		return true;
+	}
+
 	// This method is called for each statement of CFG
 	// The idea is to detect calls with formal parameter annotated as sink and check if the value is tainted
 	@Override
 	public boolean visit(
 			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> tool,
 			CFG graph, Statement node) {
+		if (KINDS.contains(StatementKind.of(node))) {
+			if (standalone == null)
+				standalone = AnalysisResults.of(this, tool, graph);
+			return visit(tool, standalone, node);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> tool,
+			AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>, TypeEnvironment<InferredTypes>>> results, Statement node) {
 		
 		if (!(node instanceof UnresolvedCall))
 			return true; // if it is a statement that it is not a call, then we don't care because cannot have paramenters annaotated as sinks
 
 		UnresolvedCall call = (UnresolvedCall) node;
+		// calls whose target has no sink parameter cost a single lookup
+		SinkIndex index = sinks.of(results.getGraph());
+		if (!index.mayReachSink(call))
+			return true;
+
 		try {
 			// we get the taint analysis results mapped on the CFG containg the call that we want investigate
 			for (AnalyzedCFG<
 					SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>,
-							TypeEnvironment<InferredTypes>>> result : tool.getResultOf(call.getCFG())) {
+							TypeEnvironment<InferredTypes>>> result : results.getResults()) {
 				
 				// we resolve the call, i.e. we ensure that call has been correctly processed by the analysis
-				Call resolved = tool.getResolvedVersion(call, result);
+				Call resolved = results.getResolvedVersion(call, result);
 				if (resolved == null)
 					System.err.println("Error");
 
@@ -70,29 +115,26 @@ SemanticCheck<
 					for (CodeMember n : cfg.getTargets()) {
 						// we check if the call parameters are annotated as sinks
 						Parameter[] parameters = n.getDescriptor().getFormals();
-						for (int i = 0; i < parameters.length; i++)
-							if (parameters[i].getAnnotations().contains(SINK_MATCHER)) {
-								//we check if the parameter annotated as sink may be tainted
-								AnalysisState<
-										SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>,
-												TypeEnvironment<InferredTypes>>> state = result
-														.getAnalysisStateAfter(call.getParameters()[i]);
-								Set<SymbolicExpression> reachableIds = new HashSet<>();
-								for (SymbolicExpression e : state.getComputedExpressions())
-									reachableIds
-											.addAll(state.getState().reachableFrom(e, node, state.getState()).elements);
-
-								for (SymbolicExpression s : reachableIds) {
-									ValueEnvironment<Taint> valueState = state.getState().getValueState();
-
-									if (valueState.eval((ValueExpression) s, node, state.getState())
-											.isPossiblyTainted())
-										// in the sink flows a possible tainted data, then we report an warning in the LiSA report result 
-										tool.warnOn(call, "The value passed for the " + StringUtilities.ordinal(i + 1)
-												+ " parameter of this call may be tainted, and it reaches the sink at parameter '"
-												+ parameters[i].getName() + "' of " + resolved.getFullTargetName());
-								}
+						for (int i : index.getSinkPositions(n)) {
+							//we check if the parameter annotated as sink may be tainted
+							AnalysisState<
+									SimpleAbstractState<PointBasedHeap, ValueEnvironment<Taint>,
+											TypeEnvironment<InferredTypes>>> state = results
+													.stateAfter(result, call.getParameters()[i]);
+							Set<SymbolicExpression> reachableIds = new HashSet<>();
+							for (SymbolicExpression e : state.getComputedExpressions())
+								reachableIds
+										.addAll(state.getState().reachableFrom(e, node, state.getState()).elements);
+
+							ValueEnvironment<Taint> valueState = ForwardingValueDomain.valueStateOf(state.getState());
+							for (SymbolicExpression s : reachableIds) {
+								if (valueState.eval((ValueExpression) s, node, state.getState())
+										.isPossiblyTainted())
+									// in the sink flows a possible tainted data, then we report an warning in the LiSA report result 
+									results.warnOn(result, call, "The value passed for the %s parameter of this call may be tainted, and it reaches the sink at parameter '%s' of %s",
+											StringUtilities.ordinal(i + 1), parameters[i].getName(), resolved.getFullTargetName());
 							}
+						}
 
 					}
 				} 
@@ -1,5 +1,6 @@
 package it.unive.scsr.checkers;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -23,13 +24,13 @@ import it.unive.lisa.symbolic.SymbolicExpression;
 import it.unive.lisa.symbolic.value.ValueExpression;
 import it.unive.lisa.util.StringUtilities;
 import it.unive.scsr.TaintThreeLevels;
+import it.unive.scsr.analysis.ForwardingValueDomain;
 import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
-import it.unive.lisa.checks.semantic.SemanticCheck;
 import it.unive.lisa.program.annotations.Annotation;
 
 public class TaintThreeLevelsChecker implements
-SemanticCheck<
+IndexedCheck<
 		SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> {
 	
 	// define the annotation we use to mark a sink in the program
@@ -38,10 +39,49 @@ SemanticCheck<
 	// create a matcher that helps us find all elements annotated as sinks
 	public static final AnnotationMatcher SINK_MATCHER = new BasicAnnotationMatcher(SINK_ANNOTATION);
 
+	private static final Set<StatementKind> KINDS = EnumSet.of(StatementKind.UNRESOLVED_CALL);
+
+	@Override
+	public Set<StatementKind> kinds() {
+		return KINDS;
+	}
+
+	private final SinkIndex.Cache sinks = new SinkIndex.Cache(SINK_MATCHER);
+
+	// the results of the CFG being visited when this check is registered on
+	// its own, fetched at its first statement of interest
+	private AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> standalone;
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> tool) {
+		standalone = null;
+		sinks.clear();
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> tool,
+			CFG graph) {
+		standalone = null;
+		return true;
+	}
+
 	@Override
 	public boolean visit(
 			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> tool,
 			CFG graph, Statement node) {
+		if (KINDS.contains(StatementKind.of(node))) {
+			if (standalone == null)
+				standalone = AnalysisResults.of(this, tool, graph);
+			return visit(tool, standalone, node);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(
+			CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> tool,
+			AnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>, TypeEnvironment<InferredTypes>>> results, Statement node) {
 		
 		// only interested in unresolved function calls, skip other statements
 		if (!(node instanceof UnresolvedCall))
@@ -49,14 +89,19 @@ SemanticCheck<
 		
 		// cast the node to a call so we can work with it
 		UnresolvedCall call = (UnresolvedCall) node;
+		// calls whose target has no sink parameter cost a single lookup
+		SinkIndex index = sinks.of(results.getGraph());
+		if (!index.mayReachSink(call))
+			return true;
+
 		try {
 			// get the analysis results for this function’s CFG
 			for (AnalyzedCFG<
 					SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>,
-							TypeEnvironment<InferredTypes>>> result : tool.getResultOf(call.getCFG())) {
+							TypeEnvironment<InferredTypes>>> result : results.getResults()) {
 				
 				// try to get the resolved version of the call using the analysis results
-				Call resolved = tool.getResolvedVersion(call, result);
+				Call resolved = results.getResolvedVersion(call, result);
 				if (resolved == null)
 					System.err.println("Error"); // couldn't resolve the call, something went wrong
 
@@ -65,38 +110,34 @@ SemanticCheck<
 					CFGCall cfg = (CFGCall) resolved;
 					for (CodeMember n : cfg.getTargets()) {
 						Parameter[] parameters = n.getDescriptor().getFormals();
-						// check each parameter of the target function
-						for (int i = 0; i < parameters.length; i++)
-							// if the parameter is a sink, check if tainted data flows into it
-							if (parameters[i].getAnnotations().contains(SINK_MATCHER)) {
-								AnalysisState<
-										SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>,
-												TypeEnvironment<InferredTypes>>> state = result
-														.getAnalysisStateAfter(call.getParameters()[i]);
-								
-								// collect all expressions that are reachable from the parameter
-								Set<SymbolicExpression> reachableIds = new HashSet<>();
-								for (SymbolicExpression e : state.getComputedExpressions())
-									reachableIds
-											.addAll(state.getState().reachableFrom(e, node, state.getState()).elements);
-
-								// now check each expression to see if it is tainted
-								for (SymbolicExpression s : reachableIds) {
-									ValueEnvironment<TaintThreeLevels> valueState = state.getState().getValueState();
-
-									// if the value is definitely tainted, warn as definite
-									if(valueState.eval((ValueExpression) s, node, state.getState()).isAlwaysTainted())
-										tool.warnOn(call, "[DEFINITE] The value passed for the " + StringUtilities.ordinal(i + 1)
-										+ " parameter of this call is always tainted, and it reaches the sink at parameter '"
-										+ parameters[i].getName() + "' of " + resolved.getFullTargetName());
-									// if the value might be tainted, warn as possible
-									else if (valueState.eval((ValueExpression) s, node, state.getState())
-											.isPossiblyTainted())
-										tool.warnOn(call, "[POSSIBLE] The value passed for the " + StringUtilities.ordinal(i + 1)
-												+ " parameter of this call may be tainted, and it reaches the sink at parameter '"
-												+ parameters[i].getName() + "' of " + resolved.getFullTargetName());
-								}
+						// check each sink parameter of the target function, to see if tainted data flows into it
+						for (int i : index.getSinkPositions(n)) {
+							AnalysisState<
+									SimpleAbstractState<PointBasedHeap, ValueEnvironment<TaintThreeLevels>,
+											TypeEnvironment<InferredTypes>>> state = results
+													.stateAfter(result, call.getParameters()[i]);
+							
+							// collect all expressions that are reachable from the parameter
+							Set<SymbolicExpression> reachableIds = new HashSet<>();
+							for (SymbolicExpression e : state.getComputedExpressions())
+								reachableIds
+										.addAll(state.getState().reachableFrom(e, node, state.getState()).elements);
+
+							// now check each expression to see if it is tainted, evaluating it once
+							ValueEnvironment<TaintThreeLevels> valueState = ForwardingValueDomain.valueStateOf(state.getState());
+							for (SymbolicExpression s : reachableIds) {
+								TaintThreeLevels taint = valueState.eval((ValueExpression) s, node, state.getState());
+
+								// if the value is definitely tainted, warn as definite
+								if(taint.isAlwaysTainted())
+									results.warnOn(result, call, "[DEFINITE] The value passed for the %s parameter of this call is always tainted, and it reaches the sink at parameter '%s' of %s",
+											StringUtilities.ordinal(i + 1), parameters[i].getName(), resolved.getFullTargetName());
+								// if the value might be tainted, warn as possible
+								else if (taint.isPossiblyTainted())
+									results.warnOn(result, call, "[POSSIBLE] The value passed for the %s parameter of this call may be tainted, and it reaches the sink at parameter '%s' of %s",
+											StringUtilities.ordinal(i + 1), parameters[i].getName(), resolved.getFullTargetName());
 							}
+						}
 
 					}
 				} 
@@ -0,0 +1,95 @@
+package it.unive.scsr.checkers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * Aggregates the warnings raised on the statements of a CFG by statement,
+ * check and message template, counting the contexts in which each of them
+ * has been raised. Messages are formatted only when the aggregated warnings
+ * are raised on the tool, once for each distinct tuple of arguments of an
+ * aggregate, together with the number of contexts that raised it.
+ */
+public class WarningAggregator {
+
+	private final Map<Key, Aggregate> aggregates = new LinkedHashMap<>();
+
+	/**
+	 * Records a warning.
+	 *
+	 * @param check     the class of the check raising the warning, or
+	 *                      {@code null} if unknown
+	 * @param context   the analysis result (i.e., the context) in which the
+	 *                      warning is raised, compared by identity
+	 * @param st        the statement
+	 * @param template  the message template, in {@link String#format} syntax
+	 * @param arguments the arguments of the template
+	 */
+	public void add(Class<?> check, Object context, Statement st, String template, Object[] arguments) {
+		aggregates.computeIfAbsent(new Key(check, st, template), k -> new Aggregate()).add(context, arguments);
+	}
+
+	/**
+	 * Raises on the given tool one warning for each distinct tuple of
+	 * arguments of each aggregate, in the order in which they have been
+	 * recorded, and clears this aggregator.
+	 *
+	 * @param tool the tool
+	 */
+	public void flush(CheckToolWithAnalysisResults<?> tool) {
+		for (Map.Entry<Key, Aggregate> entry : aggregates.entrySet()) {
+			Key key = entry.getKey();
+			for (Map.Entry<List<Object>, Set<Object>> variant : entry.getValue().variants.entrySet()) {
+				String message = String.format(key.template, variant.getKey().toArray());
+				int contexts = variant.getValue().size();
+				SarifReport.warnOn(tool, key.check, key.statement,
+						contexts <= 1 ? message : message + " (in " + contexts + " contexts)");
+			}
+		}
+		aggregates.clear();
+	}
+
+	private static class Key {
+		private final Class<?> check;
+		private final Statement statement;
+		private final String template;
+
+		private Key(Class<?> check, Statement statement, String template) {
+			this.check = check;
+			this.statement = statement;
+			this.template = template;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(check, System.identityHashCode(statement), template);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return check == other.check && statement == other.statement && template.equals(other.template);
+		}
+	}
+
+	private static class Aggregate {
+		// the contexts raising each distinct tuple of arguments
+		private final Map<List<Object>, Set<Object>> variants = new LinkedHashMap<>();
+
+		private void add(Object context, Object[] arguments) {
+			variants.computeIfAbsent(Arrays.asList(arguments),
+					k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(context);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package it.unive.scsr;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -7,8 +8,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
@@ -22,8 +28,10 @@ import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.outputs.compare.JsonReportComparer;
 import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
 import it.unive.lisa.program.Program;
 import it.unive.lisa.util.file.FileManager;
+import it.unive.scsr.analysis.BinaryResults;
 
 public class CPropTaskEvaluation {
 
@@ -47,6 +55,7 @@ public class CPropTaskEvaluation {
 			fail("Cannot delete working directory '" + conf.workdir + "': " + e.getMessage());
 		}
 
+		// graded against expected/, so no cache and no background rendering
 		LiSA lisa = new LiSA(conf);
 		lisa.run(program);
 
@@ -68,4 +77,55 @@ public class CPropTaskEvaluation {
 			fail("Unable to compare reports");
 		}
 	}
+
+	@Test
+	public void testCPBinaryResults() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/cp-eval.imp");
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = "outputs/cp-eval-binary";
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new DefiniteDataflowDomain<>(new CPropSolution()),
+				DefaultConfiguration.defaultTypeDomain());
+		BinaryResults.apply(conf);
+
+		try {
+			FileManager.forceDeleteFolder(conf.workdir);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Cannot delete working directory '" + conf.workdir + "': " + e.getMessage());
+		}
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		// the binary results, converted back to json, must match the ones
+		// serialized by LiSA
+		Path actualPath = Paths.get(conf.workdir);
+		try {
+			BinaryResults.toJson(actualPath.resolve(BinaryResults.FILE_NAME), actualPath.resolve("json"));
+			assertEquals("Results are different", readGraphs(Paths.get("expected", "cp-eval")),
+					readGraphs(actualPath.resolve("json")));
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to compare results");
+		}
+	}
+
+	// graphs are keyed by file, since the same CFG has one file per context
+	private static Map<String, SerializableGraph> readGraphs(Path dir) throws IOException {
+		Map<String, SerializableGraph> graphs = new HashMap<>();
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				String name = file.getFileName().toString();
+				if (!name.endsWith(".json") || name.equals("report.json"))
+					continue;
+				try (Reader reader = Files.newBufferedReader(file)) {
+					SerializableGraph graph = SerializableGraph.readGraph(reader);
+					graphs.put(name, graph);
+				}
+			}
+		}
+		return graphs;
+	}
 }
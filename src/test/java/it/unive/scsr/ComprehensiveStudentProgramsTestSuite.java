@@ -1,15 +1,12 @@
 package it.unive.scsr;
 
-import it.unive.lisa.LiSA;
-import it.unive.lisa.AnalysisException;
-import it.unive.lisa.DefaultConfiguration;
-import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
-import it.unive.lisa.imp.IMPFrontend;
-import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
 import it.unive.lisa.interprocedural.context.FullStackToken;
-import it.unive.lisa.program.Program;
+import it.unive.scsr.analysis.AnalysisBudget;
+import it.unive.scsr.analysis.BatchAnalyzer;
+import it.unive.scsr.analysis.BatchAnalyzer.FileResult;
+import it.unive.scsr.checkers.DegradedResultsChecker;
 import it.unive.scsr.checkers.DivisionByZeroChecker;
 import it.unive.scsr.checkers.OverflowChecker;
 import it.unive.scsr.checkers.TaintThreeLevelsChecker;
@@ -18,8 +15,13 @@ import it.unive.lisa.checks.semantic.SemanticCheck;
 
 import org.junit.Test;
 
+import static org.junit.Assert.fail;
+
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class ComprehensiveStudentProgramsTestSuite {
 
@@ -31,47 +33,51 @@ public class ComprehensiveStudentProgramsTestSuite {
     private static final NumericalSize OVERFLOW_TYPE = NumericalSize.UINT8;
     private static final NumericalSize DIVZERO_TYPE = NumericalSize.INT32;
 
+    // per-CFG fixpoint budget: a pathological submission must not stall the whole batch
+    private static final long CFG_TIME_BUDGET_MS = 10_000;
+    // semantic operations at each program point, over all contexts: off unless -Dscsr.pointBudget=<n>,
+    // since methods called in many contexts reach any fixed limit without diverging
+    private static final int POINT_EVALUATION_BUDGET = Integer.getInteger("scsr.pointBudget", 0);
+
     @Test
     public void testStudentProgramsOverflow() throws Exception {
-        runCheckerOnStudentPrograms("Overflow", new OverflowChecker(OVERFLOW_TYPE), OVERFLOW_DIRS);
+        runCheckerOnStudentPrograms("Overflow", () -> new OverflowChecker(OVERFLOW_TYPE), OVERFLOW_DIRS);
     }
 
     @Test
     public void testStudentProgramsDivByZero() throws Exception {
-        runCheckerOnStudentPrograms("DivisionByZero", new DivisionByZeroChecker(DIVZERO_TYPE), DIVZERO_DIRS);
+        runCheckerOnStudentPrograms("DivisionByZero", () -> new DivisionByZeroChecker(DIVZERO_TYPE), DIVZERO_DIRS);
     }
 
     @Test
     public void testStudentProgramsTaintThreeLevels() throws Exception {
-        runCheckerOnStudentPrograms("TaintThreeLevels", new TaintThreeLevelsChecker(), TAINT_DIRS);
+        runCheckerOnStudentPrograms("TaintThreeLevels", () -> new TaintThreeLevelsChecker(), TAINT_DIRS);
     }
 
-    private void runCheckerOnStudentPrograms(String checkerName, SemanticCheck<?> checker, String[] subfolders) throws ParsingException, AnalysisException {
+    // files are analyzed concurrently, each with its own checker and workdir
+    private void runCheckerOnStudentPrograms(String checkerName, Supplier<SemanticCheck<?>> checker, String[] subfolders) throws IOException {
+        BatchAnalyzer analyzer = BatchAnalyzer.fromSystemProperties();
         for (String sub : subfolders) {
             File dir = new File(STUDENT_PROGRAMS_DIR, sub);
-            File[] files = dir.listFiles((d, name) -> name.endsWith(".imp"));
-            if (files == null || files.length == 0) {
-                System.out.println("No IMP files found in " + dir.getPath());
-                continue;
-            }
-
-            Arrays.sort(files);
-            for (File file : files) {
-                System.out.println("=== Running " + checkerName + " on: " + file.getName() + " ===");
-                Program program = IMPFrontend.processFile(file.getAbsolutePath());
-
-                LiSAConfiguration conf = new DefaultConfiguration();
-                conf.workdir = "outputs/student-programs/" + checkerName.toLowerCase() + "/" + file.getName().replace(".imp", "");
+            List<FileResult> results = analyzer.run(dir, Paths.get("outputs/student-programs/" + checkerName.toLowerCase()), conf -> {
                 conf.analysisGraphs = GraphType.NONE;
-                conf.jsonOutput = false;
                 conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
-                conf.semanticChecks.add(checker);
+                conf.semanticChecks.add(checker.get());
 
-                LiSA lisa = new LiSA(conf);
-                lisa.run(program);
+                AnalysisBudget budget = new AnalysisBudget(CFG_TIME_BUDGET_MS, POINT_EVALUATION_BUDGET);
+                budget.apply(conf);
+                conf.semanticChecks.add(new DegradedResultsChecker<>(budget));
+            });
+            if (results.isEmpty()) {
+                System.out.println("No IMP files found in " + dir.getPath());
+                continue;
+            }
 
-                System.out.println("Analysis completed for: " + file.getName());
+            for (FileResult result : results) {
+                System.out.println("=== " + checkerName + " on " + result + " ===");
+                if (result.getStatus() == BatchAnalyzer.Status.FAILED)
+                    fail("Analysis of " + result.getFile().getName() + " failed: " + result.getError());
             }
         }
     }
-}
\ No newline at end of file
+}
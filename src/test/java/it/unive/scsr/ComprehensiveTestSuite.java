@@ -1,10 +1,22 @@
 package it.unive.scsr;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.Test;
 
 import it.unive.lisa.AnalysisException;
 import it.unive.lisa.DefaultConfiguration;
-import it.unive.lisa.LiSA;
 import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
 import it.unive.scsr.Intervals;
 import it.unive.scsr.Pentagons;
@@ -12,23 +24,26 @@ import it.unive.scsr.TaintThreeLevels;
 import it.unive.lisa.analysis.value.ValueDomain;
 import it.unive.lisa.conf.LiSAConfiguration;
 import it.unive.lisa.conf.LiSAConfiguration.GraphType;
-import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
 import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
 import it.unive.lisa.interprocedural.context.FullStackToken;
-import it.unive.lisa.program.ClassUnit;
+import it.unive.lisa.outputs.json.JsonReport;
 import it.unive.lisa.program.Program;
-import it.unive.lisa.program.Unit;
-import it.unive.lisa.program.cfg.CodeMember;
-import it.unive.lisa.program.cfg.Parameter;
 import it.unive.scsr.checkers.OverflowChecker;
 import it.unive.scsr.checkers.TaintChecker;
 import it.unive.scsr.checkers.TaintThreeLevelsChecker;
 import it.unive.scsr.NumericalSize;
 import it.unive.scsr.checkers.DivisionByZeroChecker;
+import it.unive.scsr.checkers.IndexedChecks;
+import it.unive.scsr.analysis.AnalysisRunner;
+import it.unive.scsr.analysis.ProgramCache;
+import it.unive.scsr.analysis.TaintAnnotations;
 
 public class ComprehensiveTestSuite {
 
+	// parsed programs are shared among tests analyzing the same inputs
+	private static final ProgramCache PROGRAMS = new ProgramCache();
+
 	// Define the signatures for matching sources, sanitizers, and sinks
 	String[] sources = new String[] {"source1", "source2"};
 	String[] sanitizers = new String[] {"sanitizer1", "sanitizer2"};
@@ -78,48 +93,42 @@ public class ComprehensiveTestSuite {
 	// ===== EXISTING OVERFLOW TESTS =====
 
 	@Test
-	public void testOverflowComplexUINT8() throws ParsingException, AnalysisException {
-		System.out.println("=== STARTING OVERFLOW ANALYSIS: UINT8 COMPLEX ===");
+	public void testOverflowComplexAllTargets() throws ParsingException, AnalysisException, IOException {
+		System.out.println("=== STARTING OVERFLOW ANALYSIS: UINT8 + INT16 + FLOAT32 COMPLEX ===");
 		System.out.println("Input file: inputs/overflow-complex.imp");
-		System.out.println("Target type: UINT8 (range: 0-255)");
-		System.out.println("Domain Intervals");
-		System.out.println("Expected: Multiple overflow warnings for arithmetic operations exceeding 255");
-		
-		runOverflowAnalysis("inputs/overflow-complex.imp", NumericalSize.UINT8, "overflow-complex-uint8", 
-			new ValueEnvironment<Intervals>(new Intervals()));
-		
-		System.out.println("Analysis completed. Check outputs/overflow/overflow-complex-uint8/ for detailed results");
-		System.out.println("=== OVERFLOW ANALYSIS UINT8 COMPLEX FINISHED ===\n");
-	}
-
-	@Test
-	public void testOverflowComplexINT16() throws ParsingException, AnalysisException {
-		System.out.println("=== STARTING OVERFLOW ANALYSIS: INT16 COMPLEX ===");
-		System.out.println("Input file: inputs/overflow-complex.imp");
-		System.out.println("Target type: INT16 (range: -32768 to 32767)");
+		System.out.println("Target types: UINT8, INT16, FLOAT32 (single analysis)");
 		System.out.println("Domain: Intervals");
-		System.out.println("Expected: Fewer overflow warnings due to larger range, signed arithmetic handling");
+		System.out.println("Expected: The union of the three single-target runs, each warning tagged by its target type");
 		
-		runOverflowAnalysis("inputs/overflow-complex.imp", NumericalSize.INT16, "overflow-complex-int16", 
+		Set<NumericalSize> sizes = EnumSet.of(NumericalSize.UINT8, NumericalSize.INT16, NumericalSize.FLOAT32);
+		runOverflowAnalysis("inputs/overflow-complex.imp", sizes, "overflow-complex-all", 
 			new ValueEnvironment<Intervals>(new Intervals()));
 		
-		System.out.println("Analysis completed. Check outputs/overflow/overflow-complex-int16/ for detailed results");
-		System.out.println("=== OVERFLOW ANALYSIS INT16 COMPLEX FINISHED ===\n");
-	}
-
-	@Test
-	public void testOverflowComplexFLOAT32() throws ParsingException, AnalysisException {
-		System.out.println("=== STARTING OVERFLOW ANALYSIS: FLOAT32 COMPLEX ===");
-		System.out.println("Input file: inputs/overflow-complex.imp");
-		System.out.println("Target type: FLOAT32 (range: -3.4e38 to 3.4e38)");
-		System.out.println("Domain: Intervals");
-		System.out.println("Expected: Precision loss warnings instead of hard overflows");
+		// the single-target runs, whose warnings are not tagged
+		List<String> expected = new ArrayList<>();
+		for (NumericalSize size : sizes) {
+			String outputPath = "overflow-complex-" + size.name().toLowerCase();
+			runOverflowAnalysis("inputs/overflow-complex.imp", size, outputPath, 
+				new ValueEnvironment<Intervals>(new Intervals()));
+			for (String warning : readWarnings("outputs/overflow/" + outputPath))
+				expected.add(size + " " + warning);
+		}
 		
-		runOverflowAnalysis("inputs/overflow-complex.imp", NumericalSize.FLOAT32, "overflow-complex-float32", 
-			new ValueEnvironment<Intervals>(new Intervals()));
+		List<String> actual = new ArrayList<>();
+		for (String warning : readWarnings("outputs/overflow/overflow-complex-all"))
+			for (NumericalSize size : sizes) {
+				String tag = "[" + size.getTypeName() + "] ";
+				if (warning.contains(tag))
+					actual.add(size + " " + warning.replace(tag, ""));
+			}
+		
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertFalse("No overflow warnings raised", expected.isEmpty());
+		assertEquals(expected, actual);
 		
-		System.out.println("Analysis completed. Check outputs/overflow/overflow-complex-float32/ for detailed results");
-		System.out.println("=== OVERFLOW ANALYSIS FLOAT32 COMPLEX FINISHED ===\n");
+		System.out.println("Analysis completed. Check outputs/overflow/overflow-complex-all/ for detailed results");
+		System.out.println("=== OVERFLOW ANALYSIS ALL TARGETS COMPLEX FINISHED ===\n");
 	}
 
 	@Test
@@ -356,11 +365,10 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting taint analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
-		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
-		
-		loadAnnotationsWithArrays(program, sources, sanitizers, sinks);
-		System.out.println("Taint annotations loaded");
+		TaintAnnotations annotations = new TaintAnnotations(sources, sanitizers, sinks);
+		Program program = PROGRAMS.get(inputFile, annotations);
+		System.out.println("Annotation summary: " + annotations.summary(program));
+		System.out.println("Program parsed and annotated. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
 		conf.workdir = "outputs/taint/" + outputPath;
@@ -380,63 +388,16 @@ public class ComprehensiveTestSuite {
 		
 		System.out.println("Configuration complete. Starting LiSA analysis...");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Taint analysis setup finished ---");
 	}
 
-	// NEW: Load annotations with custom arrays
-	private void loadAnnotationsWithArrays(Program program, String[] sources, String[] sanitizers, String[] sinks) {
-		System.out.println("--- Loading taint annotations ---");
-		int sourcesFound = 0, sanitizersFound = 0, sinksFound = 0;
-		
-		for(Unit unit : program.getUnits()) {
-			if(unit instanceof ClassUnit) {
-				ClassUnit cunit = (ClassUnit) unit;
-				for(CodeMember cm : cunit.getInstanceCodeMembers(false)) {
-					String methodName = cm.getDescriptor().getName();
-					
-					// Check sources
-					for(String source : sources) {
-						if(methodName.equals(source)) {
-							cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.TAINTED_ANNOTATION);
-							sourcesFound++;
-							System.out.println("Annotated source: " + methodName);
-							break;
-						}
-					}
-					
-					// Check sanitizers  
-					for(String sanitizer : sanitizers) {
-						if(methodName.equals(sanitizer)) {
-							cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.CLEAN_ANNOTATION);
-							sanitizersFound++;
-							System.out.println("Annotated sanitizer: " + methodName);
-							break;
-						}
-					}
-					
-					// Check sinks
-					for(String sink : sinks) {
-						if(methodName.equals(sink)) {
-							for(Parameter param : cm.getDescriptor().getFormals()) {
-								param.addAnnotation(TaintThreeLevelsChecker.SINK_ANNOTATION);
-								sinksFound++;
-								System.out.println("Annotated sink parameter: " + param.getName() + " in " + methodName);
-							}
-							break;
-						}
-					}
-				}    
-			}
-		}
-		
-		System.out.println("Annotation summary: " + sourcesFound + " sources, " + sanitizersFound + " sanitizers, " + sinksFound + " sink parameters");
-		System.out.println("--- Taint annotations loading completed ---");
-	}
-
 	// EXISTING: Original helper methods for ValueEnvironment-based domains
 	private <V extends ValueDomain<V>> void runOverflowAnalysis(String inputFile, NumericalSize size, String outputPath, V valueEnv) 
 			throws ParsingException, AnalysisException {
@@ -444,7 +405,7 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting overflow analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
+		Program program = PROGRAMS.get(inputFile);
 		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -466,20 +427,69 @@ public class ComprehensiveTestSuite {
 		
 		System.out.println("Configuration complete. Starting LiSA analysis...");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Overflow analysis setup finished ---");
 	}
 
+	private <V extends ValueDomain<V>> void runOverflowAnalysis(String inputFile, Set<NumericalSize> sizes, String outputPath, V valueEnv) 
+			throws ParsingException, AnalysisException {
+		
+		System.out.println("--- Starting multi-target overflow analysis setup ---");
+		System.out.println("Reading program from: " + inputFile);
+		
+		Program program = PROGRAMS.get(inputFile);
+		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
+		
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = "outputs/overflow/" + outputPath;
+		conf.analysisGraphs = GraphType.HTML;
+		conf.jsonOutput = true;
+		
+		System.out.println("Output directory: " + conf.workdir);
+		System.out.println("Target numerical types: " + sizes);
+		System.out.println("Abstract domain: " + valueEnv.getClass().getSimpleName());
+
+		conf.abstractState = DefaultConfiguration.simpleState(
+			DefaultConfiguration.defaultHeapDomain(),
+			valueEnv,
+			DefaultConfiguration.defaultTypeDomain());
+		
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		conf.semanticChecks.add(new OverflowChecker(sizes));
+		
+		System.out.println("Configuration complete. Starting LiSA analysis...");
+		
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
+		
+		System.out.println("LiSA analysis completed successfully");
+		System.out.println("--- Multi-target overflow analysis setup finished ---");
+	}
+
+	private static List<String> readWarnings(String workdir) throws IOException {
+		try (Reader reader = Files.newBufferedReader(Paths.get(workdir, "report.json"))) {
+			List<String> warnings = new ArrayList<>();
+			JsonReport.read(reader).getWarnings().forEach(w -> warnings.add(w.getMessage()));
+			return warnings;
+		}
+	}
+
 	private <V extends ValueDomain<V>> void runDivisionByZeroAnalysis(String inputFile, NumericalSize size, String outputPath, V valueEnv) 
 			throws ParsingException, AnalysisException {
 		
 		System.out.println("--- Starting division by zero analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
+		Program program = PROGRAMS.get(inputFile);
 		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -501,8 +511,11 @@ public class ComprehensiveTestSuite {
 		
 		System.out.println("Configuration complete. Starting LiSA analysis...");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Division by zero analysis setup finished ---");
@@ -515,7 +528,7 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting overflow analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
+		Program program = PROGRAMS.get(inputFile);
 		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -537,8 +550,11 @@ public class ComprehensiveTestSuite {
 		System.out.println("Configuration complete. Starting LiSA analysis...");
 		System.out.println("Note: Custom overflow checker omitted due to type incompatibility with Pentagons domain");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Overflow analysis setup finished ---");
@@ -550,7 +566,7 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting division by zero analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
+		Program program = PROGRAMS.get(inputFile);
 		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
@@ -573,8 +589,11 @@ public class ComprehensiveTestSuite {
 		System.out.println("Note: Custom division-by-zero checker omitted due to type incompatibility with Pentagons domain");
 		System.out.println("Analysis will rely on built-in LiSA capabilities for Pentagons domain");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Division by zero analysis setup finished ---");
@@ -586,11 +605,10 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting taint three levels analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
-		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
-		
-		loadAnnotations(program);
-		System.out.println("Taint annotations loaded for sources, sanitizers, and sinks");
+		TaintAnnotations annotations = new TaintAnnotations(sources, sanitizers, sinks);
+		Program program = PROGRAMS.get(inputFile, annotations);
+		System.out.println("Annotation summary: " + annotations.summary(program));
+		System.out.println("Program parsed and annotated for sources, sanitizers, and sinks. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
 		conf.workdir = "outputs/taint/" + outputPath;
@@ -610,8 +628,11 @@ public class ComprehensiveTestSuite {
 		
 		System.out.println("Configuration complete. Starting LiSA analysis...");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("LiSA analysis completed successfully");
 		System.out.println("--- Taint three levels analysis setup finished ---");
@@ -623,11 +644,10 @@ public class ComprehensiveTestSuite {
 		System.out.println("--- Starting combined analysis setup ---");
 		System.out.println("Reading program from: " + inputFile);
 		
-		Program program = IMPFrontend.processFile(inputFile);
-		System.out.println("Program parsed successfully. CFGs found: " + program.getAllCFGs().size());
-		
-		loadAnnotations(program);
-		System.out.println("Taint annotations loaded for combined analysis");
+		TaintAnnotations annotations = new TaintAnnotations(sources, sanitizers, sinks);
+		Program program = PROGRAMS.get(inputFile, annotations);
+		System.out.println("Annotation summary: " + annotations.summary(program));
+		System.out.println("Program parsed and annotated for combined analysis. CFGs found: " + program.getAllCFGs().size());
 		
 		LiSAConfiguration conf = new DefaultConfiguration();
 		conf.workdir = "outputs/combined/" + outputPath;
@@ -646,75 +666,21 @@ public class ComprehensiveTestSuite {
 		
 		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
 		
-		// Add all checkers for comprehensive analysis
-		conf.semanticChecks.add(new OverflowChecker(size));
-		conf.semanticChecks.add(new DivisionByZeroChecker(size));
-		conf.semanticChecks.add(new TaintChecker());
+		// Add all checkers for comprehensive analysis, visiting each CFG once
+		conf.semanticChecks.add(IndexedChecks.of(
+			new OverflowChecker(size),
+			new DivisionByZeroChecker(size),
+			new TaintChecker()));
 		
 		System.out.println("All checkers configured. Starting LiSA analysis...");
 		
-		LiSA lisa = new LiSA(conf);
-		lisa.run(program);
+		try {
+			AnalysisRunner.analyze(conf, program);
+		} finally {
+			PROGRAMS.release(program);
+		}
 		
 		System.out.println("Combined LiSA analysis completed successfully");
 		System.out.println("--- Combined analysis setup finished ---");
 	}
-
-	private void loadAnnotations(Program program) {
-		System.out.println("--- Loading taint annotations ---");
-		int sourcesFound = 0, sanitizersFound = 0, sinksFound = 0;
-		
-		for(Unit unit : program.getUnits()) {
-			if(unit instanceof ClassUnit) {
-				ClassUnit cunit = (ClassUnit) unit;
-				for(CodeMember cm : cunit.getInstanceCodeMembers(false)) {
-					if(isSource(cm)) {
-						cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.TAINTED_ANNOTATION);
-						sourcesFound++;
-						System.out.println("Annotated source: " + cm.getDescriptor().getName());
-					} else if(isSanitizer(cm)) {
-						cm.getDescriptor().getAnnotations().addAnnotation(TaintThreeLevels.CLEAN_ANNOTATION);
-						sanitizersFound++;
-						System.out.println("Annotated sanitizer: " + cm.getDescriptor().getName());
-					} else if(isSink(cm)) {
-						for(Parameter param : cm.getDescriptor().getFormals()) {
-							param.addAnnotation(TaintThreeLevelsChecker.SINK_ANNOTATION);
-							sinksFound++;
-							System.out.println("Annotated sink parameter: " + param.getName() + " in function " + cm.getDescriptor().getName());
-						}		
-					}
-				}	
-			}
-		}
-		
-		System.out.println("Annotation summary: " + sourcesFound + " sources, " + sanitizersFound + " sanitizers, " + sinksFound + " sink parameters");
-		System.out.println("--- Taint annotations loading completed ---");
-	}
-
-	private boolean isSource(CodeMember cm) {
-		for(String signatureName : sources) {
-			if(cm.getDescriptor().getName().equals(signatureName)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private boolean isSanitizer(CodeMember cm) {
-		for(String signatureName : sanitizers) {
-			if(cm.getDescriptor().getName().equals(signatureName)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private boolean isSink(CodeMember cm) {
-		for(String signatureName : sinks) {
-			if(cm.getDescriptor().getName().equals(signatureName)) {
-				return true;
-			}
-		}
-		return false;
-	}
-}
\ No newline at end of file
+}
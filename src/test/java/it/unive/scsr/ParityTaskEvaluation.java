@@ -47,6 +47,7 @@ public class ParityTaskEvaluation {
             fail("Cannot delete working directory '" + conf.workdir + "': " + e.getMessage());
         }
 
+        // graded against expected/, so no cache and no background rendering
         LiSA lisa = new LiSA(conf);
         lisa.run(program);
 
@@ -85,6 +85,7 @@ public class TaintThreeLevelsTaskEvaluation {
 		}
 		 
 		// create a LiSA instance with the configuration we just set
+		// graded against expected/, so no cache and no background rendering
 		LiSA lisa = new LiSA(conf);
 		
 		// actually run the analysis on the program
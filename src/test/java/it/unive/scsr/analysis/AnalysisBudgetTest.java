@@ -0,0 +1,100 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.checkers.DegradedResultsChecker;
+
+public class AnalysisBudgetTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testExceededBudgetDegradesResults() throws IOException, ParsingException, AnalysisException {
+		// the loop head of intervals::loop is evaluated more than once
+		AnalysisBudget budget = new AnalysisBudget(0, 1);
+		Path workdir = folder.newFolder().toPath();
+		new LiSA(conf(workdir, budget)).run(IMPFrontend.processFile("inputs/intervals.imp"));
+
+		assertTrue("The budget has not been exceeded",
+				budget.getDegraded().keySet().stream().anyMatch(cfg -> cfg.contains("loop")));
+		assertTrue("Degraded CFGs are not reported", warnings(workdir).anyMatch(w -> w.contains("[DEGRADED]")));
+	}
+
+	@Test
+	public void testLargeBudgetDoesNotDegrade() throws IOException, ParsingException, AnalysisException {
+		AnalysisBudget budget = new AnalysisBudget(0, 100_000);
+		Path workdir = folder.newFolder().toPath();
+		new LiSA(conf(workdir, budget)).run(IMPFrontend.processFile("inputs/intervals.imp"));
+
+		assertTrue(budget.getDegraded().isEmpty());
+		assertFalse(warnings(workdir).anyMatch(w -> w.contains("[DEGRADED]")));
+	}
+
+	@Test
+	public void testDegradedResultsAreNotCached() throws IOException, ParsingException, AnalysisException {
+		Path dir = folder.newFolder("cache").toPath();
+		AnalysisCache cache = new AnalysisCache(dir);
+		Program program = IMPFrontend.processFile("inputs/intervals.imp");
+
+		assertFalse(cache.run(conf(folder.newFolder().toPath(), new AnalysisBudget(0, 1)), program));
+		try (Stream<Path> entries = Files.list(dir)) {
+			assertFalse("Degraded results have been stored", entries.anyMatch(f -> f.toString().endsWith(".cache")));
+		}
+	}
+
+	@Test
+	public void testBudgetIsPartOfTheKey() throws IOException, ParsingException {
+		AnalysisCache cache = new AnalysisCache(folder.newFolder().toPath());
+		Program program = IMPFrontend.processFile("inputs/intervals.imp");
+		Path workdir = folder.newFolder().toPath();
+
+		assertNotEquals(cache.key(program, conf(workdir, new AnalysisBudget(0, 1))),
+				cache.key(program, conf(workdir, new AnalysisBudget(0, 100_000))));
+		assertNotEquals(cache.key(program, conf(workdir, new AnalysisBudget(0, 1))),
+				cache.key(program, conf(workdir, null)));
+	}
+
+	private static Stream<String> warnings(Path workdir) throws IOException {
+		try (Reader reader = Files.newBufferedReader(workdir.resolve("report.json"))) {
+			return JsonReport.read(reader).getWarnings().stream().map(w -> w.getMessage());
+		}
+	}
+
+	private static LiSAConfiguration conf(Path workdir, AnalysisBudget budget) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.jsonOutput = true;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		if (budget != null) {
+			budget.apply(conf);
+			conf.semanticChecks.add(new DegradedResultsChecker<>(budget));
+		}
+		return conf;
+	}
+}
@@ -0,0 +1,179 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.checks.syntactic.CheckTool;
+import it.unive.lisa.checks.syntactic.SyntacticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.checkers.DivisionByZeroChecker;
+import it.unive.scsr.checkers.IndexedChecks;
+
+public class AnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMissThenHit() throws IOException, ParsingException, AnalysisException {
+		Path dir = folder.newFolder("cache").toPath();
+		AnalysisCache cache = new AnalysisCache(dir);
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+
+		Path first = folder.newFolder("first").toPath();
+		assertFalse("An empty cache cannot hit", cache.run(conf(first), program));
+		assertEquals(1, entries(dir).size());
+
+		Path second = folder.newFolder("second").toPath();
+		assertTrue("The same analysis must hit", cache.run(conf(second), program));
+		assertArrayEquals("Restored report differs", Files.readAllBytes(first.resolve("report.json")),
+				Files.readAllBytes(second.resolve("report.json")));
+	}
+
+	@Test
+	public void testCorruptEntryIsAMiss() throws IOException, ParsingException, AnalysisException {
+		Path dir = folder.newFolder("cache").toPath();
+		AnalysisCache cache = new AnalysisCache(dir);
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+		cache.run(conf(folder.newFolder("first").toPath()), program);
+
+		// truncates the entry in the middle of a file
+		Path entry = entries(dir).get(0);
+		try (RandomAccessFile file = new RandomAccessFile(entry.toFile(), "rw")) {
+			file.setLength(file.length() / 2);
+		}
+
+		Path second = folder.newFolder("second").toPath();
+		assertFalse("A truncated entry must be a miss", cache.run(conf(second), program));
+		assertTrue("The analysis must run again", Files.isRegularFile(second.resolve("report.json")));
+		// the entry is stored again by the analysis
+		assertTrue(cache.run(conf(folder.newFolder("third").toPath()), program));
+	}
+
+	@Test
+	public void testStaleFilesAreNotStored() throws IOException, ParsingException, AnalysisException {
+		AnalysisCache cache = new AnalysisCache(folder.newFolder("cache").toPath());
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+
+		Path first = folder.newFolder("first").toPath();
+		Files.write(first.resolve("stale.json"), "{}".getBytes());
+		cache.run(conf(first), program);
+
+		Path second = folder.newFolder("second").toPath();
+		assertTrue(cache.run(conf(second), program));
+		assertFalse("Files of previous runs must not be restored", Files.exists(second.resolve("stale.json")));
+	}
+
+	@Test
+	public void testReportIsNotRestoredIfNotRequested() throws IOException, ParsingException, AnalysisException {
+		AnalysisCache cache = new AnalysisCache(folder.newFolder("cache").toPath());
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+
+		Path first = folder.newFolder("first").toPath();
+		LiSAConfiguration conf = conf(first);
+		conf.jsonOutput = false;
+		assertFalse(cache.run(conf, program));
+		assertFalse(conf.jsonOutput);
+		assertFalse(Files.exists(first.resolve("report.json")));
+
+		Path second = folder.newFolder("second").toPath();
+		conf = conf(second);
+		conf.jsonOutput = false;
+		assertTrue(cache.run(conf, program));
+		assertFalse(Files.exists(second.resolve("report.json")));
+	}
+
+	@Test
+	public void testThreadsAreNotPartOfTheKey() throws IOException, ParsingException {
+		AnalysisCache cache = new AnalysisCache(folder.newFolder("cache").toPath());
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+		Path workdir = folder.newFolder().toPath();
+
+		LiSAConfiguration sequential = conf(workdir, IndexedChecks.create(1, false, check()));
+		LiSAConfiguration parallel = conf(workdir, IndexedChecks.create(4, false, check()));
+		LiSAConfiguration aggregated = conf(workdir, IndexedChecks.create(1, true, check()));
+		assertEquals(cache.key(program, sequential), cache.key(program, parallel));
+		assertNotEquals(cache.key(program, sequential), cache.key(program, aggregated));
+	}
+
+	@Test
+	public void testSyntacticChecksArePartOfTheKey() throws IOException, ParsingException {
+		AnalysisCache cache = new AnalysisCache(folder.newFolder("cache").toPath());
+		Program program = IMPFrontend.processFile("inputs/divbyzero.imp");
+		Path workdir = folder.newFolder().toPath();
+
+		LiSAConfiguration plain = conf(workdir);
+		LiSAConfiguration syntactic = conf(workdir);
+		syntactic.syntacticChecks.add(new NoOpSyntacticCheck());
+		assertNotEquals(cache.key(program, plain), cache.key(program, syntactic));
+	}
+
+	private static List<Path> entries(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.toString().endsWith(".cache")).collect(Collectors.toList());
+		}
+	}
+
+	private static DivisionByZeroChecker check() {
+		return new DivisionByZeroChecker(NumericalSize.INT32);
+	}
+
+	private static LiSAConfiguration conf(Path workdir) {
+		return conf(workdir, check());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static LiSAConfiguration conf(Path workdir, SemanticCheck<?> check) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.jsonOutput = true;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add((SemanticCheck) check);
+		return conf;
+	}
+
+	/**
+	 * A syntactic check raising nothing.
+	 */
+	private static class NoOpSyntacticCheck implements SyntacticCheck {
+
+		@Override
+		public boolean visit(CheckTool tool, CFG graph) {
+			return true;
+		}
+
+		@Override
+		public boolean visit(CheckTool tool, CFG graph, Statement node) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnalysisDaemonTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AnalysisDaemon daemon = new AnalysisDaemon();
+
+	@Test
+	public void testPingAndShutdown() {
+		assertEquals("PONG", daemon.handle("ping"));
+		assertEquals("BYE", daemon.handle("shutdown"));
+	}
+
+	@Test
+	public void testMalformedRequests() {
+		assertTrue(daemon.handle("input").startsWith("ERROR "));
+		assertTrue(daemon.handle("checkers=overflow").startsWith("ERROR "));
+		assertTrue(daemon.handle("input=inputs/overflow.imp checkers=nullness").startsWith("ERROR "));
+		assertTrue(daemon.handle("test=NoSuchClass").startsWith("ERROR "));
+	}
+
+	@Test
+	public void testAnalysis() throws IOException {
+		Path output = folder.newFolder().toPath();
+		String answer = daemon.handle("input=inputs/divbyzero.imp checkers=division-by-zero output=" + output);
+
+		assertEquals("OK " + output.resolve("report.json").toAbsolutePath(), answer);
+		assertTrue(Files.exists(output.resolve("report.json")));
+		assertTrue(Files.exists(output.resolve(AnalysisDaemon.LOG_FILE)));
+	}
+
+	@Test
+	public void testFailureAnswersWithTheLog() throws IOException {
+		Path output = folder.newFolder().toPath();
+		Path missing = Paths.get(folder.getRoot().toString(), "missing.imp");
+		String answer = daemon.handle("input=" + missing + " output=" + output);
+
+		assertEquals("FAIL " + output.resolve(AnalysisDaemon.LOG_FILE).toAbsolutePath(), answer);
+	}
+}
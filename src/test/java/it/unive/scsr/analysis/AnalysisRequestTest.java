@@ -0,0 +1,101 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.analysis.AnalysisRequest.Checker;
+import it.unive.scsr.analysis.AnalysisRequest.Domain;
+import it.unive.scsr.analysis.AnalysisRequest.Format;
+
+public class AnalysisRequestTest {
+
+	@Test
+	public void testDefaults() {
+		AnalysisRequest request = AnalysisRequest.fromOptions(options("input", "inputs/overflow.imp"));
+
+		assertEquals("inputs/overflow.imp", request.getInput());
+		assertEquals("outputs/overflow", request.getOutput());
+		assertEquals(Domain.INTERVALS, request.getDomain());
+		assertTrue(request.getCheckers().isEmpty());
+		assertEquals(EnumSet.of(NumericalSize.INT32), request.getSizes());
+		assertTrue(request.getAnnotations().isEmpty());
+		assertEquals(Collections.singleton(Format.JSON), request.getFormats());
+		assertEquals(GraphType.NONE, request.getGraphs());
+	}
+
+	@Test
+	public void testAllOptions() {
+		AnalysisRequest request = AnalysisRequest.fromOptions(options(
+				"input", "inputs/taint-3lvs-eval.imp",
+				"output", "outputs/request",
+				"checkers", "taint-three-levels",
+				"size", "int8, uint16",
+				"sources", "source1,source2",
+				"sanitizers", "sanitizer1",
+				"sinks", "sink1",
+				"formats", "sarif,json",
+				"graphs", "html"));
+
+		assertEquals("outputs/request", request.getOutput());
+		// the domain is the one required by the checker
+		assertEquals(Domain.TAINT_THREE_LEVELS, request.getDomain());
+		assertEquals(Collections.singletonList(Checker.TAINT_THREE_LEVELS), request.getCheckers());
+		assertEquals(EnumSet.of(NumericalSize.INT8, NumericalSize.UINT16), request.getSizes());
+		assertEquals(new TaintAnnotations(new String[] { "source2", "source1" }, new String[] { "sanitizer1" },
+				new String[] { "sink1" }), request.getAnnotations());
+		// in the requested order
+		assertEquals(Arrays.asList(Format.SARIF, Format.JSON), new ArrayList<>(request.getFormats()));
+		assertEquals(GraphType.HTML, request.getGraphs());
+	}
+
+	@Test
+	public void testNamesAreCaseInsensitive() {
+		AnalysisRequest request = AnalysisRequest.fromOptions(options(
+				"input", "a.imp", "domain", "Intervals", "checkers", "DIVISION_BY_ZERO,Overflow"));
+		assertEquals(Domain.INTERVALS, request.getDomain());
+		assertEquals(Arrays.asList(Checker.DIVISION_BY_ZERO, Checker.OVERFLOW), request.getCheckers());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingInput() {
+		AnalysisRequest.fromOptions(options("checkers", "overflow"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownOption() {
+		AnalysisRequest.fromOptions(options("input", "a.imp", "colour", "red"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownChecker() {
+		AnalysisRequest.fromOptions(options("input", "a.imp", "checkers", "nullness"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCheckerRequiringAnotherDomain() {
+		AnalysisRequest.fromOptions(options("input", "a.imp", "domain", "signs", "checkers", "overflow"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCheckersRequiringDifferentDomains() {
+		AnalysisRequest.fromOptions(options("input", "a.imp", "checkers", "overflow,taint"));
+	}
+
+	private static Map<String, String> options(String... keysAndValues) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2)
+			options.put(keysAndValues[i], keysAndValues[i + 1]);
+		return options;
+	}
+}
@@ -0,0 +1,163 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.analysis.BatchAnalyzer.FileResult;
+import it.unive.scsr.analysis.BatchAnalyzer.Status;
+import it.unive.scsr.checkers.DivisionByZeroChecker;
+
+public class BatchAnalyzerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static volatile boolean released;
+
+	@After
+	public void release() {
+		// lets the stuck analysis end
+		released = true;
+	}
+
+	@Test(timeout = 60_000)
+	public void testStuckFileDoesNotStallTheBatch() throws IOException {
+		released = false;
+		File dir = folder.newFolder("programs");
+		for (String name : new String[] { "a.imp", "stuck.imp", "z.imp" })
+			Files.copy(Paths.get("inputs/divbyzero.imp"), dir.toPath().resolve(name));
+		Path output = folder.newFolder("outputs").toPath();
+
+		// a single thread: the stuck file holds it until its time limit expires
+		List<FileResult> results = new BatchAnalyzer(1, 2_000).run(dir, output, conf -> {
+			if (conf.workdir.endsWith("stuck"))
+				// never terminates, and ignores interruptions
+				while (!released)
+					Thread.interrupted();
+			configure(conf);
+		});
+
+		assertEquals(3, results.size());
+		assertEquals(Status.COMPLETED, results.get(0).getStatus());
+		assertEquals(Status.TIMEOUT, results.get(1).getStatus());
+		assertTrue("Timed out before its limit", results.get(1).getMillis() >= 2_000);
+		assertEquals("The file after the stuck one has not been analyzed", Status.COMPLETED,
+				results.get(2).getStatus());
+		assertEquals(relocated(results.get(0), results.get(2).getFile()), results.get(2).getWarnings());
+
+		JsonNode summary = new ObjectMapper().readTree(output.resolve(BatchAnalyzer.FILE_NAME).toFile());
+		assertEquals(2, summary.get("completed").asInt());
+		assertEquals(1, summary.get("timeouts").asInt());
+	}
+
+	@Test(timeout = 60_000)
+	public void testDuplicatesAreAnalyzedOnce() throws IOException {
+		File dir = folder.newFolder("programs");
+		for (String name : new String[] { "a.imp", "b.imp" })
+			Files.copy(Paths.get("inputs/divbyzero.imp"), dir.toPath().resolve(name));
+
+		List<FileResult> results = new BatchAnalyzer(2, 0, true).run(dir, folder.newFolder("outputs").toPath(),
+				BatchAnalyzerTest::configure);
+
+		assertEquals(Status.COMPLETED, results.get(1).getStatus());
+		assertEquals(results.get(0).getFile(), results.get(1).getDuplicateOf());
+		assertEquals(relocated(results.get(0), results.get(1).getFile()), results.get(1).getWarnings());
+	}
+
+	@Test(timeout = 60_000)
+	public void testDuplicatesGetWarningsOnTheirOwnVariables() throws IOException {
+		File dir = folder.newFolder("programs");
+		write(dir, "a.imp", "class c {\n"
+				+ "\tf(a) {\n"
+				+ "\t\tdef x = a - a;\n"
+				+ "\t\tdef y = 10 / x;\n"
+				+ "\t\treturn y;\n"
+				+ "\t}\n"
+				+ "}\n");
+		// the same program, with other names and another layout
+		write(dir, "b.imp", "class c\n{\n"
+				+ "\tf(input)\n\t{\n"
+				+ "\t\tdef zero = input - input;\n\n"
+				+ "\t\tdef result = 10 / zero;\n"
+				+ "\t\treturn result;\n"
+				+ "\t}\n"
+				+ "}\n");
+
+		List<FileResult> deduplicated = new BatchAnalyzer(2, 0, true).run(dir,
+				folder.newFolder("deduplicated").toPath(), BatchAnalyzerTest::configure);
+		List<FileResult> analyzed = new BatchAnalyzer(2, 0, false).run(dir,
+				folder.newFolder("analyzed").toPath(), BatchAnalyzerTest::configure);
+
+		assertEquals(deduplicated.get(0).getFile(), deduplicated.get(1).getDuplicateOf());
+		assertFalse("No warnings raised", analyzed.get(1).getWarnings().isEmpty());
+		assertNotEquals(analyzed.get(0).getWarnings(), analyzed.get(1).getWarnings());
+		assertEquals(analyzed.get(0).getWarnings(), deduplicated.get(0).getWarnings());
+		assertEquals(analyzed.get(1).getWarnings(), deduplicated.get(1).getWarnings());
+	}
+
+	@Test(timeout = 120_000)
+	public void testConcurrentAnalysesRaiseTheSameWarnings() throws IOException {
+		File dir = folder.newFolder("programs");
+		for (int i = 0; i < 8; i++)
+			Files.copy(Paths.get("inputs/divbyzero-complex.imp"), dir.toPath().resolve("copy" + i + ".imp"));
+
+		Path sequentialOutput = folder.newFolder("sequential").toPath();
+		List<FileResult> sequential = new BatchAnalyzer(1, 0).run(dir, sequentialOutput,
+				BatchAnalyzerTest::configure);
+		List<FileResult> concurrent = new BatchAnalyzer(4, 0).run(dir, folder.newFolder("concurrent").toPath(),
+				BatchAnalyzerTest::configure);
+
+		assertFalse("No warnings raised", sequential.get(0).getWarnings().isEmpty());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(Status.COMPLETED, concurrent.get(i).getStatus());
+			assertEquals(sequential.get(i).getWarnings(), concurrent.get(i).getWarnings());
+			assertEquals(relocated(sequential.get(0), concurrent.get(i).getFile()), concurrent.get(i).getWarnings());
+		}
+		// warnings are read from the report of the run, not from its output
+		assertFalse(Files.exists(sequentialOutput.resolve("copy0").resolve("report.json")));
+	}
+
+	// the warnings of the given result, as if raised on the given copy of its file
+	private static List<String> relocated(FileResult result, File copy) {
+		List<String> warnings = new ArrayList<>();
+		for (String warning : result.getWarnings())
+			warnings.add(warning.replace(result.getFile().getAbsolutePath(), copy.getAbsolutePath()));
+		return warnings;
+	}
+
+	private static void write(File dir, String name, String program) throws IOException {
+		Files.write(dir.toPath().resolve(name), program.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void configure(LiSAConfiguration conf) {
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add(new DivisionByZeroChecker(NumericalSize.INT32));
+	}
+}
@@ -0,0 +1,111 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.outputs.serializableGraph.SerializableGraph;
+import it.unive.scsr.Intervals;
+
+public class BinaryResultsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testIntervalsRoundTrip() {
+		for (String s : new String[] { "[2, 2]", "[-10,-10]", "[-Inf, +Inf]", "[1,+Inf]", "[-Inf, -3]" }) {
+			long[] interval = BinaryResults.asInterval(s);
+			assertTrue("Not encoded: " + s, interval != null);
+			assertEquals(s, BinaryResults.interval((int) interval[0], interval[1], interval[2]));
+		}
+		for (String s : new String[] { "[1.5, 2]", "[01, 2]", "[+Inf, 2]", "[1,  2]", "[1]", "#TOP#", "[]" })
+			assertNull("Encoded: " + s, BinaryResults.asInterval(s));
+	}
+
+	@Test
+	public void testGraphsMatchLiSAFiles() throws IOException, ParsingException, AnalysisException {
+		// contexts of the callees are dumped to files with the hash of their id
+		for (String input : new String[] { "inputs/intervals.imp", "inputs/taint-3lvs-eval.imp" }) {
+			Path workdir = folder.newFolder().toPath();
+			run(input, workdir);
+
+			Map<String, SerializableGraph> expected = readJson(workdir);
+			assertEquals("Graphs are not named as LiSA names their files", expected,
+					BinaryResults.readFiles(workdir.resolve(BinaryResults.FILE_NAME)));
+
+			Path converted = workdir.resolve("converted");
+			BinaryResults.toJson(workdir.resolve(BinaryResults.FILE_NAME), converted);
+			for (String file : expected.keySet())
+				assertArrayEquals("Converted " + file + " differs", Files.readAllBytes(workdir.resolve(file)),
+						Files.readAllBytes(converted.resolve(file)));
+		}
+	}
+
+	@Test
+	public void testSmallerThanJson() throws IOException, ParsingException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		run("inputs/intervals.imp", workdir);
+
+		long json = 0;
+		for (String file : readJson(workdir).keySet())
+			json += Files.size(workdir.resolve(file));
+		long binary = Files.size(workdir.resolve(BinaryResults.FILE_NAME));
+		System.out.println("Binary results: " + binary + " bytes, JSON results: " + json + " bytes");
+		assertTrue("Binary results (" + binary + " bytes) are not smaller than JSON ones (" + json + " bytes)",
+				binary < json);
+	}
+
+	/**
+	 * Runs an analysis writing both the binary results and LiSA's JSON ones.
+	 */
+	private static void run(String input, Path workdir) throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		BinaryResults.apply(conf);
+		conf.serializeResults = true;
+		new LiSA(conf).run(IMPFrontend.processFile(input));
+	}
+
+	private static Map<String, SerializableGraph> readJson(Path dir) throws IOException {
+		Map<String, SerializableGraph> graphs = new HashMap<>();
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				String name = file.getFileName().toString();
+				if (!name.endsWith(".json") || name.equals("report.json"))
+					continue;
+				try (Reader reader = Files.newBufferedReader(file)) {
+					graphs.put(name, SerializableGraph.readGraph(reader));
+				}
+			}
+		}
+		return graphs;
+	}
+}
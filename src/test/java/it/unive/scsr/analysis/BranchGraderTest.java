@@ -0,0 +1,150 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.LiSA;
+import it.unive.scsr.Parity;
+import it.unive.scsr.Signs;
+
+public class BranchGraderTest {
+
+	private static final String PARITY = BranchGrader.SOURCES + "Parity.java";
+
+	private static final String EXTRA = BranchGrader.SOURCES + "Extra.java";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBranchClassesArePreferred() throws Exception {
+		Path source = folder.getRoot().toPath().resolve("src/it/unive/scsr/Parity.java");
+		Files.createDirectories(source.getParent());
+		Files.write(source, "package it.unive.scsr; public class Parity { }".getBytes(StandardCharsets.UTF_8));
+		Path classes = folder.newFolder("classes").toPath();
+		StringWriter log = new StringWriter();
+		assertTrue(log.toString(), BranchGrader.compile(Collections.singletonList(source), classes, log));
+
+		try (BranchGrader.BranchClassLoader loader = new BranchGrader.BranchClassLoader(classes.toUri().toURL(),
+				getClass().getClassLoader())) {
+			Class<?> parity = loader.loadClass("it.unive.scsr.Parity");
+			assertNotSame(Parity.class, parity);
+			assertSame(loader, parity.getClassLoader());
+			assertSame(parity, loader.loadClass("it.unive.scsr.Parity"));
+			// classes not changed by the branch, or outside of the project, are the grader's
+			assertSame(Signs.class, loader.loadClass("it.unive.scsr.Signs"));
+			assertSame(LiSA.class, loader.loadClass("it.unive.lisa.LiSA"));
+			assertSame(String.class, loader.loadClass("java.lang.String"));
+		}
+	}
+
+	@Test
+	public void testBranchesAreGradedAndReported() throws IOException, InterruptedException {
+		Path repository = folder.newFolder("repository").toPath();
+		git(repository, "init", "-q");
+		git(repository, "symbolic-ref", "HEAD", "refs/heads/master");
+		write(repository, PARITY, read(PARITY));
+		commit(repository, "master");
+
+		// a correct solution, and one that does not compile
+		branch(repository, "1-solution",
+				read(BranchGrader.SOURCES + "ParitySolution.java").replace("ParitySolution", "Parity"));
+		branch(repository, "2-broken", read(PARITY).replace("class Parity", "class Parity extends"));
+		branch(repository, "3-unchanged", read(PARITY));
+
+		Path output = folder.newFolder("output").toPath();
+		List<BranchGrader.Result> results = new BranchGrader(BranchGrader.Task.PARITY, null, repository, output)
+				.grade(Arrays.asList("1-solution", "2-broken", "3-unchanged"), 2, 120);
+
+		assertEquals(1, results.get(0).getCompile());
+		assertEquals(1, results.get(0).getTest());
+		assertEquals(0, results.get(1).getCompile());
+		assertEquals(0, results.get(1).getTest());
+		// the stub of master compiles, but is not a domain
+		assertEquals(1, results.get(2).getCompile());
+		assertEquals(0, results.get(2).getTest());
+		assertTrue(Files.exists(output.resolve("1-solution.log")));
+		assertTrue(Files.exists(output.resolve("1-solution").resolve("report.json")));
+
+		Path report = folder.getRoot().toPath().resolve("report.csv");
+		BranchGrader.writeReport(results, report);
+		assertEquals(Arrays.asList(",branch,id,compile,test", "0,1-solution,1,1,1", "1,2-broken,2,0,0",
+				"2,3-unchanged,3,1,0"), Files.readAllLines(report));
+	}
+
+	@Test
+	public void testOnlyTheChangesOfTheBranchAreCompiled() throws IOException, InterruptedException {
+		Path repository = folder.newFolder("repository").toPath();
+		git(repository, "init", "-q");
+		git(repository, "symbolic-ref", "HEAD", "refs/heads/master");
+		write(repository, PARITY, read(PARITY));
+		write(repository, EXTRA, "package it.unive.scsr; class Extra { int broken = ; }");
+		commit(repository, "master");
+
+		branch(repository, "1-solution",
+				read(BranchGrader.SOURCES + "ParitySolution.java").replace("ParitySolution", "Parity"));
+		// master moves on after the branch forked, fixing a file the branch did not touch
+		git(repository, "checkout", "-q", "master");
+		write(repository, EXTRA, "package it.unive.scsr; class Extra { }");
+		commit(repository, "fix");
+
+		Path output = folder.newFolder("output").toPath();
+		List<BranchGrader.Result> results = new BranchGrader(BranchGrader.Task.PARITY, null, repository, output)
+				.grade(Collections.singletonList("1-solution"), 1, 120);
+
+		assertEquals(1, results.get(0).getCompile());
+		assertEquals(1, results.get(0).getTest());
+		String log = read(output.resolve("1-solution.log").toString());
+		assertTrue(log, log.contains(PARITY));
+		assertFalse(log, log.contains(EXTRA));
+	}
+
+	private static String read(String file) throws IOException {
+		return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+	}
+
+	private static void write(Path repository, String file, String content) throws IOException {
+		Path path = repository.resolve(file);
+		Files.createDirectories(path.getParent());
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void branch(Path repository, String name, String parity) throws IOException, InterruptedException {
+		git(repository, "checkout", "-q", "-b", name, "master");
+		write(repository, PARITY, parity);
+		commit(repository, name);
+		// the grader reads the remote branches
+		git(repository, "update-ref", "refs/remotes/origin/" + name, name);
+	}
+
+	private static void commit(Path repository, String message) throws IOException, InterruptedException {
+		git(repository, "add", "-A");
+		git(repository, "-c", "user.name=grader", "-c", "user.email=grader@example.com", "commit", "-q",
+				"--allow-empty", "-m", message);
+	}
+
+	private static void git(Path repository, String... args) throws IOException, InterruptedException {
+		String[] command = new String[args.length + 1];
+		command[0] = "git";
+		System.arraycopy(args, 0, command, 1, args.length);
+		Process process = new ProcessBuilder(command).directory(repository.toFile()).inheritIO().start();
+		assertEquals("git " + String.join(" ", args), 0, process.waitFor());
+	}
+}
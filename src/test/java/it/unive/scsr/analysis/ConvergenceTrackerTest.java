@@ -0,0 +1,56 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.scsr.Intervals;
+
+public class ConvergenceTrackerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDumpReportsLoopHeads() throws IOException, ParsingException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+
+		ConvergenceTracker tracker = new ConvergenceTracker();
+		tracker.apply(conf);
+		new LiSA(conf).run(IMPFrontend.processFile("inputs/intervals.imp"));
+		tracker.dump(conf.workdir);
+
+		JsonNode cfgs = new ObjectMapper().readTree(workdir.resolve(ConvergenceTracker.FILE_NAME).toFile())
+				.get("cfgs");
+		// intervals.imp has a single loop, in intervals::loop
+		assertEquals("Unexpected CFGs: " + cfgs, 1, cfgs.size());
+		assertTrue(cfgs.get(0).get("cfg").asText().contains("loop"));
+		JsonNode loop = cfgs.get(0).get("loops").get(0);
+		assertTrue("The loop head must be evaluated more than once",
+				loop.get("ascendingIterations").asInt() > 1);
+		assertTrue(loop.get("head").asText().contains("<"));
+		assertTrue(loop.get("finalStateSize").asInt() > 0);
+	}
+}
@@ -0,0 +1,80 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.Pentagons;
+import it.unive.scsr.analysis.DomainStatistics.Counters;
+import it.unive.scsr.analysis.DomainStatistics.Operation;
+import it.unive.scsr.checkers.DivisionByZeroChecker;
+
+public class DomainStatisticsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDumpCountsOperations() throws IOException, ParsingException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add(new DivisionByZeroChecker(NumericalSize.INT32));
+
+		DomainStatistics stats = new DomainStatistics();
+		stats.apply(conf);
+		new LiSA(conf).run(IMPFrontend.processFile("inputs/divbyzero.imp"));
+		stats.dump(conf.workdir);
+
+		JsonNode dump = new ObjectMapper().readTree(workdir.resolve(DomainStatistics.FILE_NAME).toFile());
+		JsonNode domain = dump.get("ValueEnvironment<Intervals>");
+		assertTrue("Missing value domain: " + dump, domain != null);
+		assertTrue("No assignment counted", domain.get("assign").get("calls").asLong() > 0);
+		assertTrue("No lub counted", domain.get("lub").get("calls").asLong() > 0);
+		JsonNode check = dump.get("DivisionByZeroChecker");
+		assertTrue("Missing check: " + dump, check != null);
+		assertTrue("No visit counted", check.get("check").get("calls").asLong() > 0);
+	}
+
+	@Test
+	public void testOperationsAreCountedOnTheWrappedDomain() throws SemanticException {
+		Counters counters = new DomainStatistics().countersFor("Pentagons");
+		InstrumentedValueDomain<Pentagons> top = new InstrumentedValueDomain<>(new Pentagons(), counters);
+		InstrumentedValueDomain<Pentagons> bottom = top.bottom();
+
+		top.lub(bottom);
+		bottom.lub(top);
+		top.widening(bottom);
+		bottom.lessOrEqual(top);
+
+		// the operations of the environments inside pentagons are not counted
+		assertEquals(2, counters.getCalls(Operation.LUB));
+		assertEquals(1, counters.getCalls(Operation.WIDENING));
+		assertEquals(1, counters.getCalls(Operation.LESS_OR_EQUAL));
+		assertEquals(0, counters.getCalls(Operation.GLB));
+		assertEquals(0, counters.getCalls(Operation.NARROWING));
+	}
+}
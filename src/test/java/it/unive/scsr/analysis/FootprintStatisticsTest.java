@@ -0,0 +1,108 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Untyped;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.Pentagons;
+import it.unive.scsr.UpperBounds;
+
+public class FootprintStatisticsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDumpReportsMethodsAndDomains() throws IOException, ParsingException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+
+		FootprintStatistics footprint = new FootprintStatistics();
+		footprint.apply(conf);
+		new LiSA(conf).run(IMPFrontend.processFile("inputs/intervals.imp"));
+		footprint.dump(conf.workdir);
+
+		JsonNode root = new ObjectMapper().readTree(workdir.resolve(FootprintStatistics.FILE_NAME).toFile());
+		JsonNode domain = root.get("domains").get("ValueEnvironment<Intervals>");
+		assertTrue("Missing domain in " + root.get("domains"), domain != null);
+		assertTrue(domain.get("points").asLong() > 0);
+		assertTrue(domain.get("maxIdentifiers").asLong() > 0);
+
+		long points = 0;
+		boolean loop = false;
+		for (JsonNode method : root.get("methods")) {
+			assertEquals(1, method.get("contexts").asInt());
+			points += method.get("points").asLong();
+			loop |= method.get("cfg").asText().contains("loop");
+		}
+		assertTrue("intervals::loop is not reported", loop);
+		assertEquals("Methods and domains disagree", domain.get("points").asLong(), points);
+	}
+
+	@Test
+	public void testPentagonsFootprintCountsUpperBoundEdges() {
+		Variable x = variable("x"), y = variable("y"), z = variable("z"), w = variable("w");
+
+		Map<Identifier, Intervals> intervals = new HashMap<>();
+		intervals.put(x, new Intervals(0, 0));
+		intervals.put(y, new Intervals().top());
+		intervals.put(z, new Intervals().bottom());
+
+		Map<Identifier, UpperBounds> bounds = new HashMap<>();
+		bounds.put(x, new UpperBounds(new HashSet<>(Arrays.asList(y, z))));
+		bounds.put(y, new UpperBounds(new HashSet<>(Arrays.asList(z))));
+		bounds.put(z, new UpperBounds(new TreeSet<>()));
+		bounds.put(w, new UpperBounds(true));
+
+		Pentagons pentagons = new Pentagons(new ValueEnvironment<>(new UpperBounds(true), bounds),
+				new ValueEnvironment<>(new Intervals(), intervals));
+		// the footprint does not depend on the layers wrapping the state
+		StateFootprint footprint = StateFootprint.of(
+				new InstrumentedValueDomain<>(pentagons, new DomainStatistics().countersFor("Pentagons")));
+
+		assertTrue(footprint.isKnown());
+		assertEquals(4, footprint.getIdentifiers());
+		assertEquals(3, footprint.getUpperBoundEdges());
+		// y to top in the intervals, w to top in the upper bounds
+		assertEquals(2, footprint.getTops());
+		// z to bottom in both
+		assertEquals(2, footprint.getBottoms());
+		// two maps, seven mappings and three edges
+		assertEquals(2 * 64 + 7 * (48 + 64) + 3 * 48, footprint.getBytes());
+	}
+
+	private static Variable variable(String name) {
+		return new Variable(Untyped.INSTANCE, name, SyntheticLocation.INSTANCE);
+	}
+}
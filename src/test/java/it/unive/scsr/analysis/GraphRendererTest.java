@@ -0,0 +1,135 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.conf.LiSAConfiguration.GraphType;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.Intervals;
+
+public class GraphRendererTest {
+
+	private static final String FILE = "inputs/intervals.imp";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAsyncGraphsHaveLiSANames() throws IOException, ParsingException, AnalysisException {
+		Path lisa = folder.newFolder().toPath();
+		new LiSA(conf(lisa)).run(IMPFrontend.processFile(FILE));
+
+		Path rendered = folder.newFolder().toPath();
+		render(rendered, new GraphRenderer(GraphRenderer.Mode.ASYNC, Collections.emptySet(), 2), null);
+
+		Set<String> expected = graphs(lisa);
+		assertFalse("No graphs written by LiSA", expected.isEmpty());
+		assertEquals(expected, graphs(rendered));
+	}
+
+	@Test
+	public void testSelectiveGraphsAreTheWarnedAndRequestedOnes()
+			throws IOException, ParsingException, AnalysisException {
+		Path all = folder.newFolder().toPath();
+		render(all, new GraphRenderer(GraphRenderer.Mode.ASYNC, Collections.emptySet(), 2), null);
+
+		Path selected = folder.newFolder().toPath();
+		render(selected, new GraphRenderer(GraphRenderer.Mode.SELECTIVE, Collections.singleton("loop"), 2),
+				new WarnOn("branches"));
+
+		Set<String> expected = new TreeSet<>();
+		for (String graph : graphs(all))
+			if (graph.contains(".loop(") || graph.contains(".branches("))
+				expected.add(graph);
+		assertEquals(2, expected.size());
+		assertEquals(expected, graphs(selected));
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void render(Path workdir, GraphRenderer renderer, SemanticCheck<?> check)
+			throws IOException, ParsingException, AnalysisException {
+		LiSAConfiguration conf = conf(workdir);
+		if (check != null)
+			conf.semanticChecks.add((SemanticCheck) check);
+		renderer.apply(conf);
+		new LiSA(conf).run(IMPFrontend.processFile(FILE));
+		renderer.finish();
+	}
+
+	private static LiSAConfiguration conf(Path workdir) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.analysisGraphs = GraphType.HTML;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		return conf;
+	}
+
+	private static Set<String> graphs(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".html"))
+					.collect(Collectors.toCollection(TreeSet::new));
+		}
+	}
+
+	/**
+	 * Raises a warning on the CFGs of the methods with the given name.
+	 */
+	private static class WarnOn implements
+			SemanticCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
+
+		private final String method;
+
+		private WarnOn(String method) {
+			this.method = method;
+		}
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool,
+				CFG graph) {
+			if (graph.getDescriptor().getName().equals(method))
+				tool.warnOn(graph, "Warned");
+			return false;
+		}
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool,
+				CFG graph, Statement node) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Test
+	public void testQuoteRoundTrips() throws IOException {
+		for (String s : new String[] { "", "plain", "a \"quoted\" \\path\\", "line\nbreak\r\n\ttab",
+				"bell\u0007 nul\u0000 escape\u001b \b \f", "unicode àèì  " })
+			assertEquals(s, MAPPER.readValue(Json.quote(s), String.class));
+	}
+
+	@Test
+	public void testQuoteNull() {
+		assertEquals("null", Json.quote(null));
+	}
+}
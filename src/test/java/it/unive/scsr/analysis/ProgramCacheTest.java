@@ -0,0 +1,184 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+import it.unive.scsr.TaintThreeLevels;
+import it.unive.scsr.checkers.DivisionByZeroChecker;
+import it.unive.scsr.checkers.TaintThreeLevelsChecker;
+
+public class ProgramCacheTest {
+
+	private static final String FILE = "inputs/taint-3lvs-eval.imp";
+
+	private static final TaintAnnotations ANNOTATIONS = new TaintAnnotations(
+			new String[] { "source1", "source2" },
+			new String[] { "sanitizer1", "sanitizer2" },
+			new String[] { "sink1", "sinks" });
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCachedProgramRaisesTheSameWarnings() throws IOException, ParsingException, AnalysisException {
+		ProgramCache cache = new ProgramCache();
+		Program cached = cache.get(FILE, ANNOTATIONS);
+
+		// different analyses, one after the other, on the same instance
+		List<String> taint = taint(cached);
+		List<String> divisions = divisions(cached);
+		List<String> taintAgain = taint(cached);
+		cache.release(cached);
+		assertSame(cached, cache.get(FILE, ANNOTATIONS));
+
+		assertFalse("No warnings raised on " + FILE, taint.isEmpty());
+		assertEquals(taint(fresh()), taint);
+		assertEquals(divisions(fresh()), divisions);
+		assertEquals(taint, taintAgain);
+	}
+
+	@Test
+	public void testConcurrentRequestsGetTheirOwnPrograms() throws Exception {
+		ProgramCache cache = new ProgramCache();
+		Program first = cache.get(FILE, ANNOTATIONS);
+		Program second = cache.get(FILE, ANNOTATIONS);
+		// the cached program is lent: the second request gets a fresh parse
+		assertNotSame(first, second);
+		assertEquals(1, cache.size());
+
+		// both are analyzed at the same time, as fresh parses would be
+		List<String> expected = taint(fresh());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<List<String>> onFirst = executor.submit(() -> taint(first));
+			Future<List<String>> onSecond = executor.submit(() -> taint(second));
+			assertEquals(expected, onFirst.get());
+			assertEquals(expected, onSecond.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		cache.release(second);
+		assertNotSame(first, cache.get(FILE, ANNOTATIONS));
+		cache.release(first);
+		assertSame(first, cache.get(FILE, ANNOTATIONS));
+	}
+
+	@Test
+	public void testSummaryCountsTheAnnotatedMembers() throws ParsingException {
+		Program program = IMPFrontend.processFile(FILE);
+		int[] found = ANNOTATIONS.applyTo(program);
+		assertEquals(found[0] + " sources, " + found[1] + " sanitizers, " + found[2] + " sink parameters",
+				ANNOTATIONS.summary(program));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedProgramsAreEvicted() throws IOException, ParsingException {
+		ProgramCache cache = new ProgramCache(2);
+		String a = copy("inputs/divbyzero.imp"), b = copy("inputs/intervals.imp"), c = copy("inputs/signs.imp");
+
+		Program first = cache.get(a);
+		cache.release(first);
+		cache.release(cache.get(b));
+		assertSame(first, cache.get(a));
+		cache.release(first);
+		cache.release(cache.get(c));
+		assertEquals(2, cache.size());
+		// b was the least recently used one
+		assertSame(first, cache.get(a));
+	}
+
+	@Test
+	public void testChangedFilesDropTheirPreviousVersions() throws IOException, ParsingException {
+		ProgramCache cache = new ProgramCache();
+		String file = copy("inputs/divbyzero.imp");
+		Program before = cache.get(file);
+		cache.release(before);
+		cache.release(cache.get(file, ANNOTATIONS));
+		assertEquals(2, cache.size());
+
+		Files.write(Paths.get(file), Files.readAllBytes(Paths.get("inputs/intervals.imp")));
+		Program after = cache.get(file);
+		assertNotSame(before, after);
+		assertEquals(1, cache.size());
+	}
+
+	private static Program fresh() throws ParsingException {
+		Program program = IMPFrontend.processFile(FILE);
+		ANNOTATIONS.applyTo(program);
+		return program;
+	}
+
+	private List<String> taint(Program program) throws IOException, AnalysisException {
+		LiSAConfiguration conf = conf();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new TaintThreeLevels()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add(new TaintThreeLevelsChecker());
+		return run(conf, program);
+	}
+
+	private List<String> divisions(Program program) throws IOException, AnalysisException {
+		LiSAConfiguration conf = conf();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add(new DivisionByZeroChecker(NumericalSize.INT32));
+		return run(conf, program);
+	}
+
+	private String copy(String file) throws IOException {
+		Path copy = folder.newFile().toPath();
+		Files.copy(Paths.get(file), copy, StandardCopyOption.REPLACE_EXISTING);
+		return copy.toString();
+	}
+
+	private LiSAConfiguration conf() throws IOException {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = folder.newFolder().toString();
+		conf.jsonOutput = true;
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		return conf;
+	}
+
+	private static List<String> run(LiSAConfiguration conf, Program program) throws IOException, AnalysisException {
+		new LiSA(conf).run(program);
+		try (Reader reader = Files.newBufferedReader(Paths.get(conf.workdir, "report.json"))) {
+			return JsonReport.read(reader).getWarnings().stream().map(Object::toString)
+					.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package it.unive.scsr.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+
+public class ProgramCanonicalizerTest {
+
+	private static final String PROGRAM = "class c {\n"
+			+ "\tf(a) {\n"
+			+ "\t\tdef x = a + 1;\n"
+			+ "\t\tdef y = x * 2;\n"
+			+ "\t\treturn y;\n"
+			+ "\t}\n"
+			+ "}\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLayoutIsIgnored() throws IOException, ParsingException {
+		assertEquals(hash(PROGRAM), hash("\n\nclass c\n{\n"
+				+ "    f(a)\n    {\n"
+				+ "        def x=a+1;   def y = x*2;\n"
+				+ "\n\n        return y;\n"
+				+ "    }\n"
+				+ "}"));
+	}
+
+	@Test
+	public void testCommentsAreIgnored() throws IOException, ParsingException {
+		assertEquals(hash(PROGRAM), hash("// a comment\n"
+				+ "class c {\n"
+				+ "\t/* the only method */\n"
+				+ "\tf(a) {\n"
+				+ "\t\tdef x = a + 1; // increment\n"
+				+ "\t\tdef y = x * 2;\n"
+				+ "\t\treturn y;\n"
+				+ "\t}\n"
+				+ "}\n"));
+	}
+
+	@Test
+	public void testLocalNamesAreIgnored() throws IOException, ParsingException {
+		assertEquals(hash(PROGRAM), hash("class c {\n"
+				+ "\tf(input) {\n"
+				+ "\t\tdef tmp = input + 1;\n"
+				+ "\t\tdef result = tmp * 2;\n"
+				+ "\t\treturn result;\n"
+				+ "\t}\n"
+				+ "}\n"));
+	}
+
+	@Test
+	public void testCalledMethodsAreNotRenamedWithLocals() throws IOException, ParsingException {
+		String callee = "\tg(a) {\n\t\treturn a;\n\t}\n";
+		// a local with the same name as the called method
+		assertEquals(hash("class c {\n" + callee
+				+ "\tf(a) {\n"
+				+ "\t\tdef g = this.g(a);\n"
+				+ "\t\treturn g;\n"
+				+ "\t}\n"
+				+ "}\n"), hash("class c {\n" + callee
+				+ "\tf(a) {\n"
+				+ "\t\tdef h = this.g(a);\n"
+				+ "\t\treturn h;\n"
+				+ "\t}\n"
+				+ "}\n"));
+	}
+
+	@Test
+	public void testChangedStatementsAreNotEquivalent() throws IOException, ParsingException {
+		assertNotEquals(hash(PROGRAM), hash(PROGRAM.replace("a + 1", "a + 2")));
+		assertNotEquals(hash(PROGRAM), hash(PROGRAM.replace("x * 2", "x - 2")));
+	}
+
+	@Test
+	public void testMethodNamesAreNotIgnored() throws IOException, ParsingException {
+		assertNotEquals(hash(PROGRAM), hash(PROGRAM.replace("f(a)", "g(a)")));
+	}
+
+	@Test
+	public void testFieldsAreNotIgnored() throws IOException, ParsingException {
+		assertNotEquals(hash(PROGRAM), hash(PROGRAM.replace("class c {\n", "class c {\n\tfield;\n")));
+	}
+
+	@Test
+	public void testAncestorsAreNotIgnored() throws IOException, ParsingException {
+		String base = "class b {\n}\n";
+		assertNotEquals(hash(base + PROGRAM), hash(base + PROGRAM.replace("class c", "class c extends b")));
+	}
+
+	private String hash(String program) throws IOException, ParsingException {
+		Path file = folder.newFile("program.imp").toPath();
+		try {
+			Files.write(file, program.getBytes(StandardCharsets.UTF_8));
+			return ProgramCanonicalizer.hash(IMPFrontend.processFile(file.toString()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package it.unive.scsr.checkers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.numeric.Division;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+
+public class DivisionByZeroCheckerTest {
+
+	private static final String FILE = "inputs/divbyzero-complex.imp";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDivisorsAreComputedOncePerDivision() throws IOException, ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile(FILE);
+		long divisions = 0;
+		for (CFG cfg : program.getAllCFGs())
+			for (Statement node : cfg.getNodes())
+				if (node instanceof Division)
+					divisions++;
+
+		// every division of the file is reached in a single context, and has
+		// a single numerical divisor
+		DivisionByZeroChecker checker = new DivisionByZeroChecker(NumericalSize.INT32);
+		run(program, checker);
+		assertEquals(divisions, checker.getReachabilityQueries());
+		assertEquals(divisions, checker.getEvaluations());
+
+		// the standalone checker and the indexed one do the same work
+		DivisionByZeroChecker indexed = new DivisionByZeroChecker(NumericalSize.INT32);
+		run(program, IndexedChecks.of(indexed, new OverflowChecker(NumericalSize.INT32)));
+		assertEquals(divisions, indexed.getReachabilityQueries());
+		assertEquals(divisions, indexed.getEvaluations());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void run(Program program, SemanticCheck<?> check)
+			throws IOException, AnalysisException {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = folder.newFolder().toString();
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		conf.semanticChecks.add((SemanticCheck) check);
+		new LiSA(conf).run(program);
+	}
+}
@@ -0,0 +1,143 @@
+package it.unive.scsr.checkers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.interprocedural.context.ContextBasedAnalysis;
+import it.unive.lisa.interprocedural.context.FullStackToken;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.Program;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+
+public class IndexedChecksTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testParallelVisitsRaiseTheSameWarnings() throws IOException, ParsingException, AnalysisException {
+		for (String file : new String[] { "inputs/divbyzero-complex.imp", "inputs/banking-simulation.imp" }) {
+			Program program = IMPFrontend.processFile(file);
+			List<String> sequential = warnings(program, IndexedChecks.create(1, false, checks()));
+			List<String> parallel = warnings(program, IndexedChecks.create(4, false, checks()));
+
+			assertFalse("No warnings raised on " + file, sequential.isEmpty());
+			assertEquals("Warnings on " + file + " depend on the number of threads", sequential, parallel);
+		}
+	}
+
+	@Test
+	public void testParallelVisitsAggregateTheSameWarnings() throws IOException, ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/divbyzero-complex.imp");
+		assertEquals(warnings(program, IndexedChecks.create(1, true, checks())),
+				warnings(program, IndexedChecks.create(4, true, checks())));
+	}
+
+	@Test
+	public void testIndexedChecksRaiseTheWarningsOfSeparateChecks()
+			throws IOException, ParsingException, AnalysisException {
+		for (String file : new String[] { "inputs/divbyzero-complex.imp", "inputs/banking-simulation.imp" }) {
+			Program program = IMPFrontend.processFile(file);
+			List<String> separate = warnings(program, new DivisionByZeroChecker(NumericalSize.INT32),
+					new OverflowChecker(NumericalSize.INT16),
+					new OverflowChecker(EnumSet.of(NumericalSize.UINT8, NumericalSize.FLOAT32)));
+			List<String> indexed = warnings(program, IndexedChecks.of(new DivisionByZeroChecker(NumericalSize.INT32),
+					new OverflowChecker(NumericalSize.INT16),
+					new OverflowChecker(EnumSet.of(NumericalSize.UINT8, NumericalSize.FLOAT32))));
+
+			assertFalse("No warnings raised on " + file, separate.isEmpty());
+			assertEquals("Warnings on " + file + " depend on the indexing", separate, indexed);
+		}
+	}
+
+	@Test
+	public void testAggregationCollapsesContexts() throws IOException, ParsingException, AnalysisException {
+		Path file = folder.newFile("contexts.imp").toPath();
+		Files.write(file, ("class c {\n"
+				+ "\tdiv(a, b) {\n"
+				+ "\t\treturn a / b;\n"
+				+ "\t}\n"
+				+ "\tmain(n) {\n"
+				+ "\t\tdef x = this.div(1, 0);\n"
+				+ "\t\tdef y = this.div(2, 0);\n"
+				+ "\t\tdef z = this.div(3, n);\n"
+				+ "\t\treturn;\n"
+				+ "\t}\n"
+				+ "}\n").getBytes(StandardCharsets.UTF_8));
+		Program program = IMPFrontend.processFile(file.toString());
+		DivisionByZeroChecker checker = new DivisionByZeroChecker(NumericalSize.INT32);
+		List<String> plain = report(program, IndexedChecks.create(1, false, checker)).getWarnings().stream()
+				.map(w -> w.getMessage()).collect(Collectors.toList());
+		List<String> aggregated = report(program, IndexedChecks.create(1, true, checker)).getWarnings().stream()
+				.map(w -> w.getMessage()).collect(Collectors.toList());
+
+		// the two calls dividing by zero raise the same warning, counted once per context
+		long definite = aggregated.stream().filter(w -> w.contains("Definite division by zero")).count();
+		assertEquals(aggregated.toString(), 1, definite);
+		assertTrue(aggregated.toString(), aggregated.stream()
+				.anyMatch(w -> w.contains("Definite division by zero") && w.endsWith(" (in 2 contexts)")));
+		// the call with an unknown divisor keeps its own message
+		assertTrue(aggregated.toString(), aggregated.stream()
+				.anyMatch(w -> w.contains("Division by unknown value") && !w.endsWith(" contexts)")));
+		// aggregation only adds the counts
+		Set<String> stripped = new TreeSet<>();
+		for (String warning : aggregated)
+			stripped.add(warning.replaceAll(" \\(in \\d+ contexts\\)$", ""));
+		assertEquals(new TreeSet<>(plain), stripped);
+	}
+
+	private static IndexedCheck<?>[] checks() {
+		return new IndexedCheck<?>[] {
+				new DivisionByZeroChecker(NumericalSize.INT32),
+				new OverflowChecker(NumericalSize.INT16) };
+	}
+
+	private List<String> warnings(Program program, SemanticCheck<?>... checks) throws IOException, AnalysisException {
+		return report(program, checks).getWarnings().stream().map(Object::toString).collect(Collectors.toList());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private JsonReport report(Program program, SemanticCheck<?>... checks) throws IOException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.jsonOutput = true;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.interproceduralAnalysis = new ContextBasedAnalysis<>(FullStackToken.getSingleton());
+		for (SemanticCheck<?> check : checks)
+			conf.semanticChecks.add((SemanticCheck) check);
+		new LiSA(conf).run(program);
+
+		try (Reader reader = Files.newBufferedReader(workdir.resolve("report.json"))) {
+			return JsonReport.read(reader);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package it.unive.scsr.checkers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.DefaultConfiguration;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.pointbased.PointBasedHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.conf.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.outputs.json.JsonReport;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.scsr.Intervals;
+import it.unive.scsr.NumericalSize;
+
+public class SarifReportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testStreamedWarningsAreLoggedOnce() throws IOException, ParsingException, AnalysisException {
+		Path workdir = folder.newFolder().toPath();
+		LiSAConfiguration conf = conf(workdir);
+		SarifReport<?> report = SarifReport.apply(conf);
+		// added after the report, as instrumentation would be
+		conf.semanticChecks.add(new DirectCheck());
+		try {
+			new LiSA(conf).run(IMPFrontend.processFile("inputs/divbyzero.imp"));
+		} finally {
+			report.close();
+		}
+
+		List<String> messages = new ArrayList<>();
+		JsonNode results = new ObjectMapper().readTree(workdir.resolve(SarifReport.FILE_NAME).toFile())
+				.get("runs").get(0).get("results");
+		for (JsonNode result : results) {
+			String message = result.get("message").get("text").asText();
+			messages.add(message);
+			assertFalse("Warnings raised on the tool are not streamed", message.startsWith(DirectCheck.MESSAGE));
+			assertEquals(DivisionByZeroChecker.class.getSimpleName(), result.get("ruleId").asText());
+		}
+
+		assertFalse("No warnings streamed", messages.isEmpty());
+		try (Reader reader = Files.newBufferedReader(workdir.resolve("report.json"))) {
+			long streamed = JsonReport.read(reader).getWarnings().stream()
+					.filter(w -> !w.getMessage().contains(DirectCheck.MESSAGE + " ")).count();
+			// warnings raised again in other contexts are logged once, as LiSA reports them
+			assertEquals("The log and the report disagree", streamed, messages.size());
+		}
+	}
+
+	private static LiSAConfiguration conf(Path workdir) {
+		LiSAConfiguration conf = new DefaultConfiguration();
+		conf.workdir = workdir.toString();
+		conf.jsonOutput = true;
+		conf.abstractState = DefaultConfiguration.simpleState(
+				DefaultConfiguration.defaultHeapDomain(),
+				new ValueEnvironment<>(new Intervals()),
+				DefaultConfiguration.defaultTypeDomain());
+		conf.semanticChecks.add(new DivisionByZeroChecker(NumericalSize.INT32));
+		return conf;
+	}
+
+	/**
+	 * Raises a warning on each CFG directly on the tool, bypassing
+	 * {@link SarifReport#warnOn(CheckToolWithAnalysisResults, Class, CFG, String)}.
+	 */
+	private static class DirectCheck implements
+			SemanticCheck<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> {
+
+		private static final String MESSAGE = "Visited";
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool,
+				CFG graph) {
+			tool.warnOn(graph, MESSAGE + " " + graph.getDescriptor().getName());
+			return false;
+		}
+
+		@Override
+		public boolean visit(
+				CheckToolWithAnalysisResults<SimpleAbstractState<PointBasedHeap, ValueEnvironment<Intervals>, TypeEnvironment<InferredTypes>>> tool,
+				CFG graph, Statement node) {
+			return false;
+		}
+	}
+}
@@ -1,17 +1,35 @@
 #!/usr/bin/env python3
+import json
 import os
 import shutil
 import subprocess
 import sys
+import tempfile
+import threading
 import pandas
-
-if len(sys.argv) != 3 and (len(sys.argv) != 2 and sys.argv[1] == 'cleanup'):
+from concurrent.futures import ThreadPoolExecutor
+
+# usage: tester.py <test> <output folder> [jobs]
+#        tester.py cleanup
+# with jobs > 1, each branch is graded in its own git worktree and up to
+# jobs branches are built and tested at the same time
+# branches whose head and master commits are the ones recorded in the state
+# file by the previous run of the same test are not graded again: their
+# results, logs and outputs are reused (delete the state file to force)
+# only the results of branches that compiled are recorded, so that failed
+# checkouts, merges and builds are retried by the next run
+if not (len(sys.argv) in (3, 4) or (len(sys.argv) == 2 and sys.argv[1] == 'cleanup')):
 	print('name of the test to execute and output folder missing')
 	exit()
 
+jobs = int(sys.argv[3]) if len(sys.argv) == 4 else 1
+
 logdir = 'eval-logs'
+previous_logdir = logdir + '.previous'
+if os.path.isdir(previous_logdir):
+	shutil.rmtree(previous_logdir)
 if os.path.isdir(logdir):
-	shutil.rmtree(logdir)
+	os.rename(logdir, previous_logdir)
 
 os.mkdir(logdir)
 with open(logdir + '/.gitignore', 'w') as gitignore:
@@ -19,8 +37,132 @@ with open(logdir + '/.gitignore', 'w') as gitignore:
 
 df = pandas.DataFrame({'branch': [], 'id': [], 'compile': [], 'test': []})
 
+# git commands changing the shared refs and worktree list are run one at a time
+git_lock = threading.Lock()
+
+def section(log, name):
+	log.write('###############################################################################')
+	log.write(name)
+	log.write('###############################################################################')
+
+# merges master, builds, tests and copies the outputs of the branch checked
+# out in cwd, yielding the compile and test results
+def grade(source, cwd, log):
+	section(log, 'MERGE')
+	print(f'++ merging master into {source}')
+	my_env = os.environ.copy()
+	my_env['GIT_MERGE_AUTOEDIT'] = 'no'
+	with git_lock:
+		res = subprocess.run(['git', 'merge', '-Xtheirs', 'master'], stdout = log, stderr = log, env=my_env, cwd=cwd)
+	if res.returncode != 0:
+		print(f'###### merge failed on {source}')
+		return 0, 0
+
+	section(log, 'BUILD')
+	print(f'++ building {source}')
+	res = subprocess.run(['./gradlew', 'assemble'], stdout = log, stderr = log, cwd=cwd)
+	if res.returncode != 0:
+		print(f'###### build failed on {source}')
+		return 0, 0
+
+	section(log, 'TEST')
+	print(f'++ testing {source}')
+	res = subprocess.run(['./gradlew', 'test', '--tests', sys.argv[1]], stdout = log, stderr = log, cwd=cwd)
+	if res.returncode != 0:
+		print(f'###### test failed on {source}')
+		return 1, 0
+
+	section(log, 'COPY')
+	outdir = os.path.join(cwd, 'outputs', sys.argv[2])
+	if os.path.isdir(outdir):
+		print(f'++ copying output files of {source}')
+		shutil.copytree(outdir, logdir + '/' + source)
+	else:
+		print(f'++ no output files to copy for {source}')
+	return 1, 1
+
+# grades the branch in the main working tree, resetting it afterwards
+def grade_in_place(source):
+	logfile = logdir + '/' + source + '.log'
+	with open(logfile, 'w') as log:
+		section(log, 'CHECKOUT')
+		print(f'+ checking out branch: {source}')
+		# the local branch is reset to the remote head, dropping previous merges
+		res = subprocess.run(['git', 'checkout', '-B', source, 'origin/' + source], stdout = log, stderr = log)
+		if res.returncode != 0:
+			print(f'###### checkout failed on {source}')
+			return 0, 0
+
+		compiled, tested = grade(source, '.', log)
+		if not tested:
+			return compiled, tested
+
+		section(log, 'RESET')
+		print(f'++ resetting {source}')
+		res = subprocess.run(['git', 'reset', '--hard'], stdout = log, stderr = log)
+		if res.returncode != 0:
+			print(f'###### reset failed on {source}')
+			return compiled, tested
+		res = subprocess.run(['git', 'clean', '-fd'], stdout = log, stderr = log)
+		if res.returncode != 0:
+			print(f'###### clean failed on {source}')
+		return compiled, tested
+
+# grades the branch in a new worktree under root, removed afterwards
+def grade_in_worktree(source, root):
+	logfile = logdir + '/' + source + '.log'
+	worktree = os.path.join(root, source)
+	with open(logfile, 'w') as log:
+		section(log, 'CHECKOUT')
+		print(f'+ checking out branch: {source} in {worktree}')
+		with git_lock:
+			res = subprocess.run(['git', 'worktree', 'add', '-B', source, worktree, 'origin/' + source],
+					stdout = log, stderr = log)
+		if res.returncode != 0:
+			print(f'###### checkout failed on {source}')
+			return 0, 0
+
+		try:
+			return grade(source, worktree, log)
+		finally:
+			section(log, 'RESET')
+			print(f'++ removing worktree of {source}')
+			with git_lock:
+				res = subprocess.run(['git', 'worktree', 'remove', '--force', worktree], stdout = log, stderr = log)
+			if res.returncode != 0:
+				print(f'###### worktree removal failed on {source}')
+
+def rev_parse(ref):
+	res = subprocess.run(['git', 'rev-parse', '--verify', '-q', ref], capture_output=True)
+	return res.stdout.decode().strip() if res.returncode == 0 else None
+
+statefile = 'report.state.json'
+state = {}
+if sys.argv[1] != 'cleanup' and os.path.isfile(statefile):
+	with open(statefile) as f:
+		state = json.load(f)
+master = rev_parse('master')
+
+# yields the previous results of the branch if nothing changed since then,
+# moving back its log and outputs
+def reuse(source):
+	previous = state.get(source)
+	if previous is None or previous.get('head') != rev_parse('refs/remotes/origin/' + source) \
+			or previous.get('master') != master or previous.get('test_name') != sys.argv[1] \
+			or previous.get('output') != sys.argv[2]:
+		return None
+	logfile = previous_logdir + '/' + source + '.log'
+	if not os.path.isfile(logfile):
+		return None
+	print(f'+ {source} unchanged, reusing previous results')
+	shutil.move(logfile, logdir + '/' + source + '.log')
+	if os.path.isdir(previous_logdir + '/' + source):
+		shutil.move(previous_logdir + '/' + source, logdir + '/' + source)
+	return previous['compile'], previous['test']
+
 res = subprocess.run(['git', 'for-each-ref', "--format='%(refname:lstrip=3)'", 'refs/remotes/origin/'], capture_output=True)
 
+branches = []
 for source in res.stdout.decode().split('\n'):
 	if source == '':
 		continue
@@ -30,87 +172,62 @@ for source in res.stdout.decode().split('\n'):
 		continue
 
 	pid = source.split('-')[0]
-	position = len(df.index)
-	df.loc[position] = [source, pid, 0, 0]
+	df.loc[len(df.index)] = [source, pid, 0, 0]
+	branches.append(source)
 
 	if sys.argv[1] == 'cleanup':
 		subprocess.run(['git', 'branch', '-D', source])
-		continue 
 
-	logfile = logdir + '/' + source + '.log'
-	with open(logfile, 'w') as log:
-		log.write('###############################################################################')
-		log.write('CHECKOUT')
-		log.write('###############################################################################')
-		print(f'+ checking out branch: {source}')
-		res = subprocess.run(['git', 'checkout', source], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### checkout failed on {source}')
-			continue
-
-		log.write('###############################################################################')
-		log.write('MERGE')
-		log.write('###############################################################################')
-		print(f'++ merging master into {source}')
-		my_env = os.environ.copy()
-		my_env['GIT_MERGE_AUTOEDIT'] = 'no'
-		res = subprocess.run(['git', 'merge', '-Xtheirs', 'master'], stdout = log, stderr = log, env=my_env)
-		if res.returncode != 0:
-			print(f'###### merge failed on {source}')
-			continue
-
-		log.write('###############################################################################')
-		log.write('BUILD')
-		log.write('###############################################################################')
-		print(f'++ building {source}')
-		res = subprocess.run(['./gradlew', 'assemble'], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### build failed on {source}')
-			continue
-		df.loc[position, 'compile'] = 1
-
-		log.write('###############################################################################')
-		log.write('TEST')
-		log.write('###############################################################################')
-		print(f'++ testing {source}')
-		res = subprocess.run(['./gradlew', 'test', '--tests', sys.argv[1]], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### test failed on {source}')
+if sys.argv[1] != 'cleanup':
+	results = {}
+	for source in branches:
+		previous = reuse(source)
+		if previous is not None:
+			results[source] = previous
+	changed = [source for source in branches if source not in results]
+
+	# the remote heads identify what was graded, as local branches get merge commits
+	heads = {source: rev_parse('refs/remotes/origin/' + source) for source in changed}
+	if jobs > 1:
+		root = tempfile.mkdtemp(prefix='eval-worktrees-')
+		with ThreadPoolExecutor(max_workers=jobs) as executor:
+			results.update(zip(changed, executor.map(lambda source: grade_in_worktree(source, root), changed)))
+		shutil.rmtree(root, ignore_errors=True)
+		subprocess.run(['git', 'worktree', 'prune'])
+	else:
+		for source in changed:
+			results[source] = grade_in_place(source)
+
+	# results are in branch order, whatever the order they completed in
+	for position, source in enumerate(branches):
+		df.loc[position, 'compile'], df.loc[position, 'test'] = results[source]
+		if source not in heads:
 			continue
-		df.loc[position, 'test'] = 1
-
-		log.write('###############################################################################')
-		log.write('COPY')
-		log.write('###############################################################################')
-		outdir = 'outputs/' + sys.argv[2]
-		if os.path.isdir(outdir):
-			print(f'++ copying output files')
-			shutil.copytree('outputs/' + sys.argv[2], logdir + '/' + source)
+		if not results[source][0]:
+			# failures before the tests may be transient: grade again next time
+			state.pop(source, None)
 		else:
-			print(f'++ no output files to copy')
+			state[source] = {'head': heads[source], 'master': master, 'test_name': sys.argv[1],
+					'output': sys.argv[2], 'compile': results[source][0], 'test': results[source][1]}
 
-		log.write('###############################################################################')
-		log.write('RESET')
-		log.write('###############################################################################')
-		print(f'++ resetting {source}')
-		res = subprocess.run(['git', 'reset', '--hard'], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### reset failed on {source}')
-			continue
-		res = subprocess.run(['git', 'clean', '-fd'], stdout = log, stderr = log)
-		if res.returncode != 0:
-			print(f'###### clean failed on {source}')
-			continue
+	# branches that disappeared are forgotten
+	state = {source: state[source] for source in branches if source in state}
+	with open(statefile + '.tmp', 'w') as f:
+		json.dump(state, f, indent=2, sort_keys=True)
+	os.replace(statefile + '.tmp', statefile)
 
+if os.path.isdir(previous_logdir):
+	shutil.rmtree(previous_logdir)
 
 print('+ checking out master')
 subprocess.run(['git', 'checkout', 'master'])
 
 fname = 'report.csv'
 if sys.argv[1] == 'cleanup':
-	if os.path.isfile(fname):
-		os.remove(fname)
-		print('deleted', fname)
+	for name in (fname, statefile):
+		if os.path.isfile(name):
+			os.remove(name)
+			print('deleted', name)
 else:
 	df.to_csv(fname)
 	print('created', fname)